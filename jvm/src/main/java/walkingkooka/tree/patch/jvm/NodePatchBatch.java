@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.patch.NodePatchPlan;
+import walkingkooka.tree.patch.NodePatchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * JVM only helpers that apply one {@link NodePatch} to many documents using an {@link Executor}.
+ */
+public final class NodePatchBatch {
+
+    /**
+     * The number of chunks given to the {@link Executor} for each available processor, so uneven documents still
+     * keep all processors busy.
+     */
+    private final static int CHUNKS_PER_PROCESSOR = 4;
+
+    /**
+     * Applies the patch to every node like {@link NodePatch#applyAll(java.util.stream.Stream)}, splitting the nodes
+     * into chunks which are executed by the {@link Executor}. The patch is compiled once into a {@link NodePatchPlan}
+     * shared by all chunks. The results are returned in the same order as the nodes, and a node that fails to patch has
+     * a failure result without aborting the others. Null nodes are rejected before any chunk is started.
+     */
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> List<NodePatchResult<N, NAME>> applyAll(final NodePatch<N, NAME> patch,
+                                                                                                           final List<N> nodes,
+                                                                                                           final Executor executor) {
+        Objects.requireNonNull(patch, "patch");
+        Objects.requireNonNull(nodes, "nodes");
+        Objects.requireNonNull(executor, "executor");
+        for (final N node : nodes) {
+            Objects.requireNonNull(node, "node");
+        }
+
+        final int count = nodes.size();
+        final int chunks = Math.max(
+            1,
+            Math.min(
+                count,
+                Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR
+            )
+        );
+        final int chunkSize = (count + chunks - 1) / chunks;
+        final NodePatchPlan<N, NAME> plan = patch.compile();
+
+        final List<CompletableFuture<List<NodePatchResult<N, NAME>>>> futures = new ArrayList<>();
+        for (int from = 0; from < count; from = from + chunkSize) {
+            final List<N> chunk = nodes.subList(
+                from,
+                Math.min(from + chunkSize, count)
+            );
+
+            futures.add(
+                CompletableFuture.supplyAsync(
+                    () -> chunk.stream()
+                        .map(plan::tryApply)
+                        .collect(Collectors.toList()),
+                    executor
+                )
+            );
+        }
+
+        final List<NodePatchResult<N, NAME>> results = new ArrayList<>(count);
+        for (final CompletableFuture<List<NodePatchResult<N, NAME>>> future : futures) {
+            try {
+                results.addAll(future.join());
+            } catch (final CompletionException cause) {
+                final Throwable wrapped = cause.getCause();
+                if (wrapped instanceof RuntimeException) {
+                    throw (RuntimeException) wrapped;
+                }
+                if (wrapped instanceof Error) {
+                    throw (Error) wrapped;
+                }
+                throw cause;
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Stop creation
+     */
+    private NodePatchBatch() {
+        throw new UnsupportedOperationException();
+    }
+}
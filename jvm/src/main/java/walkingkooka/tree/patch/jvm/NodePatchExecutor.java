@@ -0,0 +1,383 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.patch.NodePatchResult;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An in process service that applies {@link NodePatch patches} to documents, running each job on its own thread with
+ * a {@link Semaphore} capping the number of jobs in flight, so suppliers that block reading storage do not tie up a
+ * platform thread pool. Virtual threads are used when the running JVM supports them, otherwise daemon platform threads.
+ * <br>
+ * Jobs waiting for a permit are counted by {@link #queueDepth()}, and the time from submit until the result was given
+ * to the sink is tracked by {@link #averageLatency()} and {@link #maxLatency()}.
+ */
+public final class NodePatchExecutor implements AutoCloseable {
+
+    /**
+     * Creates a {@link NodePatchExecutor} that runs at most maxInFlight jobs at the same time.
+     */
+    public static NodePatchExecutor with(final int maxInFlight) {
+        return with(
+            maxInFlight,
+            threadFactory()
+        );
+    }
+
+    // VisibleForTesting
+    static NodePatchExecutor with(final int maxInFlight,
+                                  final ThreadFactory threadFactory) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Invalid maxInFlight " + maxInFlight + " <= 0");
+        }
+        Objects.requireNonNull(threadFactory, "threadFactory");
+
+        final NodePatchExecutor executor = new NodePatchExecutor(
+            maxInFlight,
+            threadFactory
+        );
+        executor.dispatcher.start();
+        return executor;
+    }
+
+    /**
+     * Returns a {@link ThreadFactory} creating virtual threads, using reflection because this module targets Java 11,
+     * or {@link #PLATFORM} if they are not supported.
+     */
+    // VisibleForTesting
+    static ThreadFactory threadFactory() {
+        ThreadFactory factory;
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual")
+                .invoke(null);
+            factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                .getMethod("factory")
+                .invoke(builder);
+        } catch (final ReflectiveOperationException | RuntimeException unsupported) {
+            factory = PLATFORM;
+        }
+        return factory;
+    }
+
+    /**
+     * Creates daemon platform threads, so an executor that was never closed does not stop the JVM from exiting.
+     */
+    // VisibleForTesting
+    final static ThreadFactory PLATFORM = (r) -> {
+        final Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private NodePatchExecutor(final int maxInFlight,
+                              final ThreadFactory threadFactory) {
+        super();
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.threadFactory = threadFactory;
+        this.dispatcher = threadFactory.newThread(this::dispatch);
+    }
+
+    /**
+     * Submits a job which gets the document, applies the patch using {@link NodePatch#tryApply(Node)} and gives the
+     * result to the sink. The returned {@link CompletableFuture} completes after the sink accepted the result, or
+     * exceptionally if the document supplier or sink failed.
+     */
+    public <N extends Node<N, NAME, ?, ?>, NAME extends Name> CompletableFuture<NodePatchResult<N, NAME>> submit(final Supplier<N> document,
+                                                                                                               final NodePatch<N, NAME> patch,
+                                                                                                               final Consumer<? super NodePatchResult<N, NAME>> sink) {
+        Objects.requireNonNull(document, "document");
+        Objects.requireNonNull(patch, "patch");
+        Objects.requireNonNull(sink, "sink");
+
+        final Job<N, NAME> job = new Job<>(
+            document,
+            patch,
+            sink,
+            System.nanoTime()
+        );
+
+        synchronized (this) {
+            if (this.closed) {
+                throw new IllegalStateException("Executor closed");
+            }
+            this.queued.incrementAndGet();
+            this.queue.add(job);
+        }
+
+        return job.future;
+    }
+
+    /**
+     * Takes each job in order, waiting for a permit before starting a thread for it. When the dispatcher stops, because
+     * the executor was closed or it was interrupted, any jobs still waiting fail.
+     */
+    private void dispatch() {
+        try {
+            Job<?, ?> job;
+            do {
+                this.permits.acquire();
+                try {
+                    job = this.queue.take();
+                } catch (final InterruptedException cause) {
+                    this.permits.release();
+                    throw cause;
+                }
+            } while (this.start(job));
+        } catch (final InterruptedException cause) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.stopped();
+        }
+    }
+
+    /**
+     * Starts a thread running the job holding the acquired permit, returning false for {@link #CLOSE}. If the
+     * {@link ThreadFactory} fails or returns null the permit is released and the job fails.
+     */
+    private boolean start(final Job<?, ?> job) {
+        final boolean start = CLOSE != job;
+
+        if (start) {
+            this.queued.decrementAndGet();
+            this.running.incrementAndGet();
+
+            try {
+                final Thread thread = this.threadFactory.newThread(() -> this.run(job));
+                if (null == thread) {
+                    throw new IllegalStateException("ThreadFactory returned null");
+                }
+                thread.start();
+            } catch (final RuntimeException | Error cause) {
+                this.running.decrementAndGet();
+                this.permits.release();
+                job.fail(this, cause);
+            }
+        } else {
+            this.permits.release();
+        }
+
+        return start;
+    }
+
+    /**
+     * Rejects any further jobs and fails those still waiting.
+     */
+    private void stopped() {
+        synchronized (this) {
+            this.closed = true;
+        }
+
+        for (Job<?, ?> job = this.queue.poll(); null != job; job = this.queue.poll()) {
+            if (CLOSE != job) {
+                this.queued.decrementAndGet();
+                job.fail(
+                    this,
+                    new IllegalStateException("Executor stopped")
+                );
+            }
+        }
+    }
+
+    private void run(final Job<?, ?> job) {
+        try {
+            job.run(this);
+        } finally {
+            this.running.decrementAndGet();
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Records the latency of a job that was submitted at the given {@link System#nanoTime()}.
+     */
+    private void completed(final long submitted) {
+        final long latency = System.nanoTime() - submitted;
+
+        this.completed.incrementAndGet();
+        this.totalLatency.addAndGet(latency);
+        this.maxLatency.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * The number of submitted jobs that are waiting for a permit.
+     */
+    public int queueDepth() {
+        return this.queued.get();
+    }
+
+    /**
+     * The number of jobs that are currently running. This is counted separately from the permits, because the
+     * dispatcher holds a permit while it waits for the next job.
+     */
+    public int inFlight() {
+        return this.running.get();
+    }
+
+    /**
+     * The number of jobs that have completed, successfully or not.
+     */
+    public long completedCount() {
+        return this.completed.get();
+    }
+
+    /**
+     * The average time from submit until completion of all completed jobs, or {@link Duration#ZERO} if none have
+     * completed.
+     */
+    public Duration averageLatency() {
+        final long completed = this.completed.get();
+        return Duration.ofNanos(
+            0 == completed ?
+                0 :
+                this.totalLatency.get() / completed
+        );
+    }
+
+    /**
+     * The longest time from submit until completion of any completed job.
+     */
+    public Duration maxLatency() {
+        return Duration.ofNanos(this.maxLatency.get());
+    }
+
+    /**
+     * Rejects any further jobs, and waits until all submitted jobs have completed, or failed if the dispatcher stopped.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!this.closed) {
+                this.closed = true;
+                this.queue.add(CLOSE);
+            }
+        }
+
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                this.dispatcher.join();
+                this.permits.acquire(this.maxInFlight);
+                this.permits.release(this.maxInFlight);
+                break;
+            } catch (final InterruptedException cause) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final int maxInFlight;
+
+    private final Semaphore permits;
+
+    private final ThreadFactory threadFactory;
+
+    private final Thread dispatcher;
+
+    private final BlockingQueue<Job<?, ?>> queue = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    private boolean closed;
+
+    /**
+     * Queued by {@link #close()} to stop the dispatcher after all jobs before it were started.
+     */
+    private final static Job<?, ?> CLOSE = new Job<>(null, null, null, 0);
+
+    @Override
+    public String toString() {
+        return "queueDepth=" + this.queueDepth() + " inFlight=" + this.inFlight() + " completed=" + this.completedCount();
+    }
+
+    /**
+     * A submitted document, patch and sink.
+     */
+    private static final class Job<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+        Job(final Supplier<N> document,
+            final NodePatch<N, NAME> patch,
+            final Consumer<? super NodePatchResult<N, NAME>> sink,
+            final long submitted) {
+            this.document = document;
+            this.patch = patch;
+            this.sink = sink;
+            this.submitted = submitted;
+        }
+
+        void run(final NodePatchExecutor executor) {
+            NodePatchResult<N, NAME> result = null;
+            Throwable failure = null;
+            try {
+                result = this.patch.tryApply(this.document.get());
+                this.sink.accept(result);
+            } catch (final Throwable cause) {
+                failure = cause;
+            }
+
+            if (null == failure) {
+                executor.completed(this.submitted);
+                this.future.complete(result);
+            } else {
+                this.fail(executor, failure);
+            }
+        }
+
+        /**
+         * Completes the job exceptionally, such as when it could not be started.
+         */
+        void fail(final NodePatchExecutor executor,
+                  final Throwable cause) {
+            executor.completed(this.submitted);
+            this.future.completeExceptionally(cause);
+        }
+
+        private final Supplier<N> document;
+        private final NodePatch<N, NAME> patch;
+        private final Consumer<? super NodePatchResult<N, NAME>> sink;
+        private final long submitted;
+
+        final CompletableFuture<NodePatchResult<N, NAME>> future = new CompletableFuture<>();
+    }
+}
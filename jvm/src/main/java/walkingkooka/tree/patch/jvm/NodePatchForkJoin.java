@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.patch.NodePatch;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * JVM only helpers that run {@link NodePatch} work on a {@link ForkJoinPool}. These live outside the core because
+ * J2CL does not support {@link java.util.concurrent}.
+ */
+public final class NodePatchForkJoin {
+
+    /**
+     * Applies the patch to the root, running groups of operations that touch disjoint top level children on the pool.
+     */
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N applyPartitioned(final NodePatch<N, NAME> patch,
+                                                                                        final N root,
+                                                                                        final ForkJoinPool pool) {
+        Objects.requireNonNull(patch, "patch");
+        Objects.requireNonNull(pool, "pool");
+
+        return patch.applyPartitioned(
+            root,
+            (suppliers) -> join(suppliers, pool)
+        );
+    }
+
+    /**
+     * Submits all suppliers before joining them in order, so the results match the order of the suppliers.
+     */
+    private static <N> List<N> join(final List<Supplier<N>> suppliers,
+                                    final ForkJoinPool pool) {
+        final List<ForkJoinTask<N>> tasks = suppliers.stream()
+            .map(s -> pool.submit(s::get))
+            .collect(Collectors.toList());
+
+        return tasks.stream()
+            .map(ForkJoinTask::join)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Stop creation
+     */
+    private NodePatchForkJoin() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.patch.NodePatch;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current immutable root of each document by key, applying {@link NodePatch patches} without locks. Each
+ * apply reads the current root, applies the patch producing a new tree, and then swaps it in with a compare and set,
+ * applying the patch again to the newer root when another writer won.
+ * <br>
+ * When retest is true, every attempt applies the whole patch, so its tests guard against writes made since the
+ * previous attempt. Otherwise tests are only checked by the first attempt, and retries apply the patch without them,
+ * so the last writer wins.
+ */
+public final class NodePatchStore<K, N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Creates an empty {@link NodePatchStore}.
+     */
+    public static <K, N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchStore<K, N, NAME> with(final boolean retest) {
+        return new NodePatchStore<>(retest);
+    }
+
+    private NodePatchStore(final boolean retest) {
+        super();
+        this.retest = retest;
+    }
+
+    /**
+     * Returns the current root for the key if one is present.
+     */
+    public Optional<N> get(final K key) {
+        Objects.requireNonNull(key, "key");
+
+        final AtomicReference<N> root = this.roots.get(key);
+        return Optional.ofNullable(
+            null != root ?
+                root.get() :
+                null
+        );
+    }
+
+    /**
+     * Sets the root for the key, replacing any current root regardless of concurrent patches.
+     */
+    public void put(final K key,
+                    final N root) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(root, "root");
+
+        this.roots.computeIfAbsent(
+            key,
+            (k) -> new AtomicReference<>()
+        ).set(root);
+    }
+
+    /**
+     * Applies the patch to the current root for the key, retrying with the newer root until it is swapped in, and
+     * returns the new root. A patch that fails leaves the root unchanged.
+     */
+    public N apply(final K key,
+                   final NodePatch<N, NAME> patch) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(patch, "patch");
+
+        final AtomicReference<N> root = this.roots.get(key);
+        if (null == root) {
+            throw new IllegalArgumentException("Unknown key " + key);
+        }
+
+        NodePatch<N, NAME> attempt = patch;
+
+        for (; ; ) {
+            final N current = root.get();
+            final N patched = attempt.apply(current);
+            if (root.compareAndSet(current, patched)) {
+                return patched;
+            }
+
+            this.retries.incrementAndGet();
+            if (!this.retest && attempt == patch) {
+                attempt = patch.removeTests();
+            }
+        }
+    }
+
+    /**
+     * The number of times a patch was applied again because another writer changed the root first.
+     */
+    public long retryCount() {
+        return this.retries.get();
+    }
+
+    private final boolean retest;
+
+    private final ConcurrentMap<K, AtomicReference<N>> roots = new ConcurrentHashMap<>();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    @Override
+    public String toString() {
+        return "size=" + this.roots.size() + " retries=" + this.retryCount();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.function.Supplier;
+
+/**
+ * A simple timed comparison of {@link NodePatch#apply(walkingkooka.tree.Node)} starting at the deepest node of a deep
+ * document, which computes the start pointer and navigates back to it after every operation, against
+ * {@link NodePatch#applyToRoot(walkingkooka.tree.Node)} making the same changes from the root. This is not a test,
+ * run it with the test classpath and optionally the depth and number of operations as arguments.
+ */
+public final class NodePatchApplyBenchmark {
+
+    public static void main(final String[] args) {
+        final int depth = args.length > 0 ?
+            Integer.parseInt(args[0]) :
+            200;
+        final int operations = args.length > 1 ?
+            Integer.parseInt(args[1]) :
+            20;
+
+        final StringBuilder json = new StringBuilder();
+        final StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            json.append("{\"a\":");
+            prefix.append("/a");
+        }
+        json.append("{\"leaf\":0}");
+        for (int i = 0; i < depth; i++) {
+            json.append('}');
+        }
+
+        final JsonNode root = JsonNode.parse(json.toString());
+        JsonNode start = root;
+        for (int i = 0; i < depth; i++) {
+            start = start.children()
+                .get(0);
+        }
+
+        NodePatch<JsonNode, JsonPropertyName> fromStart = NodePatch.empty(JsonNode.class);
+        NodePatch<JsonNode, JsonPropertyName> fromRoot = NodePatch.empty(JsonNode.class);
+        for (int i = 0; i < operations; i++) {
+            fromStart = fromStart.replace(pointer("/leaf"), JsonNode.number(i));
+            fromRoot = fromRoot.replace(pointer(prefix + "/leaf"), JsonNode.number(i));
+        }
+
+        final JsonNode startNode = start;
+        final NodePatch<JsonNode, JsonPropertyName> startPatch = fromStart;
+        final NodePatch<JsonNode, JsonPropertyName> rootPatch = fromRoot;
+
+        final long startNanos = time(() -> startPatch.apply(startNode));
+        final long rootNanos = time(() -> rootPatch.applyToRoot(root));
+
+        System.out.println("depth=" + depth + " operations=" + operations);
+        System.out.println("apply(start)      " + startNanos + "ns");
+        System.out.println("applyToRoot(root) " + rootNanos + "ns");
+        System.out.println("speedup           " + String.format("%.1fx", (double) startNanos / rootNanos));
+    }
+
+    /**
+     * Returns the best average time in nanos of several rounds, after a warm up round.
+     */
+    private static long time(final Supplier<JsonNode> apply) {
+        final int rounds = 10;
+        final int iterations = 500;
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= rounds; round++) {
+            final long begin = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += apply.get().hashCode();
+            }
+            final long average = (System.nanoTime() - begin) / iterations;
+            if (round > 0) {
+                best = Math.min(best, average);
+            }
+        }
+        return best;
+    }
+
+    private static NodePointer<JsonNode, JsonPropertyName> pointer(final String pointer) {
+        return NodePointer.parse(
+            pointer,
+            JsonPropertyName::with,
+            JsonNode.class
+        );
+    }
+
+    /**
+     * Keeps the results alive so they are not optimized away.
+     */
+    static int sink;
+
+    /**
+     * Stop creation
+     */
+    private NodePatchApplyBenchmark() {
+        throw new UnsupportedOperationException();
+    }
+}
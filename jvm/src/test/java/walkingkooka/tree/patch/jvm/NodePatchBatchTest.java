@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import walkingkooka.reflect.ClassTesting;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.patch.NodePatchResult;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchBatchTest implements ClassTesting<NodePatchBatch> {
+
+    private static ExecutorService EXECUTOR;
+
+    @BeforeAll
+    public static void beforeAll() {
+        EXECUTOR = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        EXECUTOR.shutdown();
+    }
+
+    @Test
+    public void testApplyAllNullPatchFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchBatch.applyAll(
+                null,
+                List.of(),
+                EXECUTOR
+            )
+        );
+    }
+
+    @Test
+    public void testApplyAllNullNodesFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchBatch.applyAll(
+                NodePatch.empty(JsonNode.class),
+                null,
+                EXECUTOR
+            )
+        );
+    }
+
+    @Test
+    public void testApplyAllNullNodeFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchBatch.applyAll(
+                NodePatch.empty(JsonNode.class),
+                Arrays.asList(
+                    JsonNode.object(),
+                    null
+                ),
+                EXECUTOR
+            )
+        );
+    }
+
+    @Test
+    public void testApplyAllNullExecutorFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchBatch.applyAll(
+                NodePatch.empty(JsonNode.class),
+                List.of(),
+                null
+            )
+        );
+    }
+
+    @Test
+    public void testApplyAllEmpty() {
+        this.checkEquals(
+            List.of(),
+            NodePatchBatch.applyAll(
+                NodePatch.empty(JsonNode.class)
+                    .remove(pointer("/a1")),
+                List.of(),
+                EXECUTOR
+            )
+        );
+    }
+
+    @Test
+    public void testApplyAll() {
+        this.applyAllAndCheck(1);
+    }
+
+    @Test
+    public void testApplyAllMany() {
+        this.applyAllAndCheck(1000);
+    }
+
+    private void applyAllAndCheck(final int count) {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .test(pointer("/version"), JsonNode.number(1))
+            .replace(pointer("/version"), JsonNode.number(2))
+            .move(pointer("/old"), pointer("/new"));
+
+        final List<JsonNode> nodes = IntStream.range(0, count)
+            .mapToObj(i -> JsonNode.parse("{\"version\": " + (0 == i % 7 ? 2 : 1) + ", \"old\": " + i + "}"))
+            .collect(Collectors.toList());
+
+        final List<NodePatchResult<JsonNode, JsonPropertyName>> expected = nodes.stream()
+            .map(patch::tryApply)
+            .collect(Collectors.toList());
+
+        this.checkEquals(
+            expected,
+            NodePatchBatch.applyAll(
+                patch,
+                nodes,
+                EXECUTOR
+            )
+        );
+    }
+
+    private static NodePointer<JsonNode, JsonPropertyName> pointer(final String pointer) {
+        return NodePointer.parse(
+            pointer,
+            JsonPropertyName::with,
+            JsonNode.class
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchBatch> type() {
+        return NodePatchBatch.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
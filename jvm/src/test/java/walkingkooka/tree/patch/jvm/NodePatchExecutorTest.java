@@ -0,0 +1,430 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.reflect.ClassTesting;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.patch.NodePatchResult;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchExecutorTest implements ClassTesting<NodePatchExecutor> {
+
+    private final static NodePatch<JsonNode, JsonPropertyName> PATCH = NodePatch.empty(JsonNode.class)
+        .test(pointer("/version"), JsonNode.number(1))
+        .replace(pointer("/version"), JsonNode.number(2));
+
+    @Test
+    public void testWithZeroMaxInFlightFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> NodePatchExecutor.with(0)
+        );
+    }
+
+    @Test
+    public void testWithNullThreadFactoryFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchExecutor.with(1, null)
+        );
+    }
+
+    @Test
+    public void testThreadFactory() throws Exception {
+        final ThreadFactory factory = NodePatchExecutor.threadFactory();
+        final String[] ran = new String[1];
+
+        final Thread thread = factory.newThread(() -> ran[0] = "ran");
+        thread.start();
+        thread.join();
+
+        this.checkEquals(
+            "ran",
+            ran[0]
+        );
+    }
+
+    @Test
+    public void testSubmitNullDocumentFails() {
+        try (final NodePatchExecutor executor = NodePatchExecutor.with(1)) {
+            assertThrows(
+                NullPointerException.class,
+                () -> executor.submit(null, PATCH, (r) -> {
+                })
+            );
+        }
+    }
+
+    @Test
+    public void testSubmitNullPatchFails() {
+        try (final NodePatchExecutor executor = NodePatchExecutor.with(1)) {
+            assertThrows(
+                NullPointerException.class,
+                () -> executor.submit(JsonNode::object, null, (r) -> {
+                })
+            );
+        }
+    }
+
+    @Test
+    public void testSubmitNullSinkFails() {
+        try (final NodePatchExecutor executor = NodePatchExecutor.with(1)) {
+            assertThrows(
+                NullPointerException.class,
+                () -> executor.submit(JsonNode::object, PATCH, null)
+            );
+        }
+    }
+
+    @Test
+    public void testSubmitAfterCloseFails() {
+        final NodePatchExecutor executor = NodePatchExecutor.with(1);
+        executor.close();
+
+        assertThrows(
+            IllegalStateException.class,
+            () -> executor.submit(JsonNode::object, PATCH, (r) -> {
+            })
+        );
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        this.submitAndCheck(NodePatchExecutor.with(4));
+    }
+
+    @Test
+    public void testSubmitPlatformThreads() throws Exception {
+        this.submitAndCheck(
+            NodePatchExecutor.with(
+                4,
+                NodePatchExecutor.PLATFORM
+            )
+        );
+    }
+
+    private void submitAndCheck(final NodePatchExecutor executor) throws Exception {
+        final List<JsonNode> documents = IntStream.range(0, 100)
+            .mapToObj(i -> JsonNode.parse("{\"version\": " + (0 == i % 5 ? 2 : 1) + ", \"i\": " + i + "}"))
+            .collect(Collectors.toList());
+        final List<NodePatchResult<JsonNode, JsonPropertyName>> sunk = new CopyOnWriteArrayList<>();
+
+        final List<CompletableFuture<NodePatchResult<JsonNode, JsonPropertyName>>> futures;
+        try (executor) {
+            futures = documents.stream()
+                .map(d -> executor.submit(() -> d, PATCH, sunk::add))
+                .collect(Collectors.toList());
+        }
+
+        for (int i = 0; i < documents.size(); i++) {
+            this.checkEquals(
+                PATCH.tryApply(documents.get(i)),
+                futures.get(i).get(),
+                "result " + i
+            );
+        }
+
+        this.checkEquals(documents.size(), sunk.size(), "sunk");
+        this.checkEquals((long) documents.size(), executor.completedCount(), "completedCount");
+        this.checkEquals(0, executor.queueDepth(), "queueDepth");
+        this.checkEquals(0, executor.inFlight(), "inFlight");
+        this.checkEquals(
+            true,
+            executor.maxLatency().compareTo(executor.averageLatency()) >= 0,
+            () -> "maxLatency " + executor.maxLatency() + " >= averageLatency " + executor.averageLatency()
+        );
+    }
+
+    @Test
+    public void testQueueDepthAndInFlight() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final NodePatchExecutor executor = NodePatchExecutor.with(1);
+
+        this.checkEquals(Duration.ZERO, executor.averageLatency(), "averageLatency");
+
+        final CompletableFuture<?> first = executor.submit(
+            () -> {
+                await(latch);
+                return JsonNode.parse("{\"version\": 1}");
+            },
+            PATCH,
+            (r) -> {
+            }
+        );
+        final CompletableFuture<?> second = executor.submit(
+            () -> JsonNode.parse("{\"version\": 1}"),
+            PATCH,
+            (r) -> {
+            }
+        );
+
+        waitUntil(() -> 1 == executor.inFlight() && 1 == executor.queueDepth());
+        this.checkEquals(false, first.isDone(), "first done");
+        this.checkEquals(false, second.isDone(), "second done");
+
+        latch.countDown();
+        executor.close();
+
+        this.checkEquals(true, first.isDone(), "first done");
+        this.checkEquals(true, second.isDone(), "second done");
+        this.checkEquals(0, executor.queueDepth(), "queueDepth");
+        this.checkEquals(0, executor.inFlight(), "inFlight");
+        this.checkEquals(2L, executor.completedCount(), "completedCount");
+        this.checkEquals(
+            true,
+            executor.averageLatency().compareTo(Duration.ZERO) > 0,
+            () -> "averageLatency " + executor.averageLatency()
+        );
+    }
+
+    @Test
+    public void testInFlightIdle() throws Exception {
+        final NodePatchExecutor executor = NodePatchExecutor.with(4);
+
+        // give the dispatcher time to block waiting for a job
+        Thread.sleep(50);
+        this.checkEquals(0, executor.inFlight(), "inFlight");
+
+        executor.close();
+    }
+
+    @Test
+    public void testInFlightRunning() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final NodePatchExecutor executor = NodePatchExecutor.with(4);
+
+        final int count = 3;
+        final List<CompletableFuture<?>> futures = IntStream.range(0, count)
+            .mapToObj(
+                (i) -> executor.submit(
+                    () -> {
+                        await(latch);
+                        return JsonNode.parse("{\"version\": 1}");
+                    },
+                    PATCH,
+                    (r) -> {
+                    }
+                )
+            ).collect(Collectors.toList());
+
+        waitUntil(() -> 0 == executor.queueDepth() && count == executor.inFlight());
+
+        // the dispatcher is now waiting for another job and must not be counted
+        Thread.sleep(50);
+        this.checkEquals(count, executor.inFlight(), "inFlight");
+
+        latch.countDown();
+        executor.close();
+
+        this.checkEquals(0, executor.inFlight(), "inFlight");
+        for (final CompletableFuture<?> future : futures) {
+            this.checkEquals(true, future.isDone(), "done");
+        }
+    }
+
+    @Test
+    public void testDocumentSupplierFails() {
+        final List<NodePatchResult<JsonNode, JsonPropertyName>> sunk = new CopyOnWriteArrayList<>();
+        final IllegalStateException thrown = new IllegalStateException("Storage read failed");
+
+        final CompletableFuture<NodePatchResult<JsonNode, JsonPropertyName>> future;
+        try (final NodePatchExecutor executor = NodePatchExecutor.with(1)) {
+            future = executor.submit(
+                () -> {
+                    throw thrown;
+                },
+                PATCH,
+                sunk::add
+            );
+        }
+
+        this.checkEquals(
+            thrown,
+            assertThrows(
+                ExecutionException.class,
+                future::get
+            ).getCause()
+        );
+        this.checkEquals(List.of(), sunk, "sunk");
+    }
+
+    @Test
+    public void testThreadFactoryReturnsNull() throws Exception {
+        this.threadFactoryFailsAndCheck(
+            (r) -> null
+        );
+    }
+
+    @Test
+    public void testThreadFactoryThrows() throws Exception {
+        this.threadFactoryFailsAndCheck(
+            (r) -> {
+                throw new IllegalStateException("Thread factory failed");
+            }
+        );
+    }
+
+    private void threadFactoryFailsAndCheck(final ThreadFactory jobs) throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final NodePatchExecutor executor = NodePatchExecutor.with(
+            1,
+            (r) -> 0 == created.getAndIncrement() ?
+                NodePatchExecutor.PLATFORM.newThread(r) :
+                jobs.newThread(r)
+        );
+
+        final CompletableFuture<?> future = executor.submit(
+            () -> JsonNode.parse("{\"version\": 1}"),
+            PATCH,
+            (r) -> {
+            }
+        );
+
+        this.checkEquals(
+            IllegalStateException.class,
+            assertThrows(
+                ExecutionException.class,
+                future::get
+            ).getCause()
+                .getClass()
+        );
+
+        executor.close();
+
+        this.checkEquals(1L, executor.completedCount(), "completedCount");
+        this.checkEquals(0, executor.inFlight(), "inFlight");
+    }
+
+    @Test
+    public void testDispatcherInterruptedFailsQueued() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        final NodePatchExecutor executor = NodePatchExecutor.with(
+            1,
+            (r) -> {
+                final Thread thread = NodePatchExecutor.PLATFORM.newThread(r);
+                threads.add(thread);
+                return thread;
+            }
+        );
+
+        final CompletableFuture<?> first = executor.submit(
+            () -> {
+                await(latch);
+                return JsonNode.parse("{\"version\": 1}");
+            },
+            PATCH,
+            (r) -> {
+            }
+        );
+        final CompletableFuture<?> second = executor.submit(
+            () -> JsonNode.parse("{\"version\": 1}"),
+            PATCH,
+            (r) -> {
+            }
+        );
+
+        waitUntil(() -> 1 == executor.inFlight() && 1 == executor.queueDepth());
+
+        threads.get(0)
+            .interrupt();
+
+        this.checkEquals(
+            IllegalStateException.class,
+            assertThrows(
+                ExecutionException.class,
+                second::get
+            ).getCause()
+                .getClass()
+        );
+        this.checkEquals(0, executor.queueDepth(), "queueDepth");
+
+        assertThrows(
+            IllegalStateException.class,
+            () -> executor.submit(
+                () -> JsonNode.parse("{\"version\": 1}"),
+                PATCH,
+                (r) -> {
+                }
+            )
+        );
+
+        latch.countDown();
+        executor.close();
+
+        this.checkEquals(true, first.isDone(), "first done");
+        this.checkEquals(false, first.isCompletedExceptionally(), "first failed");
+        this.checkEquals(0, executor.inFlight(), "inFlight");
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException cause) {
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void waitUntil(final BooleanSupplier condition) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > timeout) {
+                throw new AssertionError("Timed out");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static NodePointer<JsonNode, JsonPropertyName> pointer(final String pointer) {
+        return NodePointer.parse(
+            pointer,
+            JsonPropertyName::with,
+            JsonNode.class
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchExecutor> type() {
+        return NodePatchExecutor.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
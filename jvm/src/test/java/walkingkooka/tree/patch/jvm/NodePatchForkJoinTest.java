@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import walkingkooka.reflect.ClassTesting;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.patch.ApplyNodePatchException;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchForkJoinTest implements ClassTesting<NodePatchForkJoin> {
+
+    private static ForkJoinPool POOL;
+
+    @BeforeAll
+    public static void beforeAll() {
+        POOL = new ForkJoinPool(2);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testApplyPartitionedNullPatchFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchForkJoin.applyPartitioned(
+                null,
+                JsonNode.object(),
+                POOL
+            )
+        );
+    }
+
+    @Test
+    public void testApplyPartitionedNullPoolFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatchForkJoin.applyPartitioned(
+                NodePatch.empty(JsonNode.class),
+                JsonNode.object(),
+                null
+            )
+        );
+    }
+
+    @Test
+    public void testApplyPartitioned() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(pointer("/a1/b1"), JsonNode.string("value1"))
+                .remove(pointer("/a1/b2"))
+                .replace(pointer("/c3/0"), JsonNode.string("value3")),
+            "{\"a1\": {\"b2\": true}, \"c3\": [1, 2], \"z\": false}",
+            "{\"a1\": {\"b1\": \"value1\"}, \"c3\": [\"value3\", 2], \"z\": false}"
+        );
+    }
+
+    @Test
+    public void testApplyPartitionedNotPartitioned() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(pointer("/a1/b1"), JsonNode.string("value1"))
+                .move(pointer("/a1/b1"), pointer("/c3")),
+            "{\"a1\": {}}",
+            "{\"a1\": {}, \"c3\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testApplyPartitionedFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(pointer("/a1/b1"), JsonNode.string("value1"))
+            .test(pointer("/c3/b1"), JsonNode.string("value2"));
+        final JsonNode node = JsonNode.parse("{\"a1\": {}, \"c3\": {\"b1\": \"different\"}}");
+
+        this.checkEquals(
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.apply(node)
+            ).getMessage(),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> NodePatchForkJoin.applyPartitioned(patch, node, POOL)
+            ).getMessage(),
+            "message"
+        );
+    }
+
+    private void applyPartitionedAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                          final String before,
+                                          final String expected) {
+        this.checkEquals(
+            JsonNode.parse(expected),
+            NodePatchForkJoin.applyPartitioned(
+                patch,
+                JsonNode.parse(before),
+                POOL
+            ),
+            () -> "applyPartitioned " + patch + " to " + before
+        );
+    }
+
+    private static NodePointer<JsonNode, JsonPropertyName> pointer(final String pointer) {
+        return NodePointer.parse(
+            pointer,
+            JsonPropertyName::with,
+            JsonNode.class
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchForkJoin> type() {
+        return NodePatchForkJoin.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch.jvm;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.ClassTesting;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.patch.ApplyNodePatchException;
+import walkingkooka.tree.patch.NodePatch;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchStoreTest implements ClassTesting<NodePatchStore<String, JsonNode, JsonPropertyName>> {
+
+    private final static String KEY = "document-1";
+
+    @Test
+    public void testGetNullKeyFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.store().get(null)
+        );
+    }
+
+    @Test
+    public void testGetAbsent() {
+        this.getAndCheck(
+            this.store(),
+            KEY,
+            null
+        );
+    }
+
+    @Test
+    public void testPutNullKeyFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.store().put(null, JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testPutNullRootFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.store().put(KEY, null)
+        );
+    }
+
+    @Test
+    public void testPutGet() {
+        final NodePatchStore<String, JsonNode, JsonPropertyName> store = this.store();
+        final JsonNode root = JsonNode.parse("{\"version\": 1}");
+        store.put(KEY, root);
+
+        this.getAndCheck(
+            store,
+            KEY,
+            root
+        );
+    }
+
+    @Test
+    public void testApplyNullKeyFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.store().apply(null, NodePatch.empty(JsonNode.class))
+        );
+    }
+
+    @Test
+    public void testApplyNullPatchFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.store().apply(KEY, null)
+        );
+    }
+
+    @Test
+    public void testApplyUnknownKeyFails() {
+        final IllegalArgumentException thrown = assertThrows(
+            IllegalArgumentException.class,
+            () -> this.store().apply(KEY, NodePatch.empty(JsonNode.class))
+        );
+        this.checkEquals(
+            "Unknown key document-1",
+            thrown.getMessage()
+        );
+    }
+
+    @Test
+    public void testApply() {
+        final NodePatchStore<String, JsonNode, JsonPropertyName> store = this.store();
+        store.put(KEY, JsonNode.parse("{\"version\": 1}"));
+
+        final JsonNode expected = JsonNode.parse("{\"version\": 2}");
+        this.checkEquals(
+            expected,
+            store.apply(
+                KEY,
+                NodePatch.empty(JsonNode.class)
+                    .test(pointer("/version"), JsonNode.number(1))
+                    .replace(pointer("/version"), JsonNode.number(2))
+            )
+        );
+        this.getAndCheck(
+            store,
+            KEY,
+            expected
+        );
+        this.checkEquals(
+            0L,
+            store.retryCount(),
+            "retryCount"
+        );
+    }
+
+    @Test
+    public void testApplyTestFailsRootUnchanged() {
+        final NodePatchStore<String, JsonNode, JsonPropertyName> store = NodePatchStore.with(false);
+        final JsonNode root = JsonNode.parse("{\"version\": 1}");
+        store.put(KEY, root);
+
+        assertThrows(
+            ApplyNodePatchException.class,
+            () -> store.apply(
+                KEY,
+                NodePatch.empty(JsonNode.class)
+                    .test(pointer("/version"), JsonNode.number(2))
+                    .replace(pointer("/version"), JsonNode.number(3))
+            )
+        );
+        this.getAndCheck(
+            store,
+            KEY,
+            root
+        );
+    }
+
+    @Test
+    public void testApplyConcurrent() throws Exception {
+        final NodePatchStore<String, JsonNode, JsonPropertyName> store = this.store();
+        store.put(KEY, JsonNode.parse("{\"items\": []}"));
+
+        final int threadCount = 4;
+        final int count = 250;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; t++) {
+            final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+                .add(pointer("/items/-"), JsonNode.number(t));
+
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException cause) {
+                    throw new RuntimeException(cause);
+                }
+                for (int i = 0; i < count; i++) {
+                    store.apply(KEY, patch);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        this.checkEquals(
+            threadCount * count,
+            store.get(KEY)
+                .get()
+                .objectOrFail()
+                .getOrFail(JsonPropertyName.with("items"))
+                .children()
+                .size()
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchStore<String, JsonNode, JsonPropertyName> store = this.store();
+        store.put(KEY, JsonNode.object());
+
+        this.checkEquals(
+            "size=1 retries=0",
+            store.toString()
+        );
+    }
+
+    private NodePatchStore<String, JsonNode, JsonPropertyName> store() {
+        return NodePatchStore.with(true);
+    }
+
+    private void getAndCheck(final NodePatchStore<String, JsonNode, JsonPropertyName> store,
+                             final String key,
+                             final JsonNode expected) {
+        this.checkEquals(
+            Optional.ofNullable(expected),
+            store.get(key),
+            () -> "get " + key
+        );
+    }
+
+    private static NodePointer<JsonNode, JsonPropertyName> pointer(final String pointer) {
+        return NodePointer.parse(
+            pointer,
+            JsonPropertyName::with,
+            JsonNode.class
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchStore<String, JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchStore.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -18,6 +18,7 @@
 package walkingkooka.tree.patch;
 
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Exception thrown when a patch apply operation fails. A message and optional cause and the actual patch component that failed will be included.
@@ -28,6 +29,7 @@ public class ApplyNodePatchException extends NodePatchException {
                                    final NodePatch<?, ?> patch) {
         super(message);
         this.patch = checkPatch(patch);
+        this.messageSupplier = null;
     }
 
     public ApplyNodePatchException(final String message,
@@ -35,6 +37,25 @@ public class ApplyNodePatchException extends NodePatchException {
                                    final Throwable cause) {
         super(message, cause);
         this.patch = checkPatch(patch);
+        this.messageSupplier = null;
+    }
+
+    /**
+     * Creates an exception whose message is only built when first requested, so failures that are caught and
+     * discarded never render the nodes or patch involved.
+     */
+    ApplyNodePatchException(final Supplier<String> message,
+                            final NodePatch<?, ?> patch) {
+        super();
+        this.patch = checkPatch(patch);
+        this.messageSupplier = Objects.requireNonNull(message, "message");
+    }
+
+    ApplyNodePatchException(final Supplier<String> message,
+                            final NodePatch<?, ?> patch,
+                            final Throwable cause) {
+        this(message, patch);
+        this.initCause(cause);
     }
 
     private static NodePatch<?, ?> checkPatch(final NodePatch<?, ?> patch) {
@@ -46,4 +67,40 @@ public class ApplyNodePatchException extends NodePatchException {
     }
 
     private final NodePatch<?, ?> patch;
+
+    @Override
+    public String getMessage() {
+        String message = this.message;
+
+        if (null == message) {
+            final Supplier<String> messageSupplier = this.messageSupplier;
+            if (null == messageSupplier) {
+                message = super.getMessage();
+            } else {
+                // the supplier returns the same message every time, so threads racing here agree
+                message = messageSupplier.get();
+                this.message = message;
+            }
+        }
+
+        return message;
+    }
+
+    /**
+     * Builds the message when first requested, null when the message was given.
+     */
+    private final transient Supplier<String> messageSupplier;
+
+    /**
+     * The message built by {@link #messageSupplier}, volatile so other threads never see a partially cached message.
+     */
+    private volatile String message;
+
+    /**
+     * Builds any lazy message before serialization, as the {@link Supplier} is not serialized.
+     */
+    private Object writeReplace() {
+        this.getMessage();
+        return this;
+    }
 }
@@ -36,11 +36,15 @@ import walkingkooka.tree.json.marshall.JsonNodeUnmarshallContext;
 import walkingkooka.tree.json.marshall.JsonNodeUnmarshallContexts;
 import walkingkooka.tree.json.marshall.JsonNodeUnmarshallException;
 import walkingkooka.tree.pointer.NodePointer;
-import walkingkooka.tree.pointer.NodePointerException;
 
 import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A {@link NodePatch} supports operations for a {@link Node} that match the functionality of json-patch with json.<br>
@@ -55,6 +59,91 @@ public abstract class NodePatch<N extends Node<N, NAME, ?, ?>, NAME extends Name
         return NodePatchEmpty.get(type);
     }
 
+    /**
+     * Returns a mutable {@link NodePatchBuilder} which may be used to efficiently build a patch with many operations.
+     */
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchBuilder<N, NAME> builder(final Class<N> type) {
+        return NodePatchBuilder.with(type);
+    }
+
+    /**
+     * Returns a single patch that applies all the given patches in order. The operations of the given patches are
+     * not copied until the returned patch is first used, making this O(number of patches).
+     */
+    @SafeVarargs
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> concat(final NodePatch<N, NAME>... patches) {
+        Objects.requireNonNull(patches, "patches");
+
+        final NodePatch<N, NAME>[] parts = patches.clone();
+        int partCount = 0;
+        int size = 0;
+
+        for (final NodePatch<N, NAME> patch : parts) {
+            Objects.requireNonNull(patch, "patch");
+
+            final int patchSize = patch.size();
+            if (patchSize > 0) {
+                parts[partCount] = patch;
+                partCount++;
+                size += patchSize;
+            }
+        }
+
+        final NodePatch<N, NAME> concat;
+        switch (partCount) {
+            case 0:
+                concat = Cast.to(NodePatchEmpty.getWildcard());
+                break;
+            case 1:
+                concat = parts[0];
+                break;
+            default:
+                concat = NodePatchSequence.concat(
+                    Arrays.copyOf(parts, partCount),
+                    size
+                );
+                break;
+        }
+
+        return concat;
+    }
+
+    /**
+     * Returns a single patch equivalent to applying the first and then the second patch, with redundant operations
+     * coalesced like {@link #optimize()}, and operations that only write below a path that is later replaced or removed
+     * dropped. Test operations are never dropped and test the same values, but a composed patch may succeed where a
+     * dropped operation would have failed.
+     */
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> compose(final NodePatch<N, NAME> first,
+                                                                                                final NodePatch<N, NAME> second) {
+        Objects.requireNonNull(first, "first");
+        Objects.requireNonNull(second, "second");
+
+        return NodePatchOptimizer.compose(first, second);
+    }
+
+    /**
+     * Computes a patch built from the existing operations that transforms before into after, so that applying it to
+     * before returns a node equal to after, using the default options of {@link #differ(Class)}. Children with unique
+     * names are matched by name and others by index. Nodes that cannot be transformed by changing their children are
+     * replaced, which fails for before itself, as the node a patch is applied to cannot be replaced. A sub tree that is
+     * removed and added elsewhere becomes a move, and one added where the same sub tree is already present a copy.
+     */
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> diff(final N before,
+                                                                                             final N after) {
+        Objects.requireNonNull(before, "before");
+
+        return NodePatchDiffer.<N, NAME>with(Cast.to(before.getClass()))
+            .diff(before, after);
+    }
+
+    /**
+     * Returns a {@link NodePatchDiffer} with the default options, which may be changed before computing a diff.
+     */
+    public static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffer<N, NAME> differ(final Class<N> type) {
+        return NodePatchDiffer.with(type);
+    }
+
     /**
      * Package private to limit sub classing.
      */
@@ -114,54 +203,284 @@ public abstract class NodePatch<N extends Node<N, NAME, ?, ?>, NAME extends Name
     /**
      * Used to append a new patch operation to a previous creating a collection of patch ops.
      */
-    final NodePatchNonEmpty<N, NAME> append(final NodePatchNonEmpty<N, NAME> patch) {
-        final NodePatchNonEmpty<N, NAME> next = this.nextOrNull();
-        return this.append0(null != next ? next.append(patch) : patch);
+    abstract NodePatch<N, NAME> append(final NodePatchNonEmpty<N, NAME> operation);
+
+    // operations......................................................................................................
+
+    /**
+     * Returns the number of operations in this patch.
+     */
+    public abstract int size();
+
+    /**
+     * Returns a patch holding just the operation at the given index.
+     */
+    public final NodePatch<N, NAME> get(final int index) {
+        final int size = this.size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + " not between 0 and " + size);
+        }
+        return this.operation(index);
+    }
+
+    /**
+     * Returns the operation at the given index, which has already been validated.
+     */
+    abstract NodePatchNonEmpty<N, NAME> operation(final int index);
+
+    /**
+     * Returns a patch with the operations between from (inclusive) and to (exclusive), sharing the operations of this
+     * patch rather than copying them.
+     */
+    public final NodePatch<N, NAME> subPatch(final int from,
+                                             final int to) {
+        final int size = this.size();
+        if (from < 0 || to > size) {
+            throw new IndexOutOfBoundsException("Invalid range " + from + ".." + to + " not between 0 and " + size);
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("Invalid from " + from + " > to " + to);
+        }
+        return this.subPatch0(from, to);
     }
 
     /**
-     * Used to concatenate multiple patch components.
+     * Sub classes must return the operations between from and to, which have already been validated.
      */
-    abstract NodePatchNonEmpty<N, NAME> append0(final NodePatchNonEmpty<N, NAME> patch);
+    abstract NodePatch<N, NAME> subPatch0(final int from,
+                                          final int to);
+
+    /**
+     * Copies the operations of this patch into the array starting at index, returning the index after the last copied.
+     */
+    abstract int copyOperations(final NodePatchNonEmpty<N, NAME>[] target,
+                                final int index);
 
     // Function................................................................................................
 
     /**
-     * Executes this patch accepting the {@link Node} as the base of all pointer paths and operations.
+     * Executes this patch accepting the {@link Node} as the base of all pointer paths and operations. If the
+     * {@link Node} is a root the faster {@link #applyToRoot(Node)} is used.
      */
     @Override
     public final N apply(final N node) {
         Objects.requireNonNull(node, "node");
 
-        final NodePointer<N, NAME> start = node.pointer();
-        NodePatch<N, NAME> currentPatch = this;
-        N currentNode = node;
+        return this.apply0(
+            node,
+            node.isRoot() ?
+                null :
+                node.pointer()
+        );
+    }
+
+    /**
+     * Executes this patch against a root {@link Node}. Because the start is the root, the start {@link NodePointer}
+     * is never computed and each operation returns the root of the new tree without navigating from it.
+     */
+    public final N applyToRoot(final N root) {
+        checkRoot(root);
+
+        return this.apply0(root, null);
+    }
+
+    private static void checkRoot(final Node<?, ?, ?, ?> root) {
+        Objects.requireNonNull(root, "root");
+        if (!root.isRoot()) {
+            throw new IllegalArgumentException("Node is not a root");
+        }
+    }
+
+    /**
+     * Checks whether every operation of this patch would succeed when applied to the given node, without building the
+     * patched tree unless a later operation depends on an earlier one, returning the first failure if any.
+     */
+    public final Optional<NodePatchFailure<N, NAME>> validate(final N node) {
+        Objects.requireNonNull(node, "node");
+
+        return NodePatchValidator.validate(
+            this,
+            node,
+            node.isRoot() ? null : node.pointer()
+        );
+    }
+
+    /**
+     * Executes this patch like {@link #apply(Node)}, but returns a {@link NodePatchResult} instead of throwing. Each
+     * operation is checked by traversal before it is applied, so expected failures such as a failed test do not create
+     * any exception.
+     */
+    public final NodePatchResult<N, NAME> tryApply(final N node) {
+        Objects.requireNonNull(node, "node");
+
+        return NodePatchValidator.tryApply(
+            this,
+            node,
+            node.isRoot() ? null : node.pointer()
+        );
+    }
+
+    /**
+     * Executes this patch against each node like {@link #tryApply(Node)}, returning a {@link NodePatchResult} for each
+     * so a failing node does not abort the others. The operations are prepared once and shared by all nodes, which makes
+     * this cheaper than calling {@link #tryApply(Node)} for each node. The nodes are patched lazily as the returned
+     * {@link Stream} is consumed, in parallel if the given {@link Stream} is parallel.
+     */
+    public final Stream<NodePatchResult<N, NAME>> applyAll(final Stream<N> nodes) {
+        Objects.requireNonNull(nodes, "nodes");
+
+        return NodePatchValidator.applyAll(
+            this,
+            nodes
+        );
+    }
+
+    /**
+     * Executes this patch like {@link #applyToRoot(Node)}, partitioning its operations into groups by the top level
+     * child of the root they touch. The runner receives a {@link Supplier} for each group, which applies the group to
+     * that child and returns the new child, and must return the results in the same order. Groups touch disjoint
+     * sub trees, so the runner may execute them concurrently, for example on a ForkJoinPool. The root is then rebuilt
+     * once with all new children. Patches that cannot be partitioned, or where any group fails, are applied
+     * sequentially, so results and failures are identical to {@link #applyToRoot(Node)}.
+     */
+    public final N applyPartitioned(final N root,
+                                    final Function<List<Supplier<N>>, List<N>> runner) {
+        checkRoot(root);
+        Objects.requireNonNull(runner, "runner");
+
+        return NodePatchPartitioned.apply(
+            this,
+            root,
+            runner
+        );
+    }
+
+    /**
+     * Executes this patch like {@link #apply(Node)}, but test operations that cannot be affected by earlier operations
+     * are evaluated against the given node first, so a failing guard fails before any mutation work is done.
+     */
+    public final N applyFailFast(final N node) {
+        Objects.requireNonNull(node, "node");
+
+        return NodePatchApplyFailFast.apply(
+            this,
+            node,
+            node.isRoot() ? null : node.pointer()
+        );
+    }
 
-        do {
-            currentNode = currentPatch.apply0(currentNode, start);
-            currentPatch = currentPatch.nextOrNull();
-        } while (null != currentPatch);
+    /**
+     * Executes this patch like {@link #apply(Node)}, but when applied to a root, consecutive operations below a shared
+     * path are applied to that sub tree together, so the ancestors above it are rebuilt once per group rather than
+     * once per operation. Results and failures are identical to {@link #apply(Node)}.
+     */
+    public final N applyGrouped(final N node) {
+        Objects.requireNonNull(node, "node");
 
-        return currentNode;
+        return node.isRoot() ?
+            NodePatchApplyGrouped.apply(this, node) :
+            this.apply0(node, node.pointer());
     }
 
     /**
-     * Performs the actual operation.
+     * Executes this patch like {@link #apply(Node)}, also returning an inverse patch that undoes it, built from the nodes
+     * each remove, replace and move displaces and the previous value of each add to an existing name. Applying the
+     * inverse to the patched node returns a node equal to the given node, so undo does not need a copy of the original
+     * or a diff.
+     */
+    public final NodePatchInverseResult<N, NAME> applyWithInverse(final N node) {
+        Objects.requireNonNull(node, "node");
+
+        return NodePatchApplyWithInverse.apply(
+            this,
+            node,
+            node.isRoot() ? null : node.pointer()
+        );
+    }
+
+    /**
+     * Performs the actual operation. A null start {@link NodePointer} indicates the patch is being applied to a root
+     * {@link Node}.
      */
     abstract N apply0(final N node, final NodePointer<N, NAME> start);
 
     /**
-     * Helper which locates the original start {@link Node} or fails.
+     * Returns an equivalent patch with redundant operations coalesced or removed, such as repeated replaces of the same
+     * path, or this patch if none were found. The number of operations removed is the difference between the size of
+     * this patch and the size of the returned patch.
      */
-    final N traverseStartOrFail(final N node, final NodePointer<N, NAME> start) {
-        return start.traverse(node.root())
-            .orElseThrow(() -> new NodePointerException("Unable to navigate to starting node: " + node));
+    public final NodePatch<N, NAME> optimize() {
+        return NodePatchOptimizer.optimize(this);
     }
 
     /**
-     * Returns the next component in the patch or null if the end has been reached.
+     * Transforms this patch, written against the same node as the concurrent patch, so it may be applied after the
+     * concurrent patch, shifting array indices past elements it inserted or removed and following nodes it moved. When
+     * both write the same path this patch wins. A {@link RebaseNodePatchException} is thrown when an operation changes
+     * a node the concurrent patch removed or changes below a node it replaced, or tests a value it changed.
      */
-    abstract NodePatchNonEmpty<N, NAME> nextOrNull();
+    public final NodePatch<N, NAME> rebase(final NodePatch<N, NAME> concurrent) {
+        Objects.requireNonNull(concurrent, "concurrent");
+
+        return NodePatchRebase.rebase(this, concurrent);
+    }
+
+    /**
+     * Returns true if this patch and the other patch may be applied in either order with the same result, decided using
+     * only the paths and froms of their operations. Neither may write a path the other reads or writes, including paths
+     * below it, or insert or remove elements of an array the other touches. The answer is conservative, patches with
+     * non absolute paths never commute.
+     */
+    public final boolean commutesWith(final NodePatch<N, NAME> other) {
+        Objects.requireNonNull(other, "other");
+
+        return NodePatchCommutes.commutes(this, other);
+    }
+
+    /**
+     * Returns a patch with the same operations except for tests, or this patch if it has none. Applying it no longer
+     * guards against the tested values having changed.
+     */
+    public final NodePatch<N, NAME> removeTests() {
+        final int size = this.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        this.copyOperations(operations, 0);
+
+        final NodePatchBuilder<N, NAME> builder = Cast.to(NodePatchBuilder.wildcard());
+        builder.ensureCapacity(size);
+
+        for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+            if (NodePatchPlan.TEST != operation.opcode()) {
+                builder.append(operation);
+            }
+        }
+
+        return builder.size() == size ?
+            this :
+            builder.build();
+    }
+
+    /**
+     * Compiles this patch into a reusable {@link NodePatchPlan}, which copies the operations and resolves their paths
+     * into steps once rather than on every apply.
+     */
+    public final NodePatchPlan<N, NAME> compile() {
+        return NodePatchPlan.with(this);
+    }
+
+    /**
+     * Helper which locates the original start {@link Node} or fails. When applying to a root, the root of the new tree
+     * is the start and no navigation is necessary.
+     */
+    final N traverseStartOrFail(final N node, final NodePointer<N, NAME> start) {
+        return null == start ?
+            node.root() :
+            start.traverse(node.root())
+                .orElseThrow(() -> new ApplyNodePatchException(
+                    () -> "Patch failed: Unable to navigate to starting node: " + NodePatchMessages.node(node),
+                    this
+                ));
+    }
 
     // Object................................................................................................
 
@@ -258,13 +577,14 @@ public abstract class NodePatch<N extends Node<N, NAME, ?, ?>, NAME extends Name
     private static NodePatch<?, ?> unmarshall1(final JsonArray array,
                                                final NodePatchFromJsonFormat format,
                                                final JsonNodeUnmarshallContext context) {
-        NodePatch<?, ?> patch = NodePatchEmpty.getWildcard();
+        final NodePatchBuilder<?, ?> builder = NodePatchBuilder.wildcard()
+            .ensureCapacity(array.children().size());
 
         for (JsonNode child : array.children()) {
-            patch = patch.append(Cast.to(unmarshall2(child.objectOrFail(), format, context)));
+            builder.append(Cast.to(unmarshall2(child.objectOrFail(), format, context)));
         }
 
-        return patch;
+        return builder.build();
     }
 
     final static String ADD = "add";
@@ -337,7 +657,8 @@ public abstract class NodePatch<N extends Node<N, NAME, ?, ?>, NAME extends Name
             NodePatchNotEmptyCopyOrMoveMove.class,
             NodePatchNotEmptyRemove.class,
             NodePatchNotEmptyAddReplaceOrTestReplace.class,
-            NodePatchNotEmptyAddReplaceOrTestTest.class);
+            NodePatchNotEmptyAddReplaceOrTestTest.class,
+            NodePatchSequence.class);
     }
 
     private JsonArray marshall(final JsonNodeMarshallContext context) {
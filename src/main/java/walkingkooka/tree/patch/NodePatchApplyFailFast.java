@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies a patch, first running any test operations whose paths cannot be changed by the operations before them
+ * against the original node, so a failing guard fails before any node is rebuilt. The remaining operations are then
+ * applied in order, skipping the tests that already passed. When both a hoisted test and an earlier operation would
+ * fail, the failure of the test is reported.
+ */
+final class NodePatchApplyFailFast {
+
+    /**
+     * Applies the patch to the given node.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N apply(final NodePatch<N, NAME> patch,
+                                                                     final N node,
+                                                                     final NodePointer<N, NAME> start) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        final boolean[] hoisted = hoisted(operations);
+
+        for (int i = 0; i < size; i++) {
+            if (hoisted[i]) {
+                operations[i].apply0(node, start);
+            }
+        }
+
+        N current = node;
+        for (int i = 0; i < size; i++) {
+            if (!hoisted[i]) {
+                current = operations[i].apply0(current, start);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns a flag for each operation that is true for tests that none of the operations before them change. A single
+     * forward pass records each written path against its prefixes, so each test only looks up its own prefixes.
+     */
+    static boolean[] hoisted(final NodePatchNonEmpty<?, ?>[] operations) {
+        final int size = operations.length;
+        final boolean[] hoisted = new boolean[size];
+
+        final Map<NodePatchPath, Integer> written = new HashMap<>();
+        boolean unknown = false;
+
+        for (int i = 0; i < size; i++) {
+            final NodePatchNonEmpty<?, ?> operation = operations[i];
+            final int opcode = operation.opcode();
+
+            if (NodePatchPlan.TEST == opcode) {
+                final NodePatchPath path = operation.patchPath();
+
+                hoisted[i] = path.isAbsolute() ?
+                    !unknown && !changed(path, written) :
+                    !unknown && written.isEmpty();
+            } else {
+                unknown |= !record(operation.patchPath(), written);
+
+                if (NodePatchPlan.MOVE == opcode) {
+                    unknown |= !record(operation.patchFrom(), written);
+                }
+            }
+        }
+
+        return hoisted;
+    }
+
+    /**
+     * Records the written path against each of its prefixes, returning false if it is not absolute.
+     */
+    private static boolean record(final NodePatchPath path,
+                                  final Map<NodePatchPath, Integer> written) {
+        final boolean absolute = path.isAbsolute();
+
+        if (absolute) {
+            final int size = path.size();
+
+            for (int i = 0; i <= size; i++) {
+                flag(path.prefix(i), BELOW, written);
+            }
+            flag(path, WRITE, written);
+
+            if (size > 0 && (path.index(size - 1) >= 0 || NodePatchPath.APPEND.equals(path.token(size - 1)))) {
+                flag(path.parent(), SHIFT, written);
+            }
+        }
+
+        return absolute;
+    }
+
+    private static void flag(final NodePatchPath path,
+                             final int flag,
+                             final Map<NodePatchPath, Integer> written) {
+        written.merge(
+            path,
+            flag,
+            (a, b) -> a | b
+        );
+    }
+
+    /**
+     * Returns true if a recorded write is at, above or below the path, or shifts an array above the path.
+     */
+    private static boolean changed(final NodePatchPath path,
+                                   final Map<NodePatchPath, Integer> written) {
+        boolean changed = 0 != (flags(path, written) & BELOW);
+
+        final int size = path.size();
+        for (int i = 0; !changed && i <= size; i++) {
+            changed = 0 != (flags(path.prefix(i), written) & (WRITE | SHIFT));
+        }
+
+        return changed;
+    }
+
+    private static int flags(final NodePatchPath path,
+                             final Map<NodePatchPath, Integer> written) {
+        final Integer flags = written.get(path);
+        return null != flags ?
+            flags :
+            0;
+    }
+
+    /**
+     * A written path is at or below this path.
+     */
+    private final static int BELOW = 1;
+
+    /**
+     * This path is written.
+     */
+    private final static int WRITE = 2;
+
+    /**
+     * An array element directly below this path is inserted or removed.
+     */
+    private final static int SHIFT = 4;
+
+    /**
+     * Stop creation
+     */
+    private NodePatchApplyFailFast() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.List;
+
+/**
+ * Applies the operations of a patch to a root, grouping consecutive operations whose paths (and froms) all lie below a
+ * shared prefix. Each group is applied to a scaffold tree holding only the ancestors of the sub tree at the prefix with
+ * the sub tree itself, and the new sub tree is then spliced into the real tree, rebuilding its ancestors once rather
+ * than once per operation. Groups are formed again within each group using longer prefixes, forming a trie.<br>
+ * Grouping is only attempted when every ancestor of the prefix is a uniquely named child that is not an array index
+ * other than 0; if anything else is found or a group fails, that group is re-applied operation by operation so results
+ * and failures are identical to {@link NodePatch#apply(Node)}.
+ */
+final class NodePatchApplyGrouped<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Applies the patch to the given root node.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N apply(final NodePatch<N, NAME> patch,
+                                                                     final N root) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        return new NodePatchApplyGrouped<>(operations)
+            .apply(0, size, root, 0);
+    }
+
+    // VisibleForTesting
+    NodePatchApplyGrouped(final NodePatchNonEmpty<N, NAME>[] operations) {
+        super();
+        this.operations = operations;
+    }
+
+    /**
+     * Applies the operations between from and to, forming groups with prefixes longer than prefixLength.
+     */
+    N apply(final int from,
+            final int to,
+            final N root,
+            final int prefixLength) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+
+        N current = root;
+        int i = from;
+
+        while (i < to) {
+            final NodePatchNonEmpty<N, NAME> first = operations[i];
+            final NodePatchPath firstParent = first.patchPath().parent();
+
+            int common = commonParentLength(firstParent, first);
+            int j = i + 1;
+
+            while (j < to) {
+                final int shared = Math.min(
+                    common,
+                    commonParentLength(firstParent, operations[j])
+                );
+                if (shared <= prefixLength) {
+                    break;
+                }
+                common = shared;
+                j++;
+            }
+
+            if (common > prefixLength && j - i > 1) {
+                current = this.applyGroup(i, j, current, firstParent.prefix(common));
+                i = j;
+            } else {
+                current = first.apply0(current, null);
+                i++;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Returns the number of leading tokens shared by the prefix and the parents of the path and from of the operation.
+     */
+    private static int commonParentLength(final NodePatchPath prefix,
+                                          final NodePatchNonEmpty<?, ?> operation) {
+        int common = prefix.commonPrefixLength(operation.patchPath().parent());
+
+        final NodePatchPath from = operation.patchFrom();
+        if (null != from) {
+            common = Math.min(
+                common,
+                prefix.commonPrefixLength(from.parent())
+            );
+        }
+
+        return common;
+    }
+
+    /**
+     * Applies the operations between from and to which all lie below the prefix to a scaffold, and then splices the
+     * new sub tree back into the root.
+     */
+    private N applyGroup(final int from,
+                         final int to,
+                         final N root,
+                         final NodePatchPath prefix) {
+        final int prefixLength = prefix.size();
+        final List<N> ancestors = Lists.array();
+
+        // each scaffold ancestor holds a single child, which would move any index other than 0
+        N subTree = root;
+        for (int i = 0; null != subTree && i < prefixLength; i++) {
+            ancestors.add(subTree);
+            subTree = prefix.index(i) > 0 ?
+                null :
+                namedChildOrNull(subTree, prefix.name(i));
+        }
+
+        N result;
+        if (null == subTree) {
+            result = this.applySequentially(from, to, root);
+        } else {
+            N scaffold = subTree.removeParent();
+            for (int i = prefixLength - 1; i >= 0; i--) {
+                scaffold = ancestors.get(i)
+                    .removeParent()
+                    .setChildren(Lists.of(scaffold));
+            }
+
+            try {
+                N patched = this.apply(from, to, scaffold, prefixLength);
+                for (int i = 0; i < prefixLength; i++) {
+                    patched = patched.children()
+                        .get(0);
+                }
+
+                result = subTree.setChildren(patched.children())
+                    .root();
+            } catch (final RuntimeException cause) {
+                result = this.applySequentially(from, to, root);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the only child with the given name, or null if it is missing or not uniquely named.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N namedChildOrNull(final N parent,
+                                                                                        final String name) {
+        N child = null;
+
+        for (final N possible : parent.children()) {
+            if (possible.name().value().equals(name)) {
+                child = possible.hasUniqueNameAmongstSiblings() ?
+                    possible :
+                    null;
+                break;
+            }
+        }
+
+        return child;
+    }
+
+    /**
+     * Applies each operation in turn, as {@link NodePatch#apply(Node)} would.
+     */
+    private N applySequentially(final int from,
+                                final int to,
+                                final N root) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+
+        N current = root;
+        for (int i = from; i < to; i++) {
+            current = operations[i].apply0(current, null);
+        }
+        return current;
+    }
+
+    private final NodePatchNonEmpty<N, NAME>[] operations;
+
+    @Override
+    public String toString() {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+
+        final StringBuilder b = new StringBuilder();
+        String separator = "";
+
+        for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+            b.append(separator);
+            operation.toString0(b);
+
+            separator = ", ";
+        }
+
+        return b.toString();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.List;
+
+/**
+ * Applies a patch while recording the operations that undo each operation, from the nodes it removes, replaces or
+ * moves, which are already found while applying it. The inverse applies the undo operations in reverse order, so
+ * applying it to the result returns a node equal to the original, without keeping a copy of the original or diffing.
+ */
+final class NodePatchApplyWithInverse {
+
+    /**
+     * Applies the patch to the given node, returning the patched node and the inverse patch.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchInverseResult<N, NAME> apply(final NodePatch<N, NAME> patch,
+                                                                                                   final N node,
+                                                                                                   final NodePointer<N, NAME> start) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        final List<NodePatchNonEmpty<N, NAME>> inverse = Lists.array();
+
+        N current = node;
+        for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+            current = operation.applyWithInverse0(current, start, inverse);
+        }
+
+        final NodePatchBuilder<N, NAME> builder = Cast.to(NodePatchBuilder.wildcard());
+        final int inverseSize = inverse.size();
+        builder.ensureCapacity(inverseSize);
+
+        for (int i = inverseSize - 1; i >= 0; i--) {
+            builder.append(inverse.get(i));
+        }
+
+        return NodePatchInverseResult.with(
+            current,
+            builder.build()
+        );
+    }
+
+    /**
+     * Stop creation
+     */
+    private NodePatchApplyWithInverse() {
+        throw new UnsupportedOperationException();
+    }
+}
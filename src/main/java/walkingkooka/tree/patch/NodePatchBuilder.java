@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A mutable builder that collects operations into a growable array and then creates an immutable {@link NodePatch}
+ * with a single {@link #build()}. The array is handed to the built {@link NodePatch} without copying, any following
+ * modification of the builder will then copy the operations to a new array. A builder may be reused after a
+ * {@link #clear()}.
+ */
+public final class NodePatchBuilder<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * The initial capacity of the operations array when no capacity has been given.
+     */
+    private final static int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Creates a new empty {@link NodePatchBuilder}.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchBuilder<N, NAME> with(final Class<N> type) {
+        Objects.requireNonNull(type, "type");
+
+        return new NodePatchBuilder<>();
+    }
+
+    /**
+     * Creates a new empty {@link NodePatchBuilder} accepting any type, used when unmarshalling.
+     */
+    static NodePatchBuilder<?, ?> wildcard() {
+        return new NodePatchBuilder<>();
+    }
+
+    /**
+     * Private ctor use factory.
+     */
+    private NodePatchBuilder() {
+        super();
+        this.operations = Cast.to(new NodePatchNonEmpty[0]);
+    }
+
+    // NodePatch builder methods........................................................................................
+
+    /**
+     * Adds an ADD operation.
+     */
+    public NodePatchBuilder<N, NAME> add(final NodePointer<N, NAME> path,
+                                         final N value) {
+        return this.append(NodePatchNotEmptyAddReplaceOrTestAdd.with(path, value));
+    }
+
+    /**
+     * Adds a COPY operation.
+     */
+    public NodePatchBuilder<N, NAME> copy(final NodePointer<N, NAME> from,
+                                          final NodePointer<N, NAME> path) {
+        return this.append(NodePatchNotEmptyCopyOrMoveCopy.with(from, path));
+    }
+
+    /**
+     * Adds a MOVE operation.
+     */
+    public NodePatchBuilder<N, NAME> move(final NodePointer<N, NAME> from,
+                                          final NodePointer<N, NAME> path) {
+        return this.append(NodePatchNotEmptyCopyOrMoveMove.with(from, path));
+    }
+
+    /**
+     * Adds a REMOVE operation.
+     */
+    public NodePatchBuilder<N, NAME> remove(final NodePointer<N, NAME> path) {
+        return this.append(NodePatchNotEmptyRemove.with(path));
+    }
+
+    /**
+     * Adds a REPLACE operation.
+     */
+    public NodePatchBuilder<N, NAME> replace(final NodePointer<N, NAME> path,
+                                             final N value) {
+        return this.append(NodePatchNotEmptyAddReplaceOrTestReplace.with(path, value));
+    }
+
+    /**
+     * Adds a TEST operation.
+     */
+    public NodePatchBuilder<N, NAME> test(final NodePointer<N, NAME> path,
+                                          final N value) {
+        return this.append(NodePatchNotEmptyAddReplaceOrTestTest.with(path, value));
+    }
+
+    /**
+     * Adds a single operation growing the operations array if necessary.
+     */
+    NodePatchBuilder<N, NAME> append(final NodePatchNonEmpty<N, NAME> operation) {
+        final int size = this.size;
+        this.ensureCapacity0(size + 1);
+
+        this.operations[size] = operation;
+        this.size = size + 1;
+        return this;
+    }
+
+    // capacity.........................................................................................................
+
+    /**
+     * Pre-sizes the operations array so at least the given number of operations may be added without growing.
+     */
+    public NodePatchBuilder<N, NAME> ensureCapacity(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + " < 0");
+        }
+        this.ensureCapacity0(capacity);
+        return this;
+    }
+
+    private void ensureCapacity0(final int capacity) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final int length = operations.length;
+
+        if (this.shared || capacity > length) {
+            this.operations = Arrays.copyOf(
+                operations,
+                Math.max(
+                    capacity > length ?
+                        Math.max(capacity, length + (length >> 1)) :
+                        length,
+                    DEFAULT_CAPACITY
+                )
+            );
+            Arrays.fill(this.operations, this.size, this.operations.length, null);
+            this.shared = false;
+        }
+    }
+
+    /**
+     * Returns the number of operations added so far.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all operations, keeping the operations array for reuse unless it now belongs to a built {@link NodePatch}.
+     */
+    public NodePatchBuilder<N, NAME> clear() {
+        if (this.shared) {
+            this.operations = Cast.to(new NodePatchNonEmpty[this.operations.length]);
+            this.shared = false;
+        } else {
+            Arrays.fill(this.operations, 0, this.size, null);
+        }
+        this.size = 0;
+        return this;
+    }
+
+    // build............................................................................................................
+
+    /**
+     * Creates an immutable {@link NodePatch} holding all the operations added so far.
+     */
+    public NodePatch<N, NAME> build() {
+        final NodePatch<N, NAME> patch;
+
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final int size = this.size;
+
+        switch (size) {
+            case 0:
+                patch = Cast.to(NodePatchEmpty.getWildcard());
+                break;
+            case 1:
+                patch = operations[0];
+                break;
+            default:
+                patch = NodePatchSequence.with(operations, size);
+                this.shared = true;
+                break;
+        }
+
+        return patch;
+    }
+
+    /**
+     * Holds the operations, the first {@link #size} are valid.
+     */
+    private NodePatchNonEmpty<N, NAME>[] operations;
+
+    /**
+     * The number of operations added.
+     */
+    private int size;
+
+    /**
+     * When true the {@link #operations} belong to a built {@link NodePatch} and must be copied before any modification.
+     */
+    private boolean shared;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final int size = this.size;
+
+        final StringBuilder b = new StringBuilder();
+        String separator = "";
+
+        for (int i = 0; i < size; i++) {
+            b.append(separator);
+            operations[i].toString0(b);
+
+            separator = ", ";
+        }
+
+        return b.toString();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides whether two patches may be applied in either order with the same result, using only the paths and froms of
+ * their operations. The patches commute when neither writes a path the other reads or writes, where a path at or below
+ * a written path is also touched, and an add, remove, copy or move at an array index or append touches everything below
+ * that array because the later elements are shifted. Tests and the from of a copy are only read, a move writes both
+ * its from and path. Non absolute paths may touch anything, so patches with any never commute.<br>
+ * The paths of one patch are recorded by each of their prefixes, with the paths of the other then checked against
+ * these, so the work is linear in the number of operations times the depth of their paths.
+ */
+final class NodePatchCommutes<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Returns true if the patches may be applied in either order with the same result.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> boolean commutes(final NodePatch<N, NAME> patch,
+                                                                              final NodePatch<N, NAME> other) {
+        return 0 == patch.size() ||
+            0 == other.size() ||
+            new NodePatchCommutes<N, NAME>().commutes(operations(patch), operations(other));
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchNonEmpty<N, NAME>[] operations(final NodePatch<N, NAME> patch) {
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[patch.size()]);
+        patch.copyOperations(operations, 0);
+        return operations;
+    }
+
+    // VisibleForTesting
+    NodePatchCommutes() {
+        super();
+    }
+
+    /**
+     * Records the paths of the other operations and then checks each path of the operations against them.
+     */
+    boolean commutes(final NodePatchNonEmpty<N, NAME>[] operations,
+                     final NodePatchNonEmpty<N, NAME>[] others) {
+        boolean commutes = true;
+
+        for (final NodePatchNonEmpty<N, NAME> other : others) {
+            final NodePatchPath from = other.patchFrom();
+            final int opcode = other.opcode();
+
+            if (!this.record(other.patchPath(), write(opcode), shifts(opcode)) ||
+                null != from && !this.record(from, NodePatchPlan.MOVE == opcode, NodePatchPlan.MOVE == opcode)) {
+                commutes = false;
+                break;
+            }
+        }
+
+        if (commutes) {
+            for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+                final NodePatchPath from = operation.patchFrom();
+                final int opcode = operation.opcode();
+
+                if (this.touches(operation.patchPath(), write(opcode), shifts(opcode)) ||
+                    null != from && this.touches(from, NodePatchPlan.MOVE == opcode, NodePatchPlan.MOVE == opcode)) {
+                    commutes = false;
+                    break;
+                }
+            }
+        }
+
+        return commutes;
+    }
+
+    /**
+     * Only a test does not write its path.
+     */
+    private static boolean write(final int opcode) {
+        return NodePatchPlan.TEST != opcode;
+    }
+
+    /**
+     * Returns true if the operation inserts or removes at its path, shifting later array elements.
+     */
+    private static boolean shifts(final int opcode) {
+        return NodePatchPlan.REPLACE != opcode && NodePatchPlan.TEST != opcode;
+    }
+
+    /**
+     * Records the path against each of its prefixes, returning false if the path is not absolute.
+     */
+    private boolean record(final NodePatchPath path,
+                           final boolean write,
+                           final boolean shifts) {
+        final boolean absolute = path.isAbsolute();
+
+        if (absolute) {
+            final int size = path.size();
+
+            for (int i = 0; i <= size; i++) {
+                this.flag(
+                    path.prefix(i),
+                    PRESENT | (write ? WRITE_BELOW : 0)
+                );
+            }
+
+            this.flag(
+                path,
+                write ? WRITE : READ
+            );
+
+            if (shifts && shifted(path)) {
+                this.flag(path.parent(), SHIFT);
+            }
+        }
+
+        return absolute;
+    }
+
+    private void flag(final NodePatchPath path,
+                      final int flag) {
+        this.paths.merge(
+            path,
+            flag,
+            (a, b) -> a | b
+        );
+    }
+
+    /**
+     * Returns true if the path touches any of the recorded paths.
+     */
+    private boolean touches(final NodePatchPath path,
+                            final boolean write,
+                            final boolean shifts) {
+        boolean touches = !path.isAbsolute();
+
+        if (!touches) {
+            final int size = path.size();
+
+            // a recorded write or shift at or above the path, or for a write also a read
+            final int above = write ?
+                WRITE | SHIFT | READ :
+                WRITE | SHIFT;
+            for (int i = 0; !touches && i <= size; i++) {
+                touches = 0 != (this.flags(path.prefix(i)) & above);
+            }
+
+            if (!touches) {
+                // anything recorded at or below a written path, or only writes below a read path
+                touches = 0 != (this.flags(path) & (write ? PRESENT : WRITE_BELOW)) ||
+                    write && shifts && shifted(path) && 0 != (this.flags(path.parent()) & PRESENT);
+            }
+        }
+
+        return touches;
+    }
+
+    private int flags(final NodePatchPath path) {
+        final Integer flags = this.paths.get(path);
+        return null != flags ?
+            flags :
+            0;
+    }
+
+    /**
+     * Returns true if the path ends with an array index or append, where an insert or remove shifts later elements.
+     */
+    private static boolean shifted(final NodePatchPath path) {
+        final int size = path.size();
+        return size > 0 &&
+            (path.index(size - 1) >= 0 || NodePatchPath.APPEND.equals(path.token(size - 1)));
+    }
+
+    /**
+     * A recorded path is at or below this path.
+     */
+    private final static int PRESENT = 1;
+
+    /**
+     * A recorded path that is written is at or below this path.
+     */
+    private final static int WRITE_BELOW = 2;
+
+    /**
+     * A recorded path that is written is this path.
+     */
+    private final static int WRITE = 4;
+
+    /**
+     * A recorded path that is only read is this path.
+     */
+    private final static int READ = 16;
+
+    /**
+     * A recorded insert or remove shifts the elements of the array at this path.
+     */
+    private final static int SHIFT = 8;
+
+    /**
+     * The flags for each prefix of the recorded paths.
+     */
+    private final Map<NodePatchPath, Integer> paths = new HashMap<>();
+
+    @Override
+    public String toString() {
+        return this.paths.toString();
+    }
+}
@@ -0,0 +1,874 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Computes a {@link NodePatch} that transforms one {@link Node} into another, so that applying the patch to before
+ * returns after.<br>
+ * Pairs of nodes are visited using an explicit stack rather than recursion, so very deep trees do not overflow the
+ * call stack. The add and remove operations that change the children of a node are emitted before any operations
+ * below those children, so the paths below always use the indices of after.<br>
+ * Children are matched by name when every child has a unique name amongst its siblings, otherwise by index using the
+ * Myers O(ND) algorithm, which finds the fewest adds and removes. Removed and added children between the same matched
+ * children are paired by position and diffed, so a changed element is not removed and added again. Nodes that differ
+ * other than by their children, such as two different leaves, are replaced.<br>
+ * Nodes are compared using {@link NodePatchDiffHashes}, so different sub trees are found without comparing them, the
+ * same instance is never compared, and equals is only called for sub trees that are equal and then skipped.<br>
+ * Operations are recorded and then given to {@link NodePatchDiffMoves}, which replaces a removed sub tree added
+ * elsewhere with a move, and an added sub tree that is already present with a copy.<br>
+ * Each child visited and each pair of children compared by Myers counts towards the
+ * {@link NodePatchDiffer#visitLimit()}. Once it is exceeded, the pairs left on the stack are replaced and Myers gives
+ * up, and the result is marked approximate.
+ */
+final class NodePatchDiff<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Computes a patch that transforms before into after, failing if they are different and cannot be transformed by
+     * changing their children, because the starting node itself cannot be replaced.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffResult<N, NAME> diff(final NodePatchDiffer<N, NAME> differ,
+                                                                                                final N before,
+                                                                                                final N after) {
+        final NodePatchDiff<N, NAME> diff = new NodePatchDiff<>(
+            Cast.to(before.getClass()),
+            differ
+        );
+        diff.diff0(before, after);
+        return NodePatchDiffResult.with(
+            diff.build(),
+            diff.approximate
+        );
+    }
+
+    // VisibleForTesting
+    NodePatchDiff(final Class<N> type,
+                  final NodePatchDiffer<N, NAME> differ) {
+        super();
+        this.type = type;
+        this.arrayEditLimit = differ.arrayEditLimit();
+        this.arrayKey = differ.arrayKey();
+        this.visitLimit = differ.visitLimit();
+        this.moves = NodePatchDiffMoves.with(this.hashes);
+    }
+
+    private void diff0(final N before,
+                       final N after) {
+        if (!same(before, after)) {
+            if (!canDiffChildren(before, after)) {
+                throw new IllegalArgumentException("Unable to diff " + NodePatchMessages.node(before) + " and " + NodePatchMessages.node(after));
+            }
+
+            this.push(before, after, ROOT);
+
+            final List<N> befores = this.befores;
+            while (!befores.isEmpty()) {
+                final int last = befores.size() - 1;
+                final N beforeNode = befores.remove(last);
+                final N afterNode = this.afters.remove(last);
+                final Object[] path = this.paths.remove(last);
+
+                // the starting node is always diffed as it cannot be replaced
+                if (this.visits > this.visitLimit) {
+                    this.operations.add(
+                        NodePatchDiffOperation.replace(
+                            path,
+                            afterNode
+                        )
+                    );
+                    this.approximate = true;
+                } else {
+                    this.diffChildren(
+                        beforeNode,
+                        afterNode,
+                        path
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes a pair of nodes with the same path onto the stack.
+     */
+    private void push(final N before,
+                      final N after,
+                      final Object[] path) {
+        this.befores.add(before);
+        this.afters.add(after);
+        this.paths.add(path);
+    }
+
+    /**
+     * Emits the operations that change the children of before into the children of after, and pushes the pairs of
+     * matched children that are different.
+     */
+    private void diffChildren(final N before,
+                              final N after,
+                              final Object[] path) {
+        final List<N> beforeChildren = before.children();
+        final List<N> afterChildren = after.children();
+        this.visits += beforeChildren.size() + afterChildren.size();
+
+        if (named(beforeChildren) && named(afterChildren)) {
+            this.diffNamed(beforeChildren, afterChildren, path);
+        } else {
+            if (!this.arrayKey.isPresent() || !this.diffKeyed(beforeChildren, afterChildren, path)) {
+                this.diffIndexed(beforeChildren, afterChildren, path);
+            }
+        }
+    }
+
+    /**
+     * Children with unique names are matched by name, removing children only in before and adding children only in
+     * after.
+     */
+    private void diffNamed(final List<N> beforeChildren,
+                           final List<N> afterChildren,
+                           final Object[] path) {
+        // named children keep their paths while their siblings are removed and added
+        final int time = this.operations.size();
+
+        final Map<NAME, N> nameToBefore = new LinkedHashMap<>();
+        for (final N child : beforeChildren) {
+            nameToBefore.put(child.name(), child);
+        }
+
+        final List<N> matchedBefores = Lists.array();
+        final List<N> matchedAfters = Lists.array();
+        final List<N> added = Lists.array();
+
+        for (final N child : afterChildren) {
+            final N beforeChild = nameToBefore.remove(child.name());
+            if (null == beforeChild) {
+                added.add(child);
+            } else {
+                matchedBefores.add(beforeChild);
+                matchedAfters.add(child);
+            }
+        }
+
+        for (final N child : nameToBefore.values()) {
+            this.operations.add(
+                NodePatchDiffOperation.remove(
+                    child(path, child.name()),
+                    child
+                )
+            );
+        }
+
+        for (final N child : added) {
+            this.operations.add(
+                NodePatchDiffOperation.add(
+                    child(path, child.name()),
+                    child
+                )
+            );
+        }
+
+        final int pushed = this.befores.size();
+        final int matchedCount = matchedBefores.size();
+        for (int i = 0; i < matchedCount; i++) {
+            final N matchedAfter = matchedAfters.get(i);
+            this.pair(
+                matchedBefores.get(i),
+                matchedAfter,
+                child(path, matchedAfter.name()),
+                time
+            );
+        }
+        this.reverse(pushed);
+    }
+
+    /**
+     * Children without unique names are matched by their {@link NodePatchDiffer#arrayKey()}, returning false if any
+     * child has a null key or a key is not unique, so they are matched by index instead.<br>
+     * Children only in before are removed, from the highest index. The order of the matched children in before is
+     * compared with after, and the longest increasing subsequence of their indices in after stays in place, while the
+     * other matched children are moved and children only in after added, from the lowest index in after.
+     */
+    private boolean diffKeyed(final List<N> beforeChildren,
+                              final List<N> afterChildren,
+                              final Object[] path) {
+        final Function<N, Object> arrayKey = this.arrayKey.get();
+
+        final Map<Object, Integer> keyToBefore = new HashMap<>();
+        final int beforeCount = beforeChildren.size();
+        for (int i = 0; i < beforeCount; i++) {
+            final Object key = arrayKey.apply(beforeChildren.get(i));
+            if (null == key || null != keyToBefore.put(key, i)) {
+                return false;
+            }
+        }
+
+        // the index in before of each child of after or -1, and the index in after of each child of before or -1
+        final int afterCount = afterChildren.size();
+        final int[] afterToBefore = new int[afterCount];
+        final int[] beforeToAfter = new int[beforeCount];
+        Arrays.fill(beforeToAfter, -1);
+
+        final Set<Object> afterKeys = new HashSet<>();
+        for (int i = 0; i < afterCount; i++) {
+            final Object key = arrayKey.apply(afterChildren.get(i));
+            if (null == key || !afterKeys.add(key)) {
+                return false;
+            }
+            final Integer before = keyToBefore.get(key);
+            if (null == before) {
+                afterToBefore[i] = -1;
+            } else {
+                afterToBefore[i] = before;
+                beforeToAfter[before] = i;
+            }
+        }
+
+        for (int i = beforeCount - 1; i >= 0; i--) {
+            if (-1 == beforeToAfter[i]) {
+                this.operations.add(
+                    NodePatchDiffOperation.remove(
+                        child(path, i),
+                        beforeChildren.get(i)
+                    )
+                );
+            }
+        }
+
+        // the indices in after of the matched children in their order in before
+        int matchCount = 0;
+        final int[] matched = new int[Math.min(beforeCount, afterCount)];
+        for (int i = 0; i < beforeCount; i++) {
+            final int after = beforeToAfter[i];
+            if (-1 != after) {
+                matched[matchCount++] = after;
+            }
+        }
+        final boolean[] stays = new boolean[afterCount];
+        for (final int after : increasing(matched, matchCount)) {
+            stays[after] = true;
+        }
+
+        // Each child is given a slot, and its index is the number of filled slots before its slot. Up to each child
+        // that stays come the slots of the matched children in their order in before, then the slots of the moved and
+        // added children in their order in after, and then the slot of the child that stays. A moved child empties its
+        // slot in before and fills its slot in after, an added child fills its slot in after.
+        final int[] beforeSlots = new int[beforeCount];
+        final int[] afterSlots = new int[afterCount];
+        int slot = 0;
+        int beforeIndex = 0;
+        int afterIndex = 0;
+
+        while (afterIndex <= afterCount) {
+            int stay = afterIndex;
+            while (stay < afterCount && !stays[stay]) {
+                stay++;
+            }
+            final int stayBefore = afterCount == stay ?
+                beforeCount :
+                afterToBefore[stay];
+
+            for (; beforeIndex < stayBefore; beforeIndex++) {
+                if (-1 != beforeToAfter[beforeIndex]) {
+                    beforeSlots[beforeIndex] = slot++;
+                }
+            }
+            for (; afterIndex < stay; afterIndex++) {
+                afterSlots[afterIndex] = slot++;
+            }
+            if (stay < afterCount) {
+                beforeSlots[stayBefore] = slot;
+                afterSlots[stay] = slot;
+                slot++;
+            }
+
+            beforeIndex = stayBefore + 1;
+            afterIndex = stay + 1;
+        }
+
+        final int[] filled = new int[slot + 1];
+        for (int i = 0; i < beforeCount; i++) {
+            if (-1 != beforeToAfter[i]) {
+                fill(filled, beforeSlots[i], 1);
+            }
+        }
+
+        for (int i = 0; i < afterCount; i++) {
+            if (!stays[i]) {
+                final int before = afterToBefore[i];
+
+                if (-1 == before) {
+                    this.operations.add(
+                        NodePatchDiffOperation.add(
+                            child(path, filledBefore(filled, afterSlots[i])),
+                            afterChildren.get(i)
+                        )
+                    );
+                } else {
+                    final int from = filledBefore(filled, beforeSlots[before]);
+                    fill(filled, beforeSlots[before], -1);
+
+                    final int to = filledBefore(filled, afterSlots[i]);
+                    if (from != to) {
+                        this.operations.add(
+                            NodePatchDiffOperation.move(
+                                child(path, from),
+                                child(path, to),
+                                beforeChildren.get(before)
+                            )
+                        );
+                    }
+                }
+                fill(filled, afterSlots[i], 1);
+            }
+        }
+
+        // the matched children are now at their indices in after
+        final int pushed = this.befores.size();
+        final int time = this.operations.size();
+        for (int i = 0; i < afterCount; i++) {
+            final int before = afterToBefore[i];
+            if (-1 != before) {
+                this.pair(
+                    beforeChildren.get(before),
+                    afterChildren.get(i),
+                    child(path, i),
+                    time
+                );
+            }
+        }
+        this.reverse(pushed);
+
+        return true;
+    }
+
+    /**
+     * Returns the matched values that form the longest increasing subsequence, using patience sorting.
+     */
+    // VisibleForTesting
+    static int[] increasing(final int[] values,
+                            final int count) {
+        final int[] tails = new int[count];
+        final int[] previous = new int[count];
+        int length = 0;
+
+        for (int i = 0; i < count; i++) {
+            final int value = values[i];
+
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            previous[i] = low > 0 ?
+                tails[low - 1] :
+                -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        final int[] increasing = new int[length];
+        int index = length > 0 ?
+            tails[length - 1] :
+            -1;
+        for (int i = length - 1; i >= 0; i--) {
+            increasing[i] = values[index];
+            index = previous[index];
+        }
+        return increasing;
+    }
+
+    /**
+     * Adds to the count of filled slots at the given slot, in a Fenwick tree.
+     */
+    private static void fill(final int[] filled,
+                             final int slot,
+                             final int count) {
+        for (int i = slot + 1; i < filled.length; i += i & -i) {
+            filled[i] += count;
+        }
+    }
+
+    /**
+     * Returns the number of filled slots before the given slot, in a Fenwick tree.
+     */
+    private static int filledBefore(final int[] filled,
+                                    final int slot) {
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            count += filled[i];
+        }
+        return count;
+    }
+
+    /**
+     * Children without unique names are matched by index. After skipping the equal children at the start and end, the
+     * equal children in the middle are matched using {@link #myers(int, int)}. The children between two matches are
+     * paired by position, with any surplus children of before removed and of after added.<br>
+     * All removes are emitted first from the highest index, then all adds from the lowest, which leaves the matched and
+     * paired children at their indices in after.
+     */
+    private void diffIndexed(final List<N> beforeChildren,
+                             final List<N> afterChildren,
+                             final Object[] path) {
+        final int beforeCount = beforeChildren.size();
+        final int afterCount = afterChildren.size();
+        final int min = Math.min(beforeCount, afterCount);
+
+        int prefix = 0;
+        while (prefix < min && same(beforeChildren.get(prefix), afterChildren.get(prefix))) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < min - prefix && same(beforeChildren.get(beforeCount - 1 - suffix), afterChildren.get(afterCount - 1 - suffix))) {
+            suffix++;
+        }
+
+        final int beforeMiddle = beforeCount - prefix - suffix;
+        final int afterMiddle = afterCount - prefix - suffix;
+
+        int[] matches = null;
+        if (beforeMiddle > 0 && afterMiddle > 0) {
+            this.middle(beforeChildren, afterChildren, prefix, beforeMiddle, afterMiddle);
+            matches = this.myers(beforeMiddle, afterMiddle);
+            this.beforeMiddle = null;
+            this.afterMiddle = null;
+        }
+        if (null == matches) {
+            matches = new int[0];
+            this.approximate |= beforeMiddle > 0 && afterMiddle > 0;
+        }
+
+        final int matchCount = matches.length / 2;
+
+        // removes from the end of each gap, highest first
+        for (int m = matchCount; m >= 0; m--) {
+            final int beforeStart = 0 == m ? 0 : matches[m * 2 - 2] + 1;
+            final int beforeEnd = matchCount == m ? beforeMiddle : matches[m * 2];
+            final int afterStart = 0 == m ? 0 : matches[m * 2 - 1] + 1;
+            final int afterEnd = matchCount == m ? afterMiddle : matches[m * 2 + 1];
+            final int paired = Math.min(beforeEnd - beforeStart, afterEnd - afterStart);
+
+            for (int i = beforeEnd - 1; i >= beforeStart + paired; i--) {
+                this.operations.add(
+                    NodePatchDiffOperation.remove(
+                        child(path, prefix + i),
+                        beforeChildren.get(prefix + i)
+                    )
+                );
+            }
+        }
+
+        // adds to the end of each gap, lowest first
+        for (int m = 0; m <= matchCount; m++) {
+            final int beforeStart = 0 == m ? 0 : matches[m * 2 - 2] + 1;
+            final int beforeEnd = matchCount == m ? beforeMiddle : matches[m * 2];
+            final int afterStart = 0 == m ? 0 : matches[m * 2 - 1] + 1;
+            final int afterEnd = matchCount == m ? afterMiddle : matches[m * 2 + 1];
+            final int paired = Math.min(beforeEnd - beforeStart, afterEnd - afterStart);
+
+            for (int i = afterStart + paired; i < afterEnd; i++) {
+                this.operations.add(
+                    NodePatchDiffOperation.add(
+                        child(path, prefix + i),
+                        afterChildren.get(prefix + i)
+                    )
+                );
+            }
+        }
+
+        // the equal children at the start, end and matched in the middle are now at their paths in after
+        for (int i = 0; i < prefix; i++) {
+            this.unchanged(afterChildren.get(i), path, i);
+        }
+        for (int m = 0; m < matchCount; m++) {
+            final int i = prefix + matches[m * 2 + 1];
+            this.unchanged(afterChildren.get(i), path, i);
+        }
+        for (int i = afterCount - suffix; i < afterCount; i++) {
+            this.unchanged(afterChildren.get(i), path, i);
+        }
+
+        // pairs within each gap
+        final int pushed = this.befores.size();
+        for (int m = 0; m <= matchCount; m++) {
+            final int beforeStart = 0 == m ? 0 : matches[m * 2 - 2] + 1;
+            final int beforeEnd = matchCount == m ? beforeMiddle : matches[m * 2];
+            final int afterStart = 0 == m ? 0 : matches[m * 2 - 1] + 1;
+            final int afterEnd = matchCount == m ? afterMiddle : matches[m * 2 + 1];
+            final int paired = Math.min(beforeEnd - beforeStart, afterEnd - afterStart);
+
+            for (int i = 0; i < paired; i++) {
+                this.pair(
+                    beforeChildren.get(prefix + beforeStart + i),
+                    afterChildren.get(prefix + afterStart + i),
+                    child(path, prefix + afterStart + i),
+                    this.operations.size()
+                );
+            }
+        }
+        this.reverse(pushed);
+    }
+
+    /**
+     * Prepares the middle children and their hashes, which are compared first by {@link #equal(int, int)}.
+     */
+    private void middle(final List<N> beforeChildren,
+                        final List<N> afterChildren,
+                        final int prefix,
+                        final int beforeCount,
+                        final int afterCount) {
+        this.beforeMiddle = beforeChildren.subList(prefix, prefix + beforeCount);
+        this.beforeHashes = this.hashes(this.beforeMiddle);
+
+        this.afterMiddle = afterChildren.subList(prefix, prefix + afterCount);
+        this.afterHashes = this.hashes(this.afterMiddle);
+    }
+
+    private long[] hashes(final List<N> nodes) {
+        final int count = nodes.size();
+        final long[] hashes = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            hashes[i] = this.hashes.hash(nodes.get(i));
+        }
+        return hashes;
+    }
+
+    /**
+     * Finds the fewest adds and removes that change the middle children of before into those of after using the
+     * Myers O(ND) algorithm, returning the indices of the matched children as before and after pairs in increasing
+     * order. Null is returned if more than {@link #arrayEditLimit} adds and removes are needed or the
+     * {@link #visitLimit} is exceeded, in which case all middle children are paired by position.<br>
+     * The furthest reaching paths for each number of edits are kept so the matches can be found by backtracking, which
+     * requires memory proportional to the square of the number of edits.
+     */
+    // VisibleForTesting
+    int[] myers(final int beforeCount,
+                final int afterCount) {
+        final int max = Math.min(beforeCount + afterCount, this.arrayEditLimit);
+        final int offset = max + 1;
+        final int[] v = new int[2 * max + 3];
+        final List<int[]> trace = Lists.array();
+
+        int found = -1;
+
+        for (int d = 0; -1 == found && d <= max && this.visits <= this.visitLimit; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = -d == k || k != d && v[offset + k - 1] < v[offset + k + 1] ?
+                    v[offset + k + 1] :
+                    v[offset + k - 1] + 1;
+                int y = x - k;
+
+                while (x < beforeCount && y < afterCount && this.equal(x, y)) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+
+                if (x >= beforeCount && y >= afterCount) {
+                    found = d;
+                    break;
+                }
+            }
+
+            trace.add(
+                Arrays.copyOfRange(v, offset - d, offset + d + 1)
+            );
+        }
+
+        return -1 == found ?
+            null :
+            backtrack(trace, found, beforeCount, afterCount);
+    }
+
+    /**
+     * Walks back from the end through the furthest reaching paths, collecting the diagonal moves, which are the
+     * matched children.
+     */
+    private static int[] backtrack(final List<int[]> trace,
+                                   final int edits,
+                                   final int beforeCount,
+                                   final int afterCount) {
+        final int[] matches = new int[2 * Math.min(beforeCount, afterCount)];
+        int matchCount = 0;
+
+        int x = beforeCount;
+        int y = afterCount;
+
+        for (int d = edits; d >= 0; d--) {
+            final int k = x - y;
+
+            int startX = 0;
+            int startY = 0;
+            int previousX = 0;
+            int previousY = 0;
+
+            if (d > 0) {
+                final int[] previous = trace.get(d - 1);
+                final int previousD = d - 1;
+                final int previousK = -d == k || k != d && previous[k - 1 + previousD] < previous[k + 1 + previousD] ?
+                    k + 1 :
+                    k - 1;
+
+                previousX = previous[previousK + previousD];
+                previousY = previousX - previousK;
+
+                if (k + 1 == previousK) {
+                    startX = previousX;
+                    startY = previousY + 1;
+                } else {
+                    startX = previousX + 1;
+                    startY = previousY;
+                }
+            }
+
+            while (x > startX && y > startY) {
+                x--;
+                y--;
+                matches[matchCount * 2] = x;
+                matches[matchCount * 2 + 1] = y;
+                matchCount++;
+            }
+
+            x = previousX;
+            y = previousY;
+        }
+
+        final int[] ordered = new int[matchCount * 2];
+        for (int i = 0; i < matchCount; i++) {
+            ordered[i * 2] = matches[(matchCount - 1 - i) * 2];
+            ordered[i * 2 + 1] = matches[(matchCount - 1 - i) * 2 + 1];
+        }
+        return ordered;
+    }
+
+    /**
+     * Tests if the middle children at the given indices are equal, comparing their hashes first.
+     */
+    private boolean equal(final int before,
+                          final int after) {
+        this.visits++;
+
+        return this.beforeHashes[before] == this.afterHashes[after] &&
+            equalIgnoringParents(this.beforeMiddle.get(before), this.afterMiddle.get(after));
+    }
+
+    /**
+     * The middle children and their hashes of the children being matched by {@link #myers(int, int)}.
+     */
+    // VisibleForTesting
+    List<N> beforeMiddle;
+    long[] beforeHashes;
+    List<N> afterMiddle;
+    long[] afterHashes;
+
+    /**
+     * Reverses the pairs pushed after the given stack size, so they are popped and diffed in the order they were pushed.
+     */
+    private void reverse(final int from) {
+        final int to = this.befores.size();
+        Collections.reverse(this.befores.subList(from, to));
+        Collections.reverse(this.afters.subList(from, to));
+        Collections.reverse(this.paths.subList(from, to));
+    }
+
+    /**
+     * Pushes a matched pair of children if they have different children, replaces after if they differ otherwise,
+     * and records after as unchanged if they are the same, as it is at its path once time operations are applied.
+     */
+    private void pair(final N before,
+                      final N after,
+                      final Object[] path,
+                      final int time) {
+        if (!same(before, after)) {
+            if (canDiffChildren(before, after)) {
+                this.push(before, after, path);
+            } else {
+                this.operations.add(
+                    NodePatchDiffOperation.replace(
+                        path,
+                        after
+                    )
+                );
+            }
+        } else {
+            this.moves.unchanged(after, path, time);
+        }
+    }
+
+    /**
+     * Tests if two nodes are equal ignoring their parents. The same instance is always equal, and nodes with different
+     * hashes are known to be different without comparing their sub trees.
+     */
+    private boolean same(final N before,
+                         final N after) {
+        return before == after ||
+            this.hashes.hash(before) == this.hashes.hash(after) && equalIgnoringParents(before, after);
+    }
+
+    static <N extends Node<N, ?, ?, ?>> boolean equalIgnoringParents(final N before,
+                                                                           final N after) {
+        return before.removeParent().equals(after.removeParent());
+    }
+
+    /**
+     * Returns true if before can be changed into after by only changing its children, namely both are the same type,
+     * have children, and are equal after removing their children.
+     */
+    private static <N extends Node<N, ?, ?, ?>> boolean canDiffChildren(final N before,
+                                                                      final N after) {
+        return before.getClass() == after.getClass() &&
+            (!before.children().isEmpty() || !after.children().isEmpty()) &&
+            withoutChildren(before).equals(withoutChildren(after));
+    }
+
+    private static <N extends Node<N, ?, ?, ?>> N withoutChildren(final N node) {
+        return node.removeParent()
+            .setChildren(Lists.empty());
+    }
+
+    /**
+     * Returns true if all children have unique names amongst their siblings, which is true when there are none.
+     */
+    private static <N extends Node<N, ?, ?, ?>> boolean named(final List<N> children) {
+        return children.isEmpty() || children.get(0).hasUniqueNameAmongstSiblings();
+    }
+
+    /**
+     * Returns the path of a child, where each token is either a {@link Name} or an {@link Integer} index.
+     */
+    private static Object[] child(final Object[] path,
+                                  final Object token) {
+        final Object[] child = Arrays.copyOf(path, path.length + 1);
+        child[path.length] = token;
+        return child;
+    }
+
+    /**
+     * The path of the starting node.
+     */
+    private final static Object[] ROOT = new Object[0];
+
+    /**
+     * Records a child that is the same in before and after, which may then be copied by a later add.
+     */
+    private void unchanged(final N child,
+                           final Object[] path,
+                           final int index) {
+        if (NodePatchDiffMoves.movable(child)) {
+            this.moves.unchanged(
+                child,
+                child(path, index),
+                this.operations.size()
+            );
+        }
+    }
+
+    /**
+     * Replaces moved and copied sub trees and builds the patch.
+     */
+    private NodePatch<N, NAME> build() {
+        this.moves.detect(this.operations);
+        return this.builder()
+            .build();
+    }
+
+    private NodePatchBuilder<N, NAME> builder() {
+        final NodePatchBuilder<N, NAME> builder = Cast.to(NodePatchBuilder.wildcard());
+        builder.ensureCapacity(this.operations.size());
+
+        for (final NodePatchDiffOperation<N, NAME> operation : this.operations) {
+            operation.build(builder, this.type);
+        }
+        return builder;
+    }
+
+    private final Class<N> type;
+
+    /**
+     * The maximum number of adds and removes {@link #myers(int, int)} searches for.
+     */
+    private final int arrayEditLimit;
+
+    /**
+     * When present, children that are not named are matched by this key, see {@link #diffKeyed(List, List, Object[])}.
+     */
+    private final Optional<Function<N, Object>> arrayKey;
+
+    /**
+     * Once {@link #visits} exceeds this limit, no more pairs are diffed.
+     */
+    private final int visitLimit;
+
+    /**
+     * The number of children visited and compared so far.
+     */
+    private long visits;
+
+    /**
+     * Set when a limit was reached and some nodes were replaced or paired by position rather than diffed.
+     */
+    private boolean approximate;
+
+    /**
+     * The operations in the order they are emitted.
+     */
+    private final List<NodePatchDiffOperation<N, NAME>> operations = Lists.array();
+
+    private final NodePatchDiffMoves<N, NAME> moves;
+
+    /**
+     * The hashes of all nodes of before and after, which are computed once and used to skip equal sub trees.
+     */
+    private final NodePatchDiffHashes<N> hashes = NodePatchDiffHashes.empty();
+
+    /**
+     * The stack of pairs of nodes waiting to be diffed, and their path.
+     */
+    private final List<N> befores = Lists.array();
+    private final List<N> afters = Lists.array();
+    private final List<Object[]> paths = Lists.array();
+
+    @Override
+    public String toString() {
+        return this.builder().toString();
+    }
+}
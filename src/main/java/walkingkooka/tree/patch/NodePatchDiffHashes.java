@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.tree.Node;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes and caches a 64 bit content hash for each {@link Node} and its descendants, combining a hash of the node
+ * without its children with the hashes of its children, in the manner of a Merkle tree. Nodes that are equal ignoring
+ * their parents always have equal hashes, so nodes with different hashes are known to be different without comparing
+ * their sub trees.<br>
+ * Hashes are cached by node identity, so each node is hashed once, and computed using an explicit stack so very deep
+ * trees do not overflow the call stack. The hash of a leaf is its {@link Object#hashCode()}, which may collide, so equal
+ * hashes must still be confirmed with {@link Object#equals(Object)}.
+ */
+final class NodePatchDiffHashes<N extends Node<N, ?, ?, ?>> {
+
+    static <N extends Node<N, ?, ?, ?>> NodePatchDiffHashes<N> empty() {
+        return new NodePatchDiffHashes<>();
+    }
+
+    private NodePatchDiffHashes() {
+        super();
+    }
+
+    /**
+     * Returns the hash of the given node, computing and caching the hashes of it and any descendants not yet hashed.
+     */
+    long hash(final N node) {
+        final Long cached = this.hashes.get(node);
+        return null != cached ?
+            cached :
+            this.compute(node);
+    }
+
+    /**
+     * Walks the node and its descendants depth first, finishing a node once all its children are hashed. Each frame
+     * keeps the children list it was started with, so the cached keys are the same instances that were visited.
+     */
+    private long compute(final N node) {
+        final Map<N, Long> hashes = this.hashes;
+
+        final List<N> nodes = Lists.array();
+        final List<List<N>> childrens = Lists.array();
+        final List<Integer> indices = Lists.array();
+        final List<Long> accumulators = Lists.array();
+
+        nodes.add(node);
+        childrens.add(node.children());
+        indices.add(0);
+        accumulators.add(0L);
+
+        long hash = 0;
+
+        while (!nodes.isEmpty()) {
+            final int top = nodes.size() - 1;
+            final List<N> children = childrens.get(top);
+            final int index = indices.get(top);
+
+            if (index < children.size()) {
+                final N child = children.get(index);
+                final Long childHash = hashes.get(child);
+                if (null == childHash) {
+                    nodes.add(child);
+                    childrens.add(child.children());
+                    indices.add(0);
+                    accumulators.add(0L);
+                } else {
+                    accumulators.set(top, combine(accumulators.get(top), children, child, childHash));
+                    indices.set(top, index + 1);
+                }
+            } else {
+                final N finished = nodes.remove(top);
+                childrens.remove(top);
+                indices.remove(top);
+
+                hash = finish(finished, children, accumulators.remove(top));
+                hashes.put(finished, hash);
+
+                if (top > 0) {
+                    final int parent = top - 1;
+                    final List<N> parentChildren = childrens.get(parent);
+                    final int parentIndex = indices.get(parent);
+
+                    accumulators.set(
+                        parent,
+                        combine(accumulators.get(parent), parentChildren, parentChildren.get(parentIndex), hash)
+                    );
+                    indices.set(parent, parentIndex + 1);
+                }
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Adds the hash of a child to the hash of its siblings. Children with unique names are combined with their name
+     * and in any order, as their parent may not consider order when testing equality, otherwise in order.
+     */
+    private static <N extends Node<N, ?, ?, ?>> long combine(final long accumulator,
+                                                           final List<N> children,
+                                                           final N child,
+                                                           final long hash) {
+        return children.get(0).hasUniqueNameAmongstSiblings() ?
+            accumulator + mix(31L * child.name().hashCode() + hash) :
+            31L * accumulator + hash;
+    }
+
+    /**
+     * Combines the hash of the node without its children with the hash of its children.
+     */
+    private static <N extends Node<N, ?, ?, ?>> long finish(final N node,
+                                                          final List<N> children,
+                                                          final long childrenHash) {
+        final N withoutParent = node.removeParent();
+        final N withoutChildren = children.isEmpty() ?
+            withoutParent :
+            withoutParent.setChildren(Lists.empty());
+
+        return mix(
+            mix(withoutChildren.hashCode()) ^ (31L * childrenHash + children.size())
+        );
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads the bits of the value across the whole hash.
+     */
+    private static long mix(final long value) {
+        long mixed = value;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xbf58476d1ce4e5b9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    /**
+     * The number of nodes hashed.
+     */
+    int size() {
+        return this.hashes.size();
+    }
+
+    private final Map<N, Long> hashes = new IdentityHashMap<>();
+
+    @Override
+    public String toString() {
+        return this.size() + " hashes";
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.NeverError;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rewrites the operations recorded by {@link NodePatchDiff}, replacing the removal of a sub tree and an add of the same
+ * sub tree elsewhere with a move, and an add of a sub tree that is already present with a copy, so the value is not
+ * repeated in the {@link NodePatch}. Only sub trees with children are moved or copied, leaves are left as removes and
+ * adds.<br>
+ * Removed sub trees and sub trees that may be copied are indexed by their {@link NodePatchDiffHashes} hash. A copy
+ * never changes the tree, but a move keeps the node between the remove and the add, or takes it away early when the
+ * add comes first, so the paths of the operations in between are shifted to step over the node. If any of those
+ * operations touches the node or one of its ancestors, the remove and add are left unchanged.
+ */
+final class NodePatchDiffMoves<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffMoves<N, NAME> with(final NodePatchDiffHashes<N> hashes) {
+        return new NodePatchDiffMoves<>(hashes);
+    }
+
+    private NodePatchDiffMoves(final NodePatchDiffHashes<N> hashes) {
+        super();
+        this.hashes = hashes;
+    }
+
+    // sources..........................................................................................................
+
+    /**
+     * Records a sub tree that is the same in before and after, which stays at the given path once the given number of
+     * operations have been applied, and may then be copied.
+     */
+    void unchanged(final N node,
+                   final Object[] path,
+                   final int time) {
+        if (movable(node)) {
+            this.source(node, path, time);
+            this.unchanged.add(this.sourceNodes.size() - 1);
+        }
+    }
+
+    /**
+     * Adds the descendants of all unchanged sub trees as sources. This is only done once the first add is not matched
+     * by any other source, because it walks every unchanged node, which the diff itself skips.
+     */
+    private void expandUnchanged() {
+        final List<N> nodes = Lists.array();
+        final List<Object[]> paths = Lists.array();
+        final List<Integer> times = Lists.array();
+
+        for (final Integer source : this.unchanged) {
+            nodes.add(this.sourceNodes.get(source));
+            paths.add(this.sourcePaths.get(source));
+            times.add(this.sourceTimes.get(source));
+        }
+        this.unchanged.clear();
+
+        while (!nodes.isEmpty()) {
+            final int last = nodes.size() - 1;
+            final N node = nodes.remove(last);
+            final Object[] path = paths.remove(last);
+            final int time = times.remove(last);
+
+            for (final N child : node.children()) {
+                if (movable(child)) {
+                    final Object[] childPath = Arrays.copyOf(path, path.length + 1);
+                    childPath[path.length] = child.hasUniqueNameAmongstSiblings() ?
+                        child.name() :
+                        child.index();
+
+                    this.source(child, childPath, time);
+
+                    nodes.add(child);
+                    paths.add(childPath);
+                    times.add(time);
+                }
+            }
+        }
+    }
+
+    private void source(final N node,
+                        final Object[] path,
+                        final int time) {
+        final int source = this.sourceNodes.size();
+        this.sourceNodes.add(node);
+        this.sourcePaths.add(path);
+        this.sourceTimes.add(time);
+
+        this.sourcesByHash.computeIfAbsent(
+            this.hashes.hash(node),
+            (h) -> Lists.array()
+        ).add(source);
+    }
+
+    /**
+     * Returns the first source equal to the node that is present before the operation at the given time, or -1.
+     */
+    private int findSource(final long hash,
+                           final N node,
+                           final int time) {
+        int found = this.findSource0(hash, node, time);
+        if (-1 == found && !this.unchanged.isEmpty()) {
+            this.expandUnchanged();
+            found = this.findSource0(hash, node, time);
+        }
+        return found;
+    }
+
+    private int findSource0(final long hash,
+                            final N node,
+                            final int time) {
+        int found = -1;
+
+        final List<Integer> sources = this.sourcesByHash.get(hash);
+        if (null != sources) {
+            for (final Integer source : sources) {
+                if (this.sourceTimes.get(source) <= time && NodePatchDiff.equalIgnoringParents(this.sourceNodes.get(source), node)) {
+                    found = source;
+                    break;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    private final List<N> sourceNodes = Lists.array();
+    private final List<Object[]> sourcePaths = Lists.array();
+    private final List<Integer> sourceTimes = Lists.array();
+    private final Map<Long, List<Integer>> sourcesByHash = new HashMap<>();
+
+    /**
+     * The sources recorded by {@link #unchanged(Node, Object[], int)} whose descendants have not yet been added.
+     */
+    private final List<Integer> unchanged = Lists.array();
+
+    // detect...........................................................................................................
+
+    /**
+     * Matches each add of a sub tree with an earlier or later remove of the same sub tree, or else with a source to
+     * copy, and then replaces each matched remove and add with a move.
+     */
+    void detect(final List<NodePatchDiffOperation<N, NAME>> operations) {
+        final int count = operations.size();
+
+        final Map<Long, List<Integer>> removes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final NodePatchDiffOperation<N, NAME> operation = operations.get(i);
+            if (NodePatchPlan.REMOVE == operation.opcode && movable(operation.value)) {
+                removes.computeIfAbsent(
+                    this.hashes.hash(operation.value),
+                    (h) -> Lists.array()
+                ).add(i);
+            }
+        }
+
+        final List<Integer> moveRemoves = Lists.array();
+        final List<Integer> moveAdds = Lists.array();
+
+        for (int i = 0; i < count; i++) {
+            final NodePatchDiffOperation<N, NAME> operation = operations.get(i);
+            if (NodePatchPlan.ADD == operation.opcode && movable(operation.value)) {
+                final N value = operation.value;
+                final long hash = this.hashes.hash(value);
+
+                final int remove = takeRemove(
+                    removes.get(hash),
+                    value,
+                    operations
+                );
+                if (-1 != remove) {
+                    moveRemoves.add(remove);
+                    moveAdds.add(i);
+                } else {
+                    final int source = this.findSource(hash, value, i);
+                    if (-1 != source) {
+                        operations.set(
+                            i,
+                            NodePatchDiffOperation.copy(
+                                this.sourcePaths.get(source),
+                                operation.path,
+                                value
+                            )
+                        );
+                    }
+                }
+
+                this.source(value, operation.path, i + 1);
+            }
+        }
+
+        final int moveCount = moveRemoves.size();
+        for (int i = 0; i < moveCount; i++) {
+            move(
+                moveRemoves.get(i),
+                moveAdds.get(i),
+                operations
+            );
+        }
+
+        operations.removeIf(Objects::isNull);
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> int takeRemove(final List<Integer> removes,
+                                                                                     final N value,
+                                                                                     final List<NodePatchDiffOperation<N, NAME>> operations) {
+        int found = -1;
+
+        if (null != removes) {
+            final int count = removes.size();
+            for (int i = 0; i < count; i++) {
+                final int remove = removes.get(i);
+                if (NodePatchDiff.equalIgnoringParents(operations.get(remove).value, value)) {
+                    removes.remove(i);
+                    found = remove;
+                    break;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Only nodes with children are moved or copied.
+     */
+    static boolean movable(final Node<?, ?, ?, ?> node) {
+        return !node.children().isEmpty();
+    }
+
+    // move.............................................................................................................
+
+    /**
+     * Replaces the remove and add at the given indices with a move, shifting the paths of the operations between
+     * them, or does nothing if any of them touches the moved node or its ancestors.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> void move(final int remove,
+                                                                                final int add,
+                                                                                final List<NodePatchDiffOperation<N, NAME>> operations) {
+        final NodePatchDiffOperation<N, NAME> adding = operations.get(add);
+
+        // the path of the node, updated as it is walked past each operation
+        final Object[] node = operations.get(remove).path.clone();
+        Object[] from = null;
+        Object[] to = adding.path;
+
+        final boolean inserted = remove < add;
+        final int start;
+        final int end;
+
+        if (inserted) {
+            // the node stays until the add
+            start = remove + 1;
+            end = add;
+        } else {
+            // the node is taken at the add, walk back to find its path before the add
+            for (int i = remove - 1; i >= add; i--) {
+                final NodePatchDiffOperation<N, NAME> operation = operations.get(i);
+                if (null != operation && !unshift(operation, node)) {
+                    return;
+                }
+            }
+
+            from = node.clone();
+            to = shift(to, ADDED, node, false);
+            if (null == to) {
+                return;
+            }
+
+            start = add + 1;
+            end = remove;
+        }
+
+        final List<NodePatchDiffOperation<N, NAME>> shifted = Lists.array();
+        for (int i = start; i < end; i++) {
+            final NodePatchDiffOperation<N, NAME> operation = operations.get(i);
+            NodePatchDiffOperation<N, NAME> shift = null;
+            if (null != operation) {
+                shift = shift(operation, node, inserted);
+                if (null == shift) {
+                    return;
+                }
+            }
+            shifted.add(shift);
+        }
+
+        if (inserted) {
+            from = node;
+        }
+
+        // moving a node inside itself is not allowed
+        if (from.length < to.length && commonPrefixLength(from, to) == from.length) {
+            return;
+        }
+
+        for (int i = start; i < end; i++) {
+            operations.set(i, shifted.get(i - start));
+        }
+        operations.set(remove, null);
+        operations.set(
+            add,
+            Arrays.equals(from, to) ?
+                null :
+                NodePatchDiffOperation.move(from, to, adding.value)
+        );
+    }
+
+    /**
+     * Shifts the paths of the operation, which are relative to the tree without the node if inserted is true,
+     * otherwise with the node, to the tree with or without the node. Null is returned if the operation touches the node.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> shift(final NodePatchDiffOperation<N, NAME> operation,
+                                                                                                         final Object[] node,
+                                                                                                         final boolean inserted) {
+        Object[] from = operation.from;
+        Object[] path = operation.path;
+
+        switch (operation.opcode) {
+            case NodePatchPlan.ADD:
+                path = shift(path, ADDED, node, inserted);
+                break;
+            case NodePatchPlan.COPY:
+                from = shift(from, REFERENCED, node, inserted);
+                path = null != from ?
+                    shift(path, ADDED, node, inserted) :
+                    null;
+                break;
+            case NodePatchPlan.MOVE:
+                from = shift(from, REMOVED, node, inserted);
+                path = null != from ?
+                    shift(path, ADDED, node, inserted) :
+                    null;
+                break;
+            case NodePatchPlan.REMOVE:
+                path = shift(path, REMOVED, node, inserted);
+                break;
+            case NodePatchPlan.REPLACE:
+                path = shift(path, REFERENCED, node, inserted);
+                break;
+            default:
+                NeverError.unhandledCase(operation.opcode, NodePatchPlan.ADD, NodePatchPlan.COPY, NodePatchPlan.MOVE, NodePatchPlan.REMOVE, NodePatchPlan.REPLACE);
+        }
+
+        return null != path ?
+            operation.setPaths(from, path) :
+            null;
+    }
+
+    /**
+     * Shifts a single path, updating the path of the node if the path adds or removes a node before it.
+     */
+    private static Object[] shift(final Object[] path,
+                                  final int kind,
+                                  final Object[] node,
+                                  final boolean inserted) {
+        final int length = path.length;
+        final int depth = node.length - 1;
+        final int common = commonPrefixLength(path, node);
+
+        Object[] shifted = path;
+
+        if (length <= depth) {
+            // the path is above the node, where the tree with and without the node are the same
+            final int last = length - 1;
+
+            if (common == length) {
+                // an ancestor of the node
+                if (ADDED == kind && path[last] instanceof Integer) {
+                    node[last] = (Integer) node[last] + 1;
+                } else {
+                    shifted = null;
+                }
+            } else {
+                if (common == last && path[last] instanceof Integer && node[last] instanceof Integer) {
+                    if ((Integer) path[last] < (Integer) node[last]) {
+                        shiftNode(kind, node, last);
+                    }
+                }
+            }
+        } else {
+            if (common >= depth) {
+                final Object token = path[depth];
+                final Object nodeToken = node[depth];
+
+                if (token instanceof Integer && nodeToken instanceof Integer) {
+                    // the path is in the same array as the node
+                    final int index = (Integer) token;
+                    final int nodeIndex = (Integer) nodeToken;
+                    final boolean sibling = length == depth + 1;
+
+                    if (index < nodeIndex || index == nodeIndex && sibling && ADDED == kind) {
+                        if (sibling) {
+                            shiftNode(kind, node, depth);
+                        }
+                    } else {
+                        if (inserted) {
+                            shifted = shiftIndex(path, depth, index + 1);
+                        } else {
+                            shifted = index == nodeIndex ?
+                                null :
+                                shiftIndex(path, depth, index - 1);
+                        }
+                    }
+                } else {
+                    if (common > depth) {
+                        // the named node or inside it
+                        shifted = null;
+                    }
+                }
+            }
+        }
+
+        return shifted;
+    }
+
+    private static void shiftNode(final int kind,
+                                  final Object[] node,
+                                  final int depth) {
+        switch (kind) {
+            case ADDED:
+                node[depth] = (Integer) node[depth] + 1;
+                break;
+            case REMOVED:
+                node[depth] = (Integer) node[depth] - 1;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Object[] shiftIndex(final Object[] path,
+                                       final int depth,
+                                       final int index) {
+        final Object[] shifted = path.clone();
+        shifted[depth] = index;
+        return shifted;
+    }
+
+    /**
+     * Walks the path of the node back before the operation, returning false if the operation touches the node or one
+     * of its ancestors.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> boolean unshift(final NodePatchDiffOperation<N, NAME> operation,
+                                                                                      final Object[] node) {
+        final boolean unshifted;
+
+        switch (operation.opcode) {
+            case NodePatchPlan.ADD:
+                unshifted = unshift(operation.path, ADDED, node);
+                break;
+            case NodePatchPlan.COPY:
+                unshifted = unshift(operation.path, ADDED, node) &&
+                    unshift(operation.from, REFERENCED, node);
+                break;
+            case NodePatchPlan.MOVE:
+                unshifted = unshift(operation.path, ADDED, node) &&
+                    unshift(operation.from, REMOVED, node);
+                break;
+            case NodePatchPlan.REMOVE:
+                unshifted = unshift(operation.path, REMOVED, node);
+                break;
+            case NodePatchPlan.REPLACE:
+                unshifted = unshift(operation.path, REFERENCED, node);
+                break;
+            default:
+                unshifted = false;
+                NeverError.unhandledCase(operation.opcode, NodePatchPlan.ADD, NodePatchPlan.COPY, NodePatchPlan.MOVE, NodePatchPlan.REMOVE, NodePatchPlan.REPLACE);
+        }
+
+        return unshifted;
+    }
+
+    private static boolean unshift(final Object[] path,
+                                   final int kind,
+                                   final Object[] node) {
+        final int length = path.length;
+        final int last = length - 1;
+        final int common = commonPrefixLength(path, node);
+
+        boolean unshifted = true;
+
+        if (length <= node.length) {
+            if (common >= last) {
+                if (path[last] instanceof Integer && node[last] instanceof Integer) {
+                    final int index = (Integer) path[last];
+                    final int nodeIndex = (Integer) node[last];
+
+                    switch (kind) {
+                        case ADDED:
+                            if (index < nodeIndex) {
+                                node[last] = nodeIndex - 1;
+                            } else {
+                                unshifted = index != nodeIndex;
+                            }
+                            break;
+                        case REMOVED:
+                            if (index <= nodeIndex) {
+                                node[last] = nodeIndex + 1;
+                            }
+                            break;
+                        default:
+                            unshifted = index != nodeIndex;
+                            break;
+                    }
+                } else {
+                    unshifted = common < length;
+                }
+            }
+        } else {
+            unshifted = common < node.length;
+        }
+
+        return unshifted;
+    }
+
+    private static int commonPrefixLength(final Object[] path,
+                                          final Object[] other) {
+        final int length = Math.min(path.length, other.length);
+
+        int common = 0;
+        while (common < length && path[common].equals(other[common])) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * How a path changes the tree.
+     */
+    private final static int ADDED = 0;
+    private final static int REMOVED = 1;
+    private final static int REFERENCED = 2;
+
+    private final NodePatchDiffHashes<N> hashes;
+
+    @Override
+    public String toString() {
+        return this.sourceNodes.size() + " sources";
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.NeverError;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.Arrays;
+
+/**
+ * A single operation recorded by {@link NodePatchDiff} or {@link NodePatchRebase}, holding its paths as tokens, which
+ * are either a {@link Name}, an {@link Integer} index or {@link NodePatchPath#APPEND}, so {@link NodePatchDiffMoves}
+ * and {@link NodePatchRebase} can shift them before the {@link NodePatch} is built.
+ */
+final class NodePatchDiffOperation<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> add(final Object[] path,
+                                                                                                  final N value) {
+        return new NodePatchDiffOperation<>(NodePatchPlan.ADD, null, path, value);
+    }
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> copy(final Object[] from,
+                                                                                                   final Object[] path,
+                                                                                                   final N value) {
+        return new NodePatchDiffOperation<>(NodePatchPlan.COPY, from, path, value);
+    }
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> move(final Object[] from,
+                                                                                                   final Object[] path,
+                                                                                                   final N value) {
+        return new NodePatchDiffOperation<>(NodePatchPlan.MOVE, from, path, value);
+    }
+
+    /**
+     * The removed node is kept so it may be matched with an add of the same sub tree.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> remove(final Object[] path,
+                                                                                                     final N removed) {
+        return new NodePatchDiffOperation<>(NodePatchPlan.REMOVE, null, path, removed);
+    }
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> replace(final Object[] path,
+                                                                                                      final N value) {
+        return new NodePatchDiffOperation<>(NodePatchPlan.REPLACE, null, path, value);
+    }
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> test(final Object[] path,
+                                                                                                   final N value) {
+        return new NodePatchDiffOperation<>(NodePatchPlan.TEST, null, path, value);
+    }
+
+    private NodePatchDiffOperation(final int opcode,
+                                   final Object[] from,
+                                   final Object[] path,
+                                   final N value) {
+        super();
+        this.opcode = opcode;
+        this.from = from;
+        this.path = path;
+        this.value = value;
+    }
+
+    /**
+     * Returns an operation with the same opcode and value but different paths.
+     */
+    NodePatchDiffOperation<N, NAME> setPaths(final Object[] from,
+                                             final Object[] path) {
+        return Arrays.equals(this.from, from) && Arrays.equals(this.path, path) ?
+            this :
+            new NodePatchDiffOperation<>(this.opcode, from, path, this.value);
+    }
+
+    /**
+     * Appends this operation to the builder.
+     */
+    void build(final NodePatchBuilder<N, NAME> builder,
+               final Class<N> type) {
+        final NodePointer<N, NAME> path = pointer(this.path, type);
+
+        switch (this.opcode) {
+            case NodePatchPlan.ADD:
+                builder.add(path, this.value);
+                break;
+            case NodePatchPlan.COPY:
+                builder.copy(pointer(this.from, type), path);
+                break;
+            case NodePatchPlan.MOVE:
+                builder.move(pointer(this.from, type), path);
+                break;
+            case NodePatchPlan.REMOVE:
+                builder.remove(path);
+                break;
+            case NodePatchPlan.REPLACE:
+                builder.replace(path, this.value);
+                break;
+            case NodePatchPlan.TEST:
+                builder.test(path, this.value);
+                break;
+            default:
+                NeverError.unhandledCase(this.opcode, NodePatchPlan.ADD, NodePatchPlan.COPY, NodePatchPlan.MOVE, NodePatchPlan.REMOVE, NodePatchPlan.REPLACE, NodePatchPlan.TEST);
+        }
+    }
+
+    /**
+     * Builds a {@link NodePointer} from tokens that are either a {@link Name}, an {@link Integer} index or
+     * {@link NodePatchPath#APPEND}, returning null when there are none.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePointer<N, NAME> pointer(final Object[] tokens,
+                                                                                           final Class<N> type) {
+        NodePointer<N, NAME> pointer = null;
+
+        for (final Object token : tokens) {
+            if (token instanceof Integer) {
+                final int index = (Integer) token;
+                pointer = null == pointer ?
+                    NodePointer.indexed(index, type) :
+                    pointer.indexed(index);
+            } else if (NodePatchPath.APPEND.equals(token)) {
+                pointer = null == pointer ?
+                    NodePointer.<N, NAME>any(type).append() :
+                    pointer.append();
+            } else {
+                final NAME name = Cast.to(token);
+                pointer = null == pointer ?
+                    NodePointer.named(name, type) :
+                    pointer.named(name);
+            }
+        }
+
+        return pointer;
+    }
+
+    /**
+     * One of the {@link NodePatchPlan} opcodes.
+     */
+    final int opcode;
+
+    /**
+     * The path of the copied or moved node, otherwise null.
+     */
+    final Object[] from;
+
+    final Object[] path;
+
+    /**
+     * The added, copied, moved or replacing value, or the removed node.
+     */
+    final N value;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+
+        switch (this.opcode) {
+            case NodePatchPlan.ADD:
+                b.append(NodePatch.ADD);
+                break;
+            case NodePatchPlan.COPY:
+                b.append(NodePatch.COPY);
+                break;
+            case NodePatchPlan.MOVE:
+                b.append(NodePatch.MOVE);
+                break;
+            case NodePatchPlan.REMOVE:
+                b.append(NodePatch.REMOVE);
+                break;
+            case NodePatchPlan.REPLACE:
+                b.append(NodePatch.REPLACE);
+                break;
+            case NodePatchPlan.TEST:
+                b.append(NodePatch.TEST);
+                break;
+            default:
+                NeverError.unhandledCase(this.opcode, NodePatchPlan.ADD, NodePatchPlan.COPY, NodePatchPlan.MOVE, NodePatchPlan.REMOVE, NodePatchPlan.REPLACE, NodePatchPlan.TEST);
+        }
+
+        if (null != this.from) {
+            toString(" from=", this.from, b);
+        }
+        toString(" path=", this.path, b);
+
+        if (NodePatchPlan.ADD == this.opcode || NodePatchPlan.REPLACE == this.opcode || NodePatchPlan.TEST == this.opcode) {
+            b.append(" value=")
+                .append(NodePatchMessages.node(this.value));
+        }
+
+        return b.toString();
+    }
+
+    private static void toString(final String label,
+                                 final Object[] tokens,
+                                 final StringBuilder b) {
+        b.append(label);
+        for (final Object token : tokens) {
+            b.append('/')
+                .append(token);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Objects;
+
+/**
+ * The result of {@link NodePatchDiffer#diffResult(Node, Node)}, holding the patch and whether it is approximate. An
+ * approximate patch is still valid and transforms before into after, but replaces some sub trees or pairs some children
+ * by position rather than diffing them, because a limit of the {@link NodePatchDiffer} was reached.
+ */
+public final class NodePatchDiffResult<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffResult<N, NAME> with(final NodePatch<N, NAME> patch,
+                                                                                               final boolean approximate) {
+        return new NodePatchDiffResult<>(patch, approximate);
+    }
+
+    private NodePatchDiffResult(final NodePatch<N, NAME> patch,
+                                final boolean approximate) {
+        super();
+        this.patch = patch;
+        this.approximate = approximate;
+    }
+
+    /**
+     * The patch that transforms before into after.
+     */
+    public NodePatch<N, NAME> patch() {
+        return this.patch;
+    }
+
+    private final NodePatch<N, NAME> patch;
+
+    /**
+     * Returns true if a limit was reached, so the patch may contain more or larger operations than needed.
+     */
+    public boolean isApproximate() {
+        return this.approximate;
+    }
+
+    private final boolean approximate;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.patch, this.approximate);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchDiffResult && this.equals0((NodePatchDiffResult<?, ?>) other);
+    }
+
+    private boolean equals0(final NodePatchDiffResult<?, ?> other) {
+        return this.approximate == other.approximate &&
+            this.patch.equals(other.patch);
+    }
+
+    @Override
+    public String toString() {
+        return (this.approximate ? "approximate " : "") + NodePatchMessages.patch(this.patch);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Holds the options used by {@link NodePatch#diff(Node, Node)} to compute a {@link NodePatch} that transforms one
+ * {@link Node} into another. Instances are immutable, and each setter returns a new instance if the value is different.
+ */
+public final class NodePatchDiffer<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * The default maximum number of adds and removes searched for when diffing children matched by index.
+     */
+    final static int DEFAULT_ARRAY_EDIT_LIMIT = 1000;
+
+    /**
+     * By default the number of nodes visited is unlimited.
+     */
+    final static int DEFAULT_VISIT_LIMIT = Integer.MAX_VALUE;
+
+    /**
+     * Returns a {@link NodePatchDiffer} with the default options.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffer<N, NAME> with(final Class<N> type) {
+        Objects.requireNonNull(type, "type");
+
+        return Cast.to(DEFAULT);
+    }
+
+    private final static NodePatchDiffer<?, ?> DEFAULT = new NodePatchDiffer<>(
+        DEFAULT_ARRAY_EDIT_LIMIT,
+        Optional.empty(),
+        DEFAULT_VISIT_LIMIT
+    );
+
+    private NodePatchDiffer(final int arrayEditLimit,
+                            final Optional<Function<N, Object>> arrayKey,
+                            final int visitLimit) {
+        super();
+        this.arrayEditLimit = arrayEditLimit;
+        this.arrayKey = arrayKey;
+        this.visitLimit = visitLimit;
+    }
+
+    /**
+     * Computes a patch that transforms before into after using these options.
+     */
+    public NodePatch<N, NAME> diff(final N before,
+                                   final N after) {
+        return this.diffResult(before, after)
+            .patch();
+    }
+
+    /**
+     * Computes a patch that transforms before into after using these options, also reporting whether the patch is
+     * approximate because the {@link #visitLimit()} or {@link #arrayEditLimit()} was reached.
+     */
+    public NodePatchDiffResult<N, NAME> diffResult(final N before,
+                                                   final N after) {
+        Objects.requireNonNull(before, "before");
+        Objects.requireNonNull(after, "after");
+
+        return NodePatchDiff.diff(
+            this,
+            before,
+            after
+        );
+    }
+
+    // arrayEditLimit...................................................................................................
+
+    /**
+     * Children matched by index are diffed using the Myers O(ND) algorithm, which finds the fewest adds and removes,
+     * taking time proportional to the number of children times the number of edits found. When more than this number
+     * of edits is needed, the remaining children are matched by position in linear time instead.
+     */
+    public int arrayEditLimit() {
+        return this.arrayEditLimit;
+    }
+
+    public NodePatchDiffer<N, NAME> setArrayEditLimit(final int arrayEditLimit) {
+        if (arrayEditLimit < 0) {
+            throw new IllegalArgumentException("Invalid arrayEditLimit " + arrayEditLimit + " < 0");
+        }
+
+        return this.arrayEditLimit == arrayEditLimit ?
+            this :
+            new NodePatchDiffer<>(
+                arrayEditLimit,
+                this.arrayKey,
+                this.visitLimit
+            );
+    }
+
+    private final int arrayEditLimit;
+
+    // arrayKey.........................................................................................................
+
+    /**
+     * When present, children matched by index are instead matched by the key returned by this function, such as an id
+     * property of each element, using a hash map in linear time. Matched children that changed position are moved,
+     * keeping the longest run already in order in place, and matched children are then diffed. Children are matched by
+     * index when any child has a null key, or two children of before or of after have the same key.
+     */
+    public Optional<Function<N, Object>> arrayKey() {
+        return this.arrayKey;
+    }
+
+    public NodePatchDiffer<N, NAME> setArrayKey(final Optional<Function<N, Object>> arrayKey) {
+        Objects.requireNonNull(arrayKey, "arrayKey");
+
+        return this.arrayKey.equals(arrayKey) ?
+            this :
+            new NodePatchDiffer<>(
+                this.arrayEditLimit,
+                arrayKey,
+                this.visitLimit
+            );
+    }
+
+    private final Optional<Function<N, Object>> arrayKey;
+
+    // visitLimit.......................................................................................................
+
+    /**
+     * The maximum number of child nodes visited and compared, which bounds the time taken to diff large or
+     * pathological trees, apart from hashing each node once. Once reached, the pairs of nodes not yet diffed are
+     * replaced, and children matched by index are paired by position, so the patch is still valid but approximate.
+     */
+    public int visitLimit() {
+        return this.visitLimit;
+    }
+
+    public NodePatchDiffer<N, NAME> setVisitLimit(final int visitLimit) {
+        if (visitLimit < 0) {
+            throw new IllegalArgumentException("Invalid visitLimit " + visitLimit + " < 0");
+        }
+
+        return this.visitLimit == visitLimit ?
+            this :
+            new NodePatchDiffer<>(
+                this.arrayEditLimit,
+                this.arrayKey,
+                visitLimit
+            );
+    }
+
+    private final int visitLimit;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            this.arrayEditLimit,
+            this.arrayKey,
+            this.visitLimit
+        );
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchDiffer && this.equals0(Cast.to(other));
+    }
+
+    private boolean equals0(final NodePatchDiffer<?, ?> other) {
+        return this.arrayEditLimit == other.arrayEditLimit &&
+            this.arrayKey.equals(other.arrayKey) &&
+            this.visitLimit == other.visitLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "arrayEditLimit=" + this.arrayEditLimit +
+            this.arrayKey.map(k -> " arrayKey=" + k)
+                .orElse("") +
+            (DEFAULT_VISIT_LIMIT != this.visitLimit ? " visitLimit=" + this.visitLimit : "");
+    }
+}
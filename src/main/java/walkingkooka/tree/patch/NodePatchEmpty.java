@@ -63,21 +63,41 @@ final class NodePatchEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Name> ext
      * Adding a patch to this returns the patch.
      */
     @Override
-    NodePatchNonEmpty<N, NAME> append0(final NodePatchNonEmpty<N, NAME> next) {
-        return next;
+    NodePatch<N, NAME> append(final NodePatchNonEmpty<N, NAME> operation) {
+        return operation;
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    NodePatchNonEmpty<N, NAME> operation(final int index) {
+        throw new UnsupportedOperationException(); // never
     }
 
     /**
-     * Do nothing and return the original {@link Node}.
+     * The only valid sub patch of an empty patch is itself.
      */
     @Override
-    N apply0(final N node, final NodePointer<N, NAME> start) {
-        return node;
+    NodePatch<N, NAME> subPatch0(final int from,
+                                 final int to) {
+        return this;
     }
 
     @Override
-    NodePatchNonEmpty<N, NAME> nextOrNull() {
-        return null; // end of patch.
+    int copyOperations(final NodePatchNonEmpty<N, NAME>[] target,
+                       final int index) {
+        return index;
+    }
+
+    /**
+     * Do nothing and return the original {@link Node}.
+     */
+    @Override
+    N apply0(final N node, final NodePointer<N, NAME> start) {
+        return node;
     }
 
     @Override
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Describes why a patch would fail or failed, holding the index of the failing operation within the patch, the
+ * operation itself and a message.
+ */
+public final class NodePatchFailure<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchFailure<N, NAME> with(final int index,
+                                                                                            final NodePatch<N, NAME> operation,
+                                                                                            final String message) {
+        return with(
+            index,
+            operation,
+            () -> message
+        );
+    }
+
+    /**
+     * Creates a failure whose message is only built when first requested.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchFailure<N, NAME> with(final int index,
+                                                                                            final NodePatch<N, NAME> operation,
+                                                                                            final Supplier<String> message) {
+        return new NodePatchFailure<>(index, operation, message);
+    }
+
+    private NodePatchFailure(final int index,
+                             final NodePatch<N, NAME> operation,
+                             final Supplier<String> message) {
+        super();
+        this.index = index;
+        this.operation = operation;
+        this.messageSupplier = message;
+    }
+
+    /**
+     * The index of the failing operation within the patch.
+     */
+    public int index() {
+        return this.index;
+    }
+
+    private final int index;
+
+    /**
+     * The failing operation.
+     */
+    public NodePatch<N, NAME> operation() {
+        return this.operation;
+    }
+
+    private final NodePatch<N, NAME> operation;
+
+    /**
+     * A message describing the failure.
+     */
+    public String message() {
+        String message = this.message;
+
+        if (null == message) {
+            // the supplier returns the same message every time, so threads racing here agree
+            message = this.messageSupplier.get();
+            this.message = message;
+        }
+
+        return message;
+    }
+
+    /**
+     * Builds the message when first requested.
+     */
+    private final Supplier<String> messageSupplier;
+
+    /**
+     * The message built by {@link #messageSupplier}, volatile as failures are often read by other threads.
+     */
+    private volatile String message;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.index, this.operation, this.message());
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchFailure && this.equals0((NodePatchFailure<?, ?>) other);
+    }
+
+    private boolean equals0(final NodePatchFailure<?, ?> other) {
+        return this.index == other.index &&
+            this.operation.equals(other.operation) &&
+            this.message().equals(other.message());
+    }
+
+    @Override
+    public String toString() {
+        return "#" + this.index + " " + NodePatchMessages.patch(this.operation) + " " + this.message();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Objects;
+
+/**
+ * The result of {@link NodePatch#applyWithInverse(Node)}, holding the patched node and a patch that undoes the patch,
+ * returning a node equal to the original when applied to the patched node.
+ */
+public final class NodePatchInverseResult<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchInverseResult<N, NAME> with(final N value,
+                                                                                                  final NodePatch<N, NAME> inverse) {
+        return new NodePatchInverseResult<>(value, inverse);
+    }
+
+    private NodePatchInverseResult(final N value,
+                                   final NodePatch<N, NAME> inverse) {
+        super();
+        this.value = value;
+        this.inverse = inverse;
+    }
+
+    /**
+     * The patched node.
+     */
+    public N value() {
+        return this.value;
+    }
+
+    private final N value;
+
+    /**
+     * The patch that undoes the patch.
+     */
+    public NodePatch<N, NAME> inverse() {
+        return this.inverse;
+    }
+
+    private final NodePatch<N, NAME> inverse;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.value, this.inverse);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchInverseResult && this.equals0((NodePatchInverseResult<?, ?>) other);
+    }
+
+    private boolean equals0(final NodePatchInverseResult<?, ?> other) {
+        return this.value.equals(other.value) &&
+            this.inverse.equals(other.inverse);
+    }
+
+    /**
+     * The value is not included as it may be a large document.
+     */
+    @Override
+    public String toString() {
+        return NodePatchMessages.patch(this.inverse);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonString;
+
+import java.util.List;
+
+/**
+ * Renders nodes and patches for failure messages, capping the amount of text so a failure on a large document never
+ * renders the whole document. Only names and the values of {@link JsonString} are measured before rendering, long
+ * text held by other leaves is still rendered before it is abbreviated.
+ */
+final class NodePatchMessages {
+
+    /**
+     * The maximum number of characters rendered before the text is abbreviated.
+     */
+    final static int MAX_LENGTH = 500;
+
+    /**
+     * Nodes with more descendants than this are described rather than rendered.
+     */
+    final static int MAX_NODES = 100;
+
+    /**
+     * Renders small nodes abbreviated and describes larger nodes by their pointer and number of children, without
+     * rendering them. A {@link JsonString} is cut to {@link #MAX_LENGTH} characters before it is rendered.
+     */
+    static String node(final Node<?, ?, ?, ?> node) {
+        final String text;
+
+        if (node instanceof JsonString) {
+            final String value = ((JsonString) node).value();
+            text = abbreviate(
+                value.length() > MAX_LENGTH ?
+                    JsonNode.string(value.substring(0, MAX_LENGTH)).toString() :
+                    node.toString()
+            );
+        } else {
+            text = isSmall(node) ?
+                abbreviate(node.toString()) :
+                node.pointer() + " (" + node.children().size() + " children)";
+        }
+
+        return text;
+    }
+
+    /**
+     * Visits at most {@link #MAX_NODES} nodes, returning true if that covered the entire tree and the names of the
+     * children and any {@link JsonString} values hold no more than {@link #MAX_LENGTH} characters, so rendering is
+     * bounded even for leaves holding long text.
+     */
+    private static boolean isSmall(final Node<?, ?, ?, ?> node) {
+        final List<Node<?, ?, ?, ?>> pending = Lists.array();
+        pending.add(node);
+
+        // pending nodes are counted when added, so a node with many children is rejected without copying them
+        int count = 1;
+        int length = length(node);
+        boolean small = length <= MAX_LENGTH;
+
+        while (small && !pending.isEmpty()) {
+            final List<? extends Node<?, ?, ?, ?>> children = pending.remove(pending.size() - 1)
+                .children();
+
+            count += children.size();
+            small = count <= MAX_NODES;
+            if (small) {
+                for (final Node<?, ?, ?, ?> child : children) {
+                    length += child.name().value().length() + length(child);
+                }
+                small = length <= MAX_LENGTH;
+                pending.addAll(children);
+            }
+        }
+
+        return small;
+    }
+
+    /**
+     * Returns the length of the value of a {@link JsonString} otherwise zero.
+     */
+    private static int length(final Node<?, ?, ?, ?> node) {
+        return node instanceof JsonString ?
+            ((JsonString) node).value().length() :
+            0;
+    }
+
+    /**
+     * Renders the operations of the patch, stopping with a count of the remaining operations once the text is longer
+     * than {@link #MAX_LENGTH}. The values of operations are rendered using {@link #node(Node)}.
+     */
+    static String patch(final NodePatch<?, ?> patch) {
+        final StringBuilder b = new StringBuilder();
+        final int size = patch.size();
+
+        for (int i = 0; i < size; i++) {
+            if (b.length() >= MAX_LENGTH) {
+                b.append(", ... ")
+                    .append(size - i)
+                    .append(" more");
+                break;
+            }
+            if (i > 0) {
+                b.append(", ");
+            }
+            patch.operation(i)
+                .toStringAbbreviated(b);
+        }
+
+        return b.toString();
+    }
+
+    /**
+     * Returns the text unchanged or its first {@link #MAX_LENGTH} characters followed by an ellipsis.
+     */
+    static String abbreviate(final String text) {
+        return text.length() > MAX_LENGTH ?
+            text.substring(0, MAX_LENGTH) + "..." :
+            text;
+    }
+
+    /**
+     * Stop creation
+     */
+    private NodePatchMessages() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -31,9 +31,11 @@ import walkingkooka.tree.pointer.NodePointer;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
- * Base class for all non empty patch containing several helpers and a template for the function.
+ * Base class for all single operation patches containing several helpers and a template for the function. Patches with
+ * more than one operation are represented by a {@link NodePatchSequence}.
  */
 abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Name> extends NodePatch<N, NAME> {
 
@@ -46,10 +48,44 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
     /**
      * Package private to limit sub-classing.
      */
-    NodePatchNonEmpty(final NodePointer<N, NAME> path, final NodePatchNonEmpty<N, NAME> next) {
+    NodePatchNonEmpty(final NodePointer<N, NAME> path) {
         super();
         this.path = path;
-        this.next = next;
+    }
+
+    /**
+     * Appending another operation to a single operation creates a {@link NodePatchSequence}.
+     */
+    @Override
+    final NodePatch<N, NAME> append(final NodePatchNonEmpty<N, NAME> operation) {
+        return NodePatchSequence.with(this, operation);
+    }
+
+    // operations.......................................................................................................
+
+    @Override
+    public final int size() {
+        return 1;
+    }
+
+    @Override
+    final NodePatchNonEmpty<N, NAME> operation(final int index) {
+        return this;
+    }
+
+    @Override
+    final NodePatch<N, NAME> subPatch0(final int from,
+                                       final int to) {
+        return from == to ?
+            Cast.to(NodePatchEmpty.getWildcard()) :
+            this;
+    }
+
+    @Override
+    final int copyOperations(final NodePatchNonEmpty<N, NAME>[] target,
+                             final int index) {
+        target[index] = this;
+        return index + 1;
     }
 
     // Function............................................................................................
@@ -60,12 +96,126 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
         } catch (final ApplyNodePatchException cause) {
             throw cause;
         } catch (final RuntimeException cause) {
-            throw new ApplyNodePatchException("Patch failed: " + cause.getMessage(), this, cause);
+            throw this.failed(cause);
         }
     }
 
     abstract N apply1(final N node, final NodePointer<N, NAME> start);
 
+    /**
+     * Applies this operation like {@link #apply0(Node, NodePointer)}, adding the operations that undo it to inverse in
+     * reverse order, so the inverse of a patch is the operations of all its operations reversed.
+     */
+    final N applyWithInverse0(final N node,
+                              final NodePointer<N, NAME> start,
+                              final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        try {
+            return this.applyWithInverse1(node, start, inverse);
+        } catch (final ApplyNodePatchException cause) {
+            throw cause;
+        } catch (final RuntimeException cause) {
+            throw this.failed(cause);
+        }
+    }
+
+    abstract N applyWithInverse1(final N node,
+                                 final NodePointer<N, NAME> start,
+                                 final List<NodePatchNonEmpty<N, NAME>> inverse);
+
+    /**
+     * Returns the operation that undoes adding the node now at the path of this operation within the given patched node.
+     * An add to a name that was present replaced the previous node, which is restored, otherwise the added node is
+     * removed.
+     */
+    final NodePatchNonEmpty<N, NAME> inverseAdd(final N applied,
+                                                final Optional<N> previous) {
+        final NodePointer<N, NAME> added = path(
+            this.added(applied),
+            this.path,
+            this.patchPath()
+        );
+
+        return previous.isPresent() && previous.get().hasUniqueNameAmongstSiblings() ?
+            NodePatchNotEmptyAddReplaceOrTestReplace.with(
+                added,
+                previous.get()
+            ) :
+            NodePatchNotEmptyRemove.with(added);
+    }
+
+    /**
+     * Returns the node at the path before an add, or nothing for an append.
+     */
+    final Optional<N> previous(final N node) {
+        return this.isAppend() ?
+            Optional.empty() :
+            this.path.traverse(node);
+    }
+
+    /**
+     * Returns the node added at the path of this operation, which for an append is the last child of the parent.
+     */
+    private N added(final N applied) {
+        final N added;
+
+        if (this.isAppend()) {
+            final NodePatchPath path = this.patchPath();
+            final List<N> children = NodePatchValidator.navigate(
+                applied,
+                path,
+                path.size() - 1
+            ).children();
+            added = children.get(children.size() - 1);
+        } else {
+            added = this.path.traverse(applied)
+                .get();
+        }
+
+        return added;
+    }
+
+    private boolean isAppend() {
+        final NodePatchPath path = this.patchPath();
+        final int size = path.size();
+        return size > 0 && NodePatchPath.APPEND.equals(path.token(size - 1));
+    }
+
+    /**
+     * Returns a path to a node found at the given path, using the names of named nodes and the indices of others. Unlike
+     * an append or an index of a named child, this path still finds the node once the operations after it are undone.
+     * Paths that are not absolute are returned unchanged.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePointer<N, NAME> path(final N node,
+                                                                                        final NodePointer<N, NAME> path,
+                                                                                        final NodePatchPath patchPath) {
+        final int depth = patchPath.size();
+        NodePointer<N, NAME> pointer = path;
+
+        if (depth > 0) {
+            final Object[] tokens = new Object[depth];
+            N child = node;
+            for (int i = depth - 1; i >= 0; i--) {
+                tokens[i] = child.hasUniqueNameAmongstSiblings() ?
+                    child.name() :
+                    child.index();
+                child = child.parent()
+                    .get();
+            }
+
+            pointer = NodePatchDiffOperation.pointer(
+                tokens,
+                Cast.to(node.getClass())
+            );
+        }
+
+        return pointer;
+    }
+
+    /**
+     * Returns the {@link NodePatchPlan} opcode for this operation.
+     */
+    abstract int opcode();
+
     /**
      * Adds one node to the other and returns the node in the start position.
      */
@@ -91,6 +241,17 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
         return new ApplyNodePatchException("Patch failed", this);
     }
 
+    /**
+     * Reports an operation failure caused by another exception.
+     */
+    private ApplyNodePatchException failed(final RuntimeException cause) {
+        return new ApplyNodePatchException(
+            () -> "Patch failed: " + cause.getMessage(),
+            this,
+            cause
+        );
+    }
+
     /**
      * Creates the {@link #failed()} exception and throws it.
      */
@@ -103,16 +264,34 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
     final NodePointer<N, NAME> path;
 
     /**
-     * Returns the next component of the patch which could be null if this is the last.
+     * Returns the {@link NodePatchPath} for {@link #path}, which is created once and cached.
+     */
+    final NodePatchPath patchPath() {
+        NodePatchPath patchPath = this.patchPath;
+        if (null == patchPath) {
+            patchPath = NodePatchPath.with(this.path);
+            this.patchPath = patchPath;
+        }
+        return patchPath;
+    }
+
+    private NodePatchPath patchPath;
+
+    /**
+     * Returns the {@link NodePatchPath} of the from of a COPY or MOVE, otherwise null.
      */
-    @Override final NodePatchNonEmpty<N, NAME> nextOrNull() {
-        return this.next;
+    NodePatchPath patchFrom() {
+        return null;
     }
 
     /**
-     * A null marks the last component in a patch sequence.
+     * Returns true if applying this operation may change the node at the given path, by writing it, an ancestor or a
+     * descendant, or by inserting or removing an array element before it.
      */
-    final NodePatchNonEmpty<N, NAME> next;
+    boolean changes(final NodePatchPath path) {
+        final NodePatchPath written = this.patchPath();
+        return written.overlaps(path) || written.shifts(path);
+    }
 
     // HashCodeEqualsDefined................................................................................................
 
@@ -122,15 +301,11 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
     @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
     @Override
     public final boolean equals(final Object other) {
-        return this == other || this.canBeEqual(other) && this.equals0(Cast.to(other));
+        return this == other || this.canBeEqual(other) && this.equals1(Cast.to(other));
     }
 
     abstract boolean canBeEqual(final Object other);
 
-    private boolean equals0(final NodePatchNonEmpty<?, ?> other) {
-        return this.equals1(other) && Objects.equals(this.next, other.next);
-    }
-
     abstract boolean equals1(final NodePatchNonEmpty<?, ?> other);
 
     // Object............................................................................................
@@ -138,21 +313,17 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
     @Override
     public final String toString() {
         final StringBuilder b = new StringBuilder();
-
-        NodePatch<N, NAME> patch = this;
-        String separator = "";
-
-        do {
-            b.append(separator);
-            patch.toString0(b);
-
-            patch = patch.nextOrNull();
-            separator = ", ";
-        } while (null != patch);
-
+        this.toString0(b);
         return b.toString();
     }
 
+    /**
+     * Renders this operation like {@link #toString0(StringBuilder)} with any value abbreviated, for failure messages.
+     */
+    void toStringAbbreviated(final StringBuilder b) {
+        this.toString0(b);
+    }
+
     static String toString(final NodePointer<?, ?> path) {
         return CharSequences.quote(path.toString()).toString();
     }
@@ -160,7 +331,7 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
     // HasJsonNode.............................................................................................
 
     /**
-     * A non empty patch collection is represented as an array with elements for each component.<br>
+     * A single operation patch is represented as an array with a single element.<br>
      * <pre>
      * {
      *   "type": "patch",
@@ -169,16 +340,6 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
      *     "path-name-type": "json-property-name",
      *     "from": "/b2",
      *     "path": "/a1"
-     *   }, {
-     *     "op": "move",
-     *     "path-name-type": "json-property-name",
-     *     "from": "/b2",
-     *     "path": "/c3"
-     *   }, {
-     *     "op": "move",
-     *     "path-name-type": "json-property-name",
-     *     "from": "/c3",
-     *     "path": "/a1"
      *   }]
      * }
      * </pre>
@@ -186,16 +347,19 @@ abstract class NodePatchNonEmpty<N extends Node<N, NAME, ?, ?>, NAME extends Nam
     @Override final JsonArray marshall0(final NodePatchToJsonFormat format,
                                         final JsonNodeMarshallContext context) {
         final List<JsonNode> elements = Lists.array();
-
-        NodePatchNonEmpty<N, NAME> patch = this;
-        do {
-            elements.add(patch.marshall1(patch.jsonObjectWithOp(), format, context));
-            patch = patch.nextOrNull();
-        } while (null != patch);
+        elements.add(this.marshallOperation(format, context));
 
         return JsonNode.array().setChildren(elements);
     }
 
+    /**
+     * Marshalls just this operation into a {@link JsonObject}.
+     */
+    final JsonObject marshallOperation(final NodePatchToJsonFormat format,
+                                       final JsonNodeMarshallContext context) {
+        return this.marshall1(this.jsonObjectWithOp(), format, context);
+    }
+
     /**
      * Sub classes must return an object with the op and path set.
      */
@@ -37,9 +37,8 @@ abstract class NodePatchNotEmptyAddReplaceOrTest<N extends Node<N, NAME, ?, ?>,
     }
 
     NodePatchNotEmptyAddReplaceOrTest(final NodePointer<N, NAME> path,
-                                      final N value,
-                                      final NodePatchNonEmpty<N, NAME> next) {
-        super(path, next);
+                                      final N value) {
+        super(path);
         this.value = value.removeParent();
     }
 
@@ -49,7 +48,7 @@ abstract class NodePatchNotEmptyAddReplaceOrTest<N extends Node<N, NAME, ?, ?>,
 
     @Override
     public final int hashCode() {
-        return Objects.hash(this.path, this.value, this.next);
+        return Objects.hash(this.path, this.value);
     }
 
     @Override final boolean equals1(final NodePatchNonEmpty<?, ?> other) {
@@ -62,11 +61,26 @@ abstract class NodePatchNotEmptyAddReplaceOrTest<N extends Node<N, NAME, ?, ?>,
     }
 
     @Override final void toString0(final StringBuilder b) {
+        this.toString1(
+            b,
+            this.value.toString()
+        );
+    }
+
+    @Override final void toStringAbbreviated(final StringBuilder b) {
+        this.toString1(
+            b,
+            NodePatchMessages.node(this.value)
+        );
+    }
+
+    private void toString1(final StringBuilder b,
+                           final String value) {
         b.append(this.operation())
             .append(" path=")
             .append(toString(this.path))
             .append(" value=")
-            .append(this.value);
+            .append(value);
     }
 
     /**
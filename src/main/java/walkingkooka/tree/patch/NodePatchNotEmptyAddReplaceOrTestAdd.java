@@ -23,6 +23,9 @@ import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.pointer.NodePointer;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Represents an ADD operation within a patch.
  */
@@ -33,24 +36,33 @@ final class NodePatchNotEmptyAddReplaceOrTestAdd<N extends Node<N, NAME, ?, ?>,
         checkPath(path);
         checkValue(value);
 
-        return new NodePatchNotEmptyAddReplaceOrTestAdd<>(path, value, null);
+        return new NodePatchNotEmptyAddReplaceOrTestAdd<>(path, value);
     }
 
     private NodePatchNotEmptyAddReplaceOrTestAdd(final NodePointer<N, NAME> pointer,
-                                                 final N value,
-                                                 final NodePatchNonEmpty<N, NAME> next) {
-        super(pointer, value, next);
+                                                 final N value) {
+        super(pointer, value);
+    }
+
+    @Override final N apply1(final N node, final NodePointer<N, NAME> start) {
+        return this.add0(node, this.value, start);
     }
 
     @Override
-    NodePatchNotEmptyAddReplaceOrTestAdd<N, NAME> append0(final NodePatchNonEmpty<N, NAME> next) {
-        return new NodePatchNotEmptyAddReplaceOrTestAdd<>(this.path,
-            this.value,
-            next);
+    N applyWithInverse1(final N node,
+                        final NodePointer<N, NAME> start,
+                        final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        final Optional<N> previous = this.previous(node);
+        final N applied = this.apply1(node, start);
+        inverse.add(
+            this.inverseAdd(applied, previous)
+        );
+        return applied;
     }
 
-    @Override final N apply1(final N node, final NodePointer<N, NAME> start) {
-        return this.add0(node, this.value, start);
+    @Override
+    int opcode() {
+        return NodePatchPlan.ADD;
     }
 
     @Override
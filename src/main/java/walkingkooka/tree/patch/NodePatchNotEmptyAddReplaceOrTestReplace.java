@@ -23,6 +23,8 @@ import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.pointer.NodePointer;
 
+import java.util.List;
+
 /**
  * Represents a REPLACE operation within a patch.
  */
@@ -33,20 +35,12 @@ final class NodePatchNotEmptyAddReplaceOrTestReplace<N extends Node<N, NAME, ?,
         checkPath(path);
         checkValue(value);
 
-        return new NodePatchNotEmptyAddReplaceOrTestReplace<>(path, value, null);
+        return new NodePatchNotEmptyAddReplaceOrTestReplace<>(path, value);
     }
 
     private NodePatchNotEmptyAddReplaceOrTestReplace(final NodePointer<N, NAME> path,
-                                                     final N value,
-                                                     final NodePatchNonEmpty<N, NAME> next) {
-        super(path, value, next);
-    }
-
-    @Override
-    NodePatchNotEmptyAddReplaceOrTestReplace<N, NAME> append0(final NodePatchNonEmpty<N, NAME> next) {
-        return new NodePatchNotEmptyAddReplaceOrTestReplace<>(this.path,
-            this.value,
-            next);
+                                                     final N value) {
+        super(path, value);
     }
 
     /**
@@ -63,6 +57,30 @@ final class NodePatchNotEmptyAddReplaceOrTestReplace<N extends Node<N, NAME, ?,
             start);
     }
 
+    /**
+     * The inverse replaces the new value with the replaced node.
+     */
+    @Override
+    N applyWithInverse1(final N node,
+                        final NodePointer<N, NAME> start,
+                        final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        final N applied = this.apply1(node, start);
+        final N replaced = this.path.traverse(node)
+            .get();
+        inverse.add(
+            NodePatchNotEmptyAddReplaceOrTestReplace.with(
+                path(replaced, this.path, this.patchPath()),
+                replaced
+            )
+        );
+        return applied;
+    }
+
+    @Override
+    int opcode() {
+        return NodePatchPlan.REPLACE;
+    }
+
     @Override
     boolean canBeEqual(final Object other) {
         return other instanceof NodePatchNotEmptyAddReplaceOrTestReplace;
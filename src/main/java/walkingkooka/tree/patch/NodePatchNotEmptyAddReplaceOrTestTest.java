@@ -23,6 +23,7 @@ import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.pointer.NodePointer;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -36,21 +37,12 @@ final class NodePatchNotEmptyAddReplaceOrTestTest<N extends Node<N, NAME, ?, ?>,
         checkValue(value);
 
         return new NodePatchNotEmptyAddReplaceOrTestTest<>(path,
-            value.removeParent(),
-            null);
+            value.removeParent());
     }
 
     private NodePatchNotEmptyAddReplaceOrTestTest(final NodePointer<N, NAME> path,
-                                                  final N value,
-                                                  final NodePatchNonEmpty<N, NAME> next) {
-        super(path, value, next);
-    }
-
-    @Override
-    NodePatchNotEmptyAddReplaceOrTestTest<N, NAME> append0(final NodePatchNonEmpty<N, NAME> next) {
-        return new NodePatchNotEmptyAddReplaceOrTestTest<>(this.path,
-            this.value,
-            next);
+                                                  final N value) {
+        super(path, value);
     }
 
     /**
@@ -70,13 +62,39 @@ final class NodePatchNotEmptyAddReplaceOrTestTest<N extends Node<N, NAME, ?, ?>,
         return node;
     }
 
+    /**
+     * Tests change nothing and have no inverse.
+     */
+    @Override
+    N applyWithInverse1(final N node,
+                        final NodePointer<N, NAME> start,
+                        final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        return this.apply1(node, start);
+    }
+
     private void test(final N node) {
         final N without = node.removeParent();
         if (!this.value.equals(without)) {
-            throw new ApplyNodePatchException("Value test failed: " + without, this);
+            throw new ApplyNodePatchException(
+                () -> "Value test failed: " + NodePatchMessages.node(without),
+                this
+            );
         }
     }
 
+    @Override
+    int opcode() {
+        return NodePatchPlan.TEST;
+    }
+
+    /**
+     * Tests never change anything.
+     */
+    @Override
+    boolean changes(final NodePatchPath path) {
+        return false;
+    }
+
     @Override
     boolean canBeEqual(final Object other) {
         return other instanceof NodePatchNotEmptyAddReplaceOrTestTest;
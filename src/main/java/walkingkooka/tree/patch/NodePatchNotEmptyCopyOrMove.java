@@ -43,19 +43,30 @@ abstract class NodePatchNotEmptyCopyOrMove<N extends Node<N, NAME, ?, ?>, NAME e
     }
 
     NodePatchNotEmptyCopyOrMove(final NodePointer<N, NAME> from,
-                                final NodePointer<N, NAME> path,
-                                final NodePatchNonEmpty<N, NAME> next) {
-        super(path, next);
+                                final NodePointer<N, NAME> path) {
+        super(path);
         this.from = from;
     }
 
     final NodePointer<N, NAME> from;
 
+    @Override
+    final NodePatchPath patchFrom() {
+        NodePatchPath patchFrom = this.patchFrom;
+        if (null == patchFrom) {
+            patchFrom = NodePatchPath.with(this.from);
+            this.patchFrom = patchFrom;
+        }
+        return patchFrom;
+    }
+
+    private NodePatchPath patchFrom;
+
     // Object........................................................................
 
     @Override
     public final int hashCode() {
-        return Objects.hash(this.from, this.path, this.next);
+        return Objects.hash(this.from, this.path);
     }
 
     @Override final boolean equals1(final NodePatchNonEmpty<?, ?> other) {
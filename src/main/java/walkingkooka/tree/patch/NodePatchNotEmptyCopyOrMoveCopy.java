@@ -22,7 +22,9 @@ import walkingkooka.tree.Node;
 import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.pointer.NodePointer;
-import walkingkooka.tree.pointer.NodePointerException;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Represents a COPY patch operation.
@@ -33,27 +35,41 @@ final class NodePatchNotEmptyCopyOrMoveCopy<N extends Node<N, NAME, ?, ?>, NAME
                                                                                                             final NodePointer<N, NAME> path) {
         checkFromAndPath(from, path);
 
-        return new NodePatchNotEmptyCopyOrMoveCopy<>(from, path, null);
+        return new NodePatchNotEmptyCopyOrMoveCopy<>(from, path);
     }
 
     private NodePatchNotEmptyCopyOrMoveCopy(final NodePointer<N, NAME> from,
-                                            final NodePointer<N, NAME> path,
-                                            final NodePatchNonEmpty<N, NAME> next) {
-        super(from, path, next);
-    }
-
-    @Override
-    NodePatchNotEmptyCopyOrMoveCopy<N, NAME> append0(final NodePatchNonEmpty<N, NAME> patch) {
-        return new NodePatchNotEmptyCopyOrMoveCopy<>(this.from, this.path, patch);
+                                            final NodePointer<N, NAME> path) {
+        super(from, path);
     }
 
     @Override
     N apply1(final N node, final NodePointer<N, NAME> start) {
         final N copying = this.from.traverse(node)
-            .orElseThrow(() -> new NodePointerException("Unable to navigate to find node to copy from: " + node));
+            .orElseThrow(() -> new ApplyNodePatchException(
+                () -> "Patch failed: Unable to navigate to find node to copy from: " + NodePatchMessages.node(node),
+                this
+            ));
         return this.add0(node, copying, start);
     }
 
+    @Override
+    N applyWithInverse1(final N node,
+                        final NodePointer<N, NAME> start,
+                        final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        final Optional<N> previous = this.previous(node);
+        final N applied = this.apply1(node, start);
+        inverse.add(
+            this.inverseAdd(applied, previous)
+        );
+        return applied;
+    }
+
+    @Override
+    int opcode() {
+        return NodePatchPlan.COPY;
+    }
+
     @Override
     boolean canBeEqual(final Object other) {
         return other instanceof NodePatchNotEmptyCopyOrMoveCopy;
@@ -22,7 +22,9 @@ import walkingkooka.tree.Node;
 import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.pointer.NodePointer;
-import walkingkooka.tree.pointer.NodePointerException;
+
+import java.util.List;
+import java.util.Optional;
 
 
 /**
@@ -34,18 +36,12 @@ final class NodePatchNotEmptyCopyOrMoveMove<N extends Node<N, NAME, ?, ?>, NAME
                                                                                                             final NodePointer<N, NAME> path) {
         checkFromAndPath(from, path);
 
-        return new NodePatchNotEmptyCopyOrMoveMove<>(from, path, null);
+        return new NodePatchNotEmptyCopyOrMoveMove<>(from, path);
     }
 
     private NodePatchNotEmptyCopyOrMoveMove(final NodePointer<N, NAME> from,
-                                            final NodePointer<N, NAME> path,
-                                            final NodePatchNonEmpty<N, NAME> next) {
-        super(from, path, next);
-    }
-
-    @Override
-    NodePatchNotEmptyCopyOrMoveMove<N, NAME> append0(final NodePatchNonEmpty<N, NAME> patch) {
-        return new NodePatchNotEmptyCopyOrMoveMove<>(this.from, this.path, patch);
+                                            final NodePointer<N, NAME> path) {
+        super(from, path);
     }
 
     /**
@@ -53,13 +49,71 @@ final class NodePatchNotEmptyCopyOrMoveMove<N extends Node<N, NAME, ?, ?>, NAME
      */
     @Override
     N apply1(final N node, final NodePointer<N, NAME> start) {
-        final N copying = this.from.traverse(node)
-            .orElseThrow(() -> new NodePointerException("Unable to navigate to find node to copy from: " + node));
         return this.add0(this.remove0(node, this.from, start),
-            copying,
+            this.moving(node),
             start);
     }
 
+    /**
+     * The inverse moves the node back to from, unless the add replaced a named node, which is then restored after the
+     * moved node is added back to from.
+     */
+    @Override
+    N applyWithInverse1(final N node,
+                        final NodePointer<N, NAME> start,
+                        final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        final N moving = this.moving(node);
+        final N removed = this.remove0(node, this.from, start);
+        final Optional<N> previous = this.previous(removed);
+        final N applied = this.add0(removed, moving, start);
+
+        final NodePointer<N, NAME> from = path(moving, this.from, this.patchFrom());
+        final NodePatchNonEmpty<N, NAME> inverseAdd = this.inverseAdd(applied, previous);
+        if (NodePatchPlan.REMOVE == inverseAdd.opcode()) {
+            final NodePointer<N, NAME> to = inverseAdd.path;
+            if (!to.equals(from)) {
+                inverse.add(
+                    NodePatchNotEmptyCopyOrMoveMove.with(
+                        to,
+                        from
+                    )
+                );
+            }
+        } else {
+            inverse.add(
+                NodePatchNotEmptyAddReplaceOrTestAdd.with(
+                    from,
+                    moving
+                )
+            );
+            inverse.add(inverseAdd);
+        }
+
+        return applied;
+    }
+
+    private N moving(final N node) {
+        return this.from.traverse(node)
+            .orElseThrow(() -> new ApplyNodePatchException(
+                () -> "Patch failed: Unable to navigate to find node to copy from: " + NodePatchMessages.node(node),
+                this
+            ));
+    }
+
+    @Override
+    int opcode() {
+        return NodePatchPlan.MOVE;
+    }
+
+    /**
+     * A move also removes its from.
+     */
+    @Override
+    boolean changes(final NodePatchPath path) {
+        final NodePatchPath from = this.patchFrom();
+        return super.changes(path) || from.overlaps(path) || from.shifts(path);
+    }
+
     @Override
     boolean canBeEqual(final Object other) {
         return other instanceof NodePatchNotEmptyCopyOrMoveMove;
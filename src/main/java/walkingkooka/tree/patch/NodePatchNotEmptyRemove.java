@@ -24,7 +24,8 @@ import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.json.marshall.JsonNodeMarshallContext;
 import walkingkooka.tree.pointer.NodePointer;
 
-import java.util.Objects;
+import java.util.List;
+
 
 /**
  * Represents an REMOVE operation within a patch.
@@ -35,28 +36,46 @@ final class NodePatchNotEmptyRemove<N extends Node<N, NAME, ?, ?>, NAME extends
     static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchNotEmptyRemove<N, NAME> with(final NodePointer<N, NAME> path) {
         checkPath(path);
 
-        return new NodePatchNotEmptyRemove<>(path, null);
-    }
-
-    private NodePatchNotEmptyRemove(final NodePointer<N, NAME> path,
-                                    final NodePatchNonEmpty<N, NAME> next) {
-        super(path, next);
+        return new NodePatchNotEmptyRemove<>(path);
     }
 
-    @Override
-    NodePatchNotEmptyRemove<N, NAME> append0(final NodePatchNonEmpty<N, NAME> next) {
-        return new NodePatchNotEmptyRemove<>(this.path, next);
+    private NodePatchNotEmptyRemove(final NodePointer<N, NAME> path) {
+        super(path);
     }
 
     @Override final N apply1(final N node, final NodePointer<N, NAME> start) {
         return this.remove0(node, this.path, start);
     }
 
+    /**
+     * The inverse adds the removed node back at the same path.
+     */
+    @Override
+    N applyWithInverse1(final N node,
+                        final NodePointer<N, NAME> start,
+                        final List<NodePatchNonEmpty<N, NAME>> inverse) {
+        final N applied = this.apply1(node, start);
+        final N removed = this.path.traverse(node)
+            .get();
+        inverse.add(
+            NodePatchNotEmptyAddReplaceOrTestAdd.with(
+                path(removed, this.path, this.patchPath()),
+                removed
+            )
+        );
+        return applied;
+    }
+
     // Object........................................................................
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.path, this.next);
+        return this.path.hashCode();
+    }
+
+    @Override
+    int opcode() {
+        return NodePatchPlan.REMOVE;
     }
 
     @Override
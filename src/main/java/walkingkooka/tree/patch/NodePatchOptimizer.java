@@ -0,0 +1,382 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rewrites a patch into an equivalent patch with fewer operations. Pairs of operations on the same path are only
+ * rewritten when every operation between them is independent of that path, meaning it neither reads nor writes the
+ * path, its ancestors or descendants, nor inserts or removes an array element before it, and the first operation does
+ * not insert or remove an array element before any path used by those operations. This keeps both the result
+ * and any failure, including those of test operations, the same as the original patch.
+ * <ul>
+ * <li>replace P, replace P becomes the last replace</li>
+ * <li>add P, replace P becomes an add with the last value</li>
+ * <li>replace P, remove P becomes the remove</li>
+ * <li>remove P, add P becomes a replace</li>
+ * <li>test P, test P with the same value becomes the first test</li>
+ * <li>copy F to P, remove F becomes a move, if neither shifts the other</li>
+ * </ul>
+ * When composing two patches, operations that only write below a path that is later replaced or removed are also
+ * removed, as long as no operation between reads below that path, so their effects are overwritten. Test operations are
+ * never removed and always see the same values, but the composed patch may succeed where one of the removed operations
+ * would have failed.
+ */
+final class NodePatchOptimizer<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Returns an optimized patch or the given patch if no operations could be removed. Callers wanting the number of
+     * operations removed compare the {@link NodePatch#size()} of the given and returned patches.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> optimize(final NodePatch<N, NAME> patch) {
+        return optimize(patch, false);
+    }
+
+    /**
+     * Returns a single optimized patch that applies the first and then the second patch, also removing operations
+     * whose effects are overwritten.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> compose(final NodePatch<N, NAME> first,
+                                                                                         final NodePatch<N, NAME> second) {
+        return optimize(
+            NodePatch.concat(first, second),
+            true
+        );
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> optimize(final NodePatch<N, NAME> patch,
+                                                                                                  final boolean overwritten) {
+        final int size = patch.size();
+
+        NodePatch<N, NAME> optimized = patch;
+        if (size > 1) {
+            final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+            patch.copyOperations(operations, 0);
+
+            final int removed = new NodePatchOptimizer<>(operations, overwritten).optimize();
+            if (removed > 0) {
+                final NodePatchBuilder<N, NAME> builder = Cast.to(NodePatchBuilder.wildcard());
+                builder.ensureCapacity(size - removed);
+
+                for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+                    if (null != operation) {
+                        builder.append(operation);
+                    }
+                }
+
+                optimized = builder.build();
+            }
+        }
+
+        return optimized;
+    }
+
+    // VisibleForTesting
+    NodePatchOptimizer(final NodePatchNonEmpty<N, NAME>[] operations,
+                       final boolean overwritten) {
+        super();
+        this.operations = operations;
+        this.overwritten = overwritten;
+    }
+
+    /**
+     * Visits each operation in order, replacing removed operations with null, returning the number removed.
+     */
+    private int optimize() {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final int size = operations.length;
+
+        int removed = 0;
+
+        for (int i = 0; i < size; i++) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+            final NodePatchPath path = operation.patchPath();
+
+            if (isKey(path)) {
+                final int opcode = operation.opcode();
+
+                if (this.overwritten && (NodePatchPlan.REMOVE == opcode || NodePatchPlan.REPLACE == opcode)) {
+                    removed += this.overwritten(i);
+                }
+
+                if (NodePatchPlan.REMOVE == opcode && this.copyAndRemove(i)) {
+                    removed++;
+                } else {
+                    final Integer previous = this.previous.get(path);
+                    if (null != previous &&
+                        null != operations[previous] &&
+                        this.independent(previous + 1, i, path) &&
+                        this.unshifted(previous, i)) {
+                        final int coalesced = this.coalesce(previous, i);
+                        if (coalesced >= 0) {
+                            operations[coalesced] = null;
+                            removed++;
+                        }
+                    }
+                }
+
+                final NodePatchNonEmpty<N, NAME> remaining = operations[i];
+                if (null != remaining) {
+                    this.previous.put(remaining.patchPath(), i);
+
+                    if (NodePatchPlan.COPY == opcode) {
+                        final NodePatchPath from = remaining.patchFrom();
+                        if (isKey(from)) {
+                            this.copies.put(from, i);
+                        }
+                    }
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Attempts to coalesce the two operations on the same path, returning the index of the operation that was removed
+     * or -1 if none was.
+     */
+    private int coalesce(final int first,
+                         final int second) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final NodePatchNonEmpty<N, NAME> firstOperation = operations[first];
+        final NodePatchNonEmpty<N, NAME> secondOperation = operations[second];
+
+        int removed = -1;
+
+        switch (firstOperation.opcode() * OPCODE_COUNT + secondOperation.opcode()) {
+            case NodePatchPlan.REPLACE * OPCODE_COUNT + NodePatchPlan.REPLACE:
+            case NodePatchPlan.REPLACE * OPCODE_COUNT + NodePatchPlan.REMOVE:
+                removed = first;
+                break;
+            case NodePatchPlan.ADD * OPCODE_COUNT + NodePatchPlan.REPLACE:
+                operations[second] = NodePatchNotEmptyAddReplaceOrTestAdd.with(
+                    secondOperation.path,
+                    value(secondOperation)
+                );
+                removed = first;
+                break;
+            case NodePatchPlan.REMOVE * OPCODE_COUNT + NodePatchPlan.ADD:
+                operations[second] = NodePatchNotEmptyAddReplaceOrTestReplace.with(
+                    secondOperation.path,
+                    value(secondOperation)
+                );
+                removed = first;
+                break;
+            case NodePatchPlan.TEST * OPCODE_COUNT + NodePatchPlan.TEST:
+                if (value(firstOperation).equals(value(secondOperation))) {
+                    removed = second;
+                }
+                break;
+            default:
+                break;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes the operations before the given replace or remove that only write below its path, stopping at the first
+     * operation that reads or writes its path or anything below it from outside, returning the number removed.
+     */
+    private int overwritten(final int overwrite) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final NodePatchPath path = operations[overwrite].patchPath();
+
+        int removed = 0;
+        boolean independent = true;
+
+        for (int i = overwrite - 1; independent && i >= 0; i--) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+            if (null != operation) {
+                final int opcode = operation.opcode();
+                final NodePatchPath operationPath = operation.patchPath();
+                final NodePatchPath operationFrom = operation.patchFrom();
+
+                if (NodePatchPlan.TEST != opcode &&
+                    isBelow(operationPath, path) &&
+                    (NodePatchPlan.MOVE != opcode || isBelow(operationFrom, path))) {
+                    operations[i] = null;
+                    removed++;
+                } else {
+                    independent = !operation.changes(path) &&
+                        !operationPath.overlaps(path) &&
+                        (null == operationFrom || !operationFrom.overlaps(path));
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Returns true if the path is a descendant of the other path.
+     */
+    private static boolean isBelow(final NodePatchPath path,
+                                   final NodePatchPath other) {
+        return path.size() > other.size() &&
+            other.isPrefixOf(path);
+    }
+
+    /**
+     * Replaces a copy from F to P followed by a remove of F with a single move, returning true if it was.
+     */
+    private boolean copyAndRemove(final int remove) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final NodePatchPath from = operations[remove].patchPath();
+
+        boolean replaced = false;
+
+        final Integer copy = this.copies.remove(from);
+        if (null != copy && null != operations[copy]) {
+            final NodePatchNonEmpty<N, NAME> copyOperation = operations[copy];
+            final NodePatchPath path = copyOperation.patchPath();
+
+            if (path.isAbsolute() &&
+                !from.overlaps(path) &&
+                !path.shifts(from) &&
+                !from.shifts(path) &&
+                this.independent(copy + 1, remove, from) &&
+                this.independent(copy + 1, remove, path) &&
+                this.unshifted(copy, remove)) {
+                operations[copy] = null;
+                operations[remove] = NodePatchNotEmptyCopyOrMoveMove.with(
+                    Cast.to(((NodePatchNotEmptyCopyOrMove<?, ?>) copyOperation).from),
+                    copyOperation.path
+                );
+                replaced = true;
+            }
+        }
+
+        return replaced;
+    }
+
+    /**
+     * Returns true if none of the operations between from and to read or write the given path.
+     */
+    private boolean independent(final int from,
+                                final int to,
+                                final NodePatchPath path) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+
+        boolean independent = true;
+
+        for (int i = from; independent && i < to; i++) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+            if (null != operation) {
+                final NodePatchPath operationFrom = operation.patchFrom();
+
+                independent = !operation.changes(path) &&
+                    !operation.patchPath().overlaps(path) &&
+                    (null == operationFrom || !operationFrom.overlaps(path));
+            }
+        }
+
+        return independent;
+    }
+
+    /**
+     * Returns true if the operation does not insert or remove an array element before any path read or written by the
+     * operations after it and before to, so its effect may be delayed until to.
+     */
+    private boolean unshifted(final int operation,
+                              final int to) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final NodePatchNonEmpty<N, NAME> shifting = operations[operation];
+        final int opcode = shifting.opcode();
+        final NodePatchPath path = shifting.patchPath();
+
+        boolean unshifted = NodePatchPlan.REPLACE == opcode || NodePatchPlan.TEST == opcode;
+
+        if (!unshifted) {
+            unshifted = true;
+
+            for (int i = operation + 1; unshifted && i < to; i++) {
+                final NodePatchNonEmpty<N, NAME> other = operations[i];
+                if (null != other) {
+                    final NodePatchPath otherFrom = other.patchFrom();
+
+                    unshifted = !path.shifts(other.patchPath()) &&
+                        (null == otherFrom || !path.shifts(otherFrom));
+                }
+            }
+        }
+
+        return unshifted;
+    }
+
+    /**
+     * Only absolute paths that are not the root and do not end with the append token may be coalesced.
+     */
+    private static boolean isKey(final NodePatchPath path) {
+        final int size = path.size();
+        return size > 0 && !NodePatchPath.APPEND.equals(path.token(size - 1));
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N value(final NodePatchNonEmpty<N, NAME> operation) {
+        return ((NodePatchNotEmptyAddReplaceOrTest<N, NAME>) operation).value;
+    }
+
+    /**
+     * The number of opcodes in {@link NodePatchPlan}, used to switch on pairs of opcodes.
+     */
+    private final static int OPCODE_COUNT = 6;
+
+    /**
+     * The operations being optimized, removed operations are replaced by null.
+     */
+    private final NodePatchNonEmpty<N, NAME>[] operations;
+
+    /**
+     * When true operations overwritten by a later replace or remove are also removed.
+     */
+    private final boolean overwritten;
+
+    /**
+     * The index of the last remaining operation for each path.
+     */
+    private final Map<NodePatchPath, Integer> previous = new HashMap<>();
+
+    /**
+     * The index of the last remaining copy for each from path.
+     */
+    private final Map<NodePatchPath, Integer> copies = new HashMap<>();
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        String separator = "";
+
+        for (final NodePatchNonEmpty<N, NAME> operation : this.operations) {
+            if (null != operation) {
+                b.append(separator);
+                operation.toString0(b);
+
+                separator = ", ";
+            }
+        }
+
+        return b.toString();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Applies a patch to a root by partitioning its operations into groups by the top level child their paths and froms
+ * touch. Each group is applied to a scaffold root holding only that child, the groups are given to a runner which may
+ * run them concurrently, and the new children are then set on the root once. Groups touch disjoint sub trees so their
+ * order does not matter.<br>
+ * Partitioning is only attempted when every path and from has at least two tokens, the first being the name of a
+ * uniquely named child of the root, with at least two groups. Otherwise, or when a group fails, the patch is applied
+ * sequentially so results and failures are identical to {@link NodePatch#applyToRoot(Node)}. A runner that returns
+ * null is also treated as a failure.
+ */
+final class NodePatchPartitioned<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Applies the patch to the root, using the runner to execute the groups.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N apply(final NodePatch<N, NAME> patch,
+                                                                     final N root,
+                                                                     final Function<List<Supplier<N>>, List<N>> runner) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        final NodePatchPartitioned<N, NAME> partitioned = new NodePatchPartitioned<>(root);
+        return partitioned.partition(operations) ?
+            partitioned.apply(patch, runner) :
+            patch.apply0(root, null);
+    }
+
+    // VisibleForTesting
+    NodePatchPartitioned(final N root) {
+        super();
+        this.root = root;
+    }
+
+    /**
+     * Adds each operation to the group for its top level child, returning false if any operation touches more than one
+     * or none, or fewer than two groups were found.
+     */
+    boolean partition(final NodePatchNonEmpty<N, NAME>[] operations) {
+        final List<N> children = this.root.children();
+
+        boolean partitioned = true;
+
+        for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+            final NodePatchPath path = operation.patchPath();
+            final NodePatchPath from = operation.patchFrom();
+
+            if (path.size() < 2 || null != from && (from.size() < 2 || !path.token(0).equals(from.token(0)))) {
+                partitioned = false;
+                break;
+            }
+
+            final String token = path.token(0);
+            Integer group = this.tokenToGroup.get(token);
+            if (null == group) {
+                final int child = childIndex(children, path);
+                if (-1 == child) {
+                    partitioned = false;
+                    break;
+                }
+
+                group = this.groups.size();
+                this.tokenToGroup.put(token, group);
+                this.childIndices.add(child);
+                this.groups.add(
+                    Cast.to(NodePatchBuilder.wildcard())
+                );
+            }
+
+            this.groups.get(group)
+                .append(operation);
+        }
+
+        return partitioned && this.groups.size() > 1;
+    }
+
+    /**
+     * Returns the index of the uniquely named child of the root named by the first token, or -1.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> int childIndex(final List<N> children,
+                                                                                    final NodePatchPath path) {
+        int childIndex = -1;
+
+        if (path.index(0) < 0 && !NodePatchPath.APPEND.equals(path.token(0))) {
+            final String name = path.name(0);
+            final int count = children.size();
+
+            for (int i = 0; i < count; i++) {
+                final N child = children.get(i);
+                if (child.name().value().equals(name)) {
+                    if (child.hasUniqueNameAmongstSiblings()) {
+                        childIndex = i;
+                    }
+                    break;
+                }
+            }
+        }
+
+        return childIndex;
+    }
+
+    /**
+     * Runs the groups and sets the new children on the root, falling back to applying the patch sequentially if any
+     * group fails.
+     */
+    private N apply(final NodePatch<N, NAME> patch,
+                    final Function<List<Supplier<N>>, List<N>> runner) {
+        final N root = this.root;
+        final List<Supplier<N>> suppliers = this.suppliers();
+
+        List<N> patched;
+        try {
+            patched = runner.apply(suppliers);
+        } catch (final RuntimeException cause) {
+            patched = null;
+        }
+
+        final N result;
+        if (null == patched) {
+            result = patch.apply0(root, null);
+        } else {
+            final int count = suppliers.size();
+            if (patched.size() != count) {
+                throw new IllegalStateException("Runner returned " + patched.size() + " results expected " + count);
+            }
+
+            final List<N> children = Lists.array();
+            children.addAll(root.children());
+
+            for (int i = 0; i < count; i++) {
+                children.set(
+                    this.childIndices.get(i),
+                    patched.get(i)
+                );
+            }
+
+            result = root.setChildren(children);
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a {@link Supplier} for each group that applies it to a root holding only its child, returning the new
+     * child.
+     */
+    List<Supplier<N>> suppliers() {
+        final N root = this.root;
+        final List<N> children = root.children();
+
+        final List<Supplier<N>> suppliers = Lists.array();
+
+        final int count = this.groups.size();
+        for (int i = 0; i < count; i++) {
+            final N scaffold = root.setChildren(
+                Lists.of(
+                    children.get(this.childIndices.get(i))
+                        .removeParent()
+                )
+            );
+            final NodePatch<N, NAME> group = this.groups.get(i)
+                .build();
+
+            suppliers.add(
+                () -> group.apply0(scaffold, null)
+                    .children()
+                    .get(0)
+                    .removeParent()
+            );
+        }
+
+        return suppliers;
+    }
+
+    private final N root;
+
+    /**
+     * The index of the child of the root for each group.
+     */
+    private final List<Integer> childIndices = Lists.array();
+
+    private final List<NodePatchBuilder<N, NAME>> groups = Lists.array();
+
+    /**
+     * The group for each first token.
+     */
+    private final Map<String, Integer> tokenToGroup = new HashMap<>();
+
+    @Override
+    public String toString() {
+        return this.groups.toString();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.Arrays;
+
+/**
+ * The components of a {@link NodePointer} taken from its json-pointer text form, used to reason about which paths may
+ * affect each other without a {@link walkingkooka.tree.Node}. Pointers that are not absolute, such as relative
+ * pointers, have no tokens and must be treated conservatively as possibly touching anything.
+ */
+final class NodePatchPath {
+
+    /**
+     * The append token used to add after the last element of an array.
+     */
+    final static String APPEND = "-";
+
+    /**
+     * Creates a {@link NodePatchPath} from the given {@link NodePointer}.
+     */
+    static NodePatchPath with(final NodePointer<?, ?> pointer) {
+        return parse(pointer.toString());
+    }
+
+    /**
+     * Splits the json-pointer text into its escaped tokens.
+     */
+    static NodePatchPath parse(final String text) {
+        final NodePatchPath path;
+
+        if (text.isEmpty()) {
+            path = ROOT;
+        } else {
+            if ('/' == text.charAt(0)) {
+                path = new NodePatchPath(text.substring(1).split("/", -1));
+            } else {
+                path = UNKNOWN;
+            }
+        }
+
+        return path;
+    }
+
+    /**
+     * The path to the root itself.
+     */
+    private final static NodePatchPath ROOT = new NodePatchPath(new String[0]);
+
+    /**
+     * Any non absolute path.
+     */
+    private final static NodePatchPath UNKNOWN = new NodePatchPath(null);
+
+    /**
+     * Private ctor use factory.
+     */
+    private NodePatchPath(final String[] tokens) {
+        super();
+        this.tokens = tokens;
+    }
+
+    /**
+     * Only absolute paths have tokens and may be compared.
+     */
+    boolean isAbsolute() {
+        return null != this.tokens;
+    }
+
+    /**
+     * The number of tokens.
+     */
+    int size() {
+        final String[] tokens = this.tokens;
+        return null == tokens ?
+            0 :
+            tokens.length;
+    }
+
+    /**
+     * Returns the escaped token at the given index.
+     */
+    String token(final int index) {
+        return this.tokens[index];
+    }
+
+    /**
+     * Returns the unescaped name at the given index.
+     */
+    String name(final int index) {
+        return this.tokens[index]
+            .replace("~1", "/")
+            .replace("~0", "~");
+    }
+
+    /**
+     * Returns the index held by the token or -1 if it is not an index.
+     */
+    int index(final int index) {
+        final String token = this.tokens[index];
+        final int length = token.length();
+
+        int value = length > 0 && length < 10 && (1 == length || '0' != token.charAt(0)) ?
+            0 :
+            -1;
+
+        for (int i = 0; value >= 0 && i < length; i++) {
+            final char c = token.charAt(i);
+            value = c >= '0' && c <= '9' ?
+                value * 10 + c - '0' :
+                -1;
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the number of leading tokens both paths share, non absolute paths share nothing.
+     */
+    int commonPrefixLength(final NodePatchPath other) {
+        final String[] tokens = this.tokens;
+        final String[] otherTokens = other.tokens;
+
+        int i = 0;
+        if (null != tokens && null != otherTokens) {
+            final int length = Math.min(tokens.length, otherTokens.length);
+            while (i < length && tokens[i].equals(otherTokens[i])) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns true if this path equals or is an ancestor of the other path. Non absolute paths are never a prefix.
+     */
+    boolean isPrefixOf(final NodePatchPath other) {
+        return this.isAbsolute() &&
+            other.isAbsolute() &&
+            this.size() <= other.size() &&
+            this.commonPrefixLength(other) == this.size();
+    }
+
+    /**
+     * Returns true if either path is a prefix of the other, or either is not absolute, meaning changes to one may affect
+     * the other.
+     */
+    boolean overlaps(final NodePatchPath other) {
+        return !this.isAbsolute() ||
+            !other.isAbsolute() ||
+            this.isPrefixOf(other) ||
+            other.isPrefixOf(this);
+    }
+
+    /**
+     * Returns true if adding or removing at this path could move the other path, which happens when this path ends with
+     * an array index or append and its parent is an ancestor of the other path.
+     */
+    boolean shifts(final NodePatchPath other) {
+        final int size = this.size();
+
+        return size > 0 &&
+            (this.index(size - 1) >= 0 || APPEND.equals(this.token(size - 1))) &&
+            this.parent().isPrefixOf(other);
+    }
+
+    /**
+     * Returns a path with only the given number of leading tokens.
+     */
+    NodePatchPath prefix(final int size) {
+        return size == this.tokens.length ?
+            this :
+            new NodePatchPath(Arrays.copyOf(this.tokens, size));
+    }
+
+    /**
+     * Returns the path of the parent, the root and non absolute paths return themselves.
+     */
+    NodePatchPath parent() {
+        return null == this.tokens || 0 == this.tokens.length ?
+            this :
+            this.prefix(this.tokens.length - 1);
+    }
+
+    /**
+     * Null when the path is not absolute.
+     */
+    private final String[] tokens;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.tokens);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchPath && Arrays.equals(this.tokens, ((NodePatchPath) other).tokens);
+    }
+
+    @Override
+    public String toString() {
+        final String[] tokens = this.tokens;
+        final String toString;
+
+        if (null == tokens) {
+            toString = "?";
+        } else {
+            final StringBuilder b = new StringBuilder();
+            for (final String token : tokens) {
+                b.append('/').append(token);
+            }
+            toString = b.toString();
+        }
+
+        return toString;
+    }
+}
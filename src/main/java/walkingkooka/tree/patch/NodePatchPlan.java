@@ -0,0 +1,588 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.NeverError;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A reusable execution plan created by {@link NodePatch#compile()}. The operations are copied once into parallel
+ * arrays of opcodes, pointers and values, and the tokens of each absolute path and from are resolved into steps, an
+ * index or otherwise a name. {@link #apply(Node)} and {@link #tryApply(Node)} execute them with a single loop switching
+ * on the opcode, rather than dispatching to each operation. Results are identical to {@link NodePatch#apply(Node)},
+ * including skipping all start navigation when applied to a root.
+ * <br>
+ * Tests, the from of a copy or move and the start node are found by walking the steps, matching children like
+ * {@link NodePatchValidator}. Adding and removing must still go through {@link NodePointer#add(Node, Node)} and
+ * {@link NodePointer#remove(Node)}, because {@link Node} has no general way to set a named child.
+ */
+public final class NodePatchPlan<N extends Node<N, NAME, ?, ?>, NAME extends Name> implements Function<N, N> {
+
+    final static int ADD = 0;
+    final static int COPY = 1;
+    final static int MOVE = 2;
+    final static int REMOVE = 3;
+    final static int REPLACE = 4;
+    final static int TEST = 5;
+
+    /**
+     * Compiles the given {@link NodePatch}.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchPlan<N, NAME> with(final NodePatch<N, NAME> patch) {
+        final int size = patch.size();
+
+        final int[] opcodes = new int[size];
+        final NodePointer<N, NAME>[] paths = Cast.to(new NodePointer[size]);
+        final NodePointer<N, NAME>[] froms = Cast.to(new NodePointer[size]);
+        final int[][] pathIndices = new int[size][];
+        final String[][] pathNames = new String[size][];
+        final int[][] fromIndices = new int[size][];
+        final String[][] fromNames = new String[size][];
+        final Object[] values = new Object[size];
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+
+        patch.copyOperations(operations, 0);
+
+        for (int i = 0; i < size; i++) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+            final int opcode = operation.opcode();
+
+            opcodes[i] = opcode;
+            paths[i] = operation.path;
+
+            final NodePatchPath path = operation.patchPath();
+            pathIndices[i] = indices(path);
+            pathNames[i] = names(path);
+
+            switch (opcode) {
+                case ADD:
+                case REPLACE:
+                case TEST:
+                    values[i] = ((NodePatchNotEmptyAddReplaceOrTest<N, NAME>) operation).value;
+                    break;
+                case COPY:
+                case MOVE:
+                    froms[i] = ((NodePatchNotEmptyCopyOrMove<N, NAME>) operation).from;
+
+                    final NodePatchPath from = operation.patchFrom();
+                    fromIndices[i] = indices(from);
+                    fromNames[i] = names(from);
+                    break;
+                case REMOVE:
+                    break;
+                default:
+                    NeverError.unhandledCase(opcode, ADD, COPY, MOVE, REMOVE, REPLACE, TEST);
+            }
+        }
+
+        return new NodePatchPlan<>(
+            patch,
+            opcodes,
+            paths,
+            froms,
+            pathIndices,
+            pathNames,
+            fromIndices,
+            fromNames,
+            values,
+            operations
+        );
+    }
+
+    /**
+     * Returns the index of each token of an absolute path, or -1 for a name, or null if the path is not absolute.
+     */
+    private static int[] indices(final NodePatchPath path) {
+        int[] indices = null;
+
+        if (path.isAbsolute()) {
+            final int size = path.size();
+            indices = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                indices[i] = path.index(i);
+            }
+        }
+
+        return indices;
+    }
+
+    /**
+     * Returns the unescaped name of each token of an absolute path that is not an index, or null if the path is not
+     * absolute.
+     */
+    private static String[] names(final NodePatchPath path) {
+        String[] names = null;
+
+        if (path.isAbsolute()) {
+            final int size = path.size();
+            names = new String[size];
+
+            for (int i = 0; i < size; i++) {
+                if (path.index(i) < 0) {
+                    names[i] = path.name(i);
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Private ctor use factory.
+     */
+    private NodePatchPlan(final NodePatch<N, NAME> patch,
+                          final int[] opcodes,
+                          final NodePointer<N, NAME>[] paths,
+                          final NodePointer<N, NAME>[] froms,
+                          final int[][] pathIndices,
+                          final String[][] pathNames,
+                          final int[][] fromIndices,
+                          final String[][] fromNames,
+                          final Object[] values,
+                          final NodePatchNonEmpty<N, NAME>[] operations) {
+        super();
+        this.patch = patch;
+        this.opcodes = opcodes;
+        this.paths = paths;
+        this.froms = froms;
+        this.pathIndices = pathIndices;
+        this.pathNames = pathNames;
+        this.fromIndices = fromIndices;
+        this.fromNames = fromNames;
+        this.values = values;
+        this.operations = operations;
+    }
+
+    /**
+     * The {@link NodePatch} that was compiled.
+     */
+    public NodePatch<N, NAME> patch() {
+        return this.patch;
+    }
+
+    private final NodePatch<N, NAME> patch;
+
+    /**
+     * The number of operations.
+     */
+    public int size() {
+        return this.opcodes.length;
+    }
+
+    // Function.........................................................................................................
+
+    /**
+     * Executes the plan accepting the {@link Node} as the base of all pointer paths and operations.
+     */
+    @Override
+    public N apply(final N node) {
+        Objects.requireNonNull(node, "node");
+
+        return this.execute(node, false);
+    }
+
+    /**
+     * Executes the plan like {@link NodePatch#tryApply(Node)}, returning a {@link NodePatchResult} holding the failed
+     * operation rather than throwing. The plan is only read, so one plan may be shared by many threads.
+     */
+    public NodePatchResult<N, NAME> tryApply(final N node) {
+        Objects.requireNonNull(node, "node");
+
+        NodePatchResult<N, NAME> result;
+        try {
+            result = NodePatchResult.success(
+                this.execute(node, true)
+            );
+        } catch (final ApplyNodePatchException cause) {
+            final NodePatch<N, NAME> failed = Cast.to(cause.patch());
+            result = NodePatchResult.failure(
+                NodePatchFailure.with(
+                    this.indexOf(failed),
+                    failed,
+                    cause::getMessage
+                )
+            );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the given operation, which is always one of {@link #operations}.
+     */
+    private int indexOf(final NodePatch<N, NAME> operation) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+
+        int i = 0;
+        while (operations[i] != operation) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Runs every operation, throwing an {@link ApplyNodePatchException} holding the operation that failed. When checking,
+     * each operation is first checked like {@link NodePatchValidator}, so failures have the same messages as
+     * {@link NodePatch#tryApply(Node)}.
+     */
+    private N execute(final N node,
+                      final boolean check) {
+        final int[] opcodes = this.opcodes;
+        final NodePointer<N, NAME>[] paths = this.paths;
+        final NodePointer<N, NAME>[] froms = this.froms;
+        final int[][] pathIndices = this.pathIndices;
+        final String[][] pathNames = this.pathNames;
+        final int[][] fromIndices = this.fromIndices;
+        final String[][] fromNames = this.fromNames;
+        final Object[] values = this.values;
+        final int size = opcodes.length;
+
+        final NodePatchPath start = node.isRoot() ?
+            null :
+            NodePatchPath.with(node.pointer());
+        final int[] startIndices = null == start ?
+            null :
+            indices(start);
+        final String[] startNames = null == start ?
+            null :
+            names(start);
+
+        N current = node;
+        int i = 0;
+
+        try {
+            for (; i < size; i++) {
+                final NodePointer<N, NAME> path = paths[i];
+
+                if (check) {
+                    this.check(current, i);
+                }
+
+                switch (opcodes[i]) {
+                    case ADD:
+                        current = this.add(current, path, Cast.to(values[i]), startIndices, startNames, i);
+                        break;
+                    case COPY:
+                        current = this.add(
+                            current,
+                            path,
+                            this.copying(current, froms[i], fromIndices[i], fromNames[i], i),
+                            startIndices,
+                            startNames,
+                            i
+                        );
+                        break;
+                    case MOVE:
+                        final NodePointer<N, NAME> from = froms[i];
+                        final N moving = this.copying(current, from, fromIndices[i], fromNames[i], i);
+                        current = this.add(
+                            this.remove(current, from, startIndices, startNames, i),
+                            path,
+                            moving,
+                            startIndices,
+                            startNames,
+                            i
+                        );
+                        break;
+                    case REMOVE:
+                        current = this.remove(current, path, startIndices, startNames, i);
+                        break;
+                    case REPLACE:
+                        current = this.add(
+                            this.remove(current, path, startIndices, startNames, i),
+                            path,
+                            Cast.to(values[i]),
+                            startIndices,
+                            startNames,
+                            i
+                        );
+                        break;
+                    case TEST:
+                        this.test(current, path, pathIndices[i], pathNames[i], Cast.to(values[i]), i);
+                        break;
+                    default:
+                        NeverError.unhandledCase(opcodes[i], ADD, COPY, MOVE, REMOVE, REPLACE, TEST);
+                }
+            }
+        } catch (final ApplyNodePatchException cause) {
+            throw cause;
+        } catch (final RuntimeException cause) {
+            throw new ApplyNodePatchException(
+                () -> "Patch failed: " + cause.getMessage(),
+                this.operations[i],
+                cause
+            );
+        }
+
+        return current;
+    }
+
+    /**
+     * Fails when a path the operation needs is missing, using the messages of {@link NodePatchValidator}. Operations
+     * that it cannot check, such as an insert at an index, are left to fail when applied.
+     */
+    private void check(final N node,
+                       final int i) {
+        final NodePatchNonEmpty<N, NAME> operation = this.operations[i];
+
+        switch (this.opcodes[i]) {
+            case ADD:
+                this.checkParent(node, i);
+                break;
+            case COPY:
+                this.checkFrom(node, i);
+                this.checkParent(node, i);
+                break;
+            case MOVE:
+                this.checkFrom(node, i);
+
+                final NodePatchPath from = operation.patchFrom();
+                final NodePatchPath path = operation.patchPath();
+                if (!from.overlaps(path) && !from.shifts(path)) {
+                    this.checkParent(node, i);
+                }
+                break;
+            case REMOVE:
+            case REPLACE:
+                if (operation.patchPath().size() > 0 &&
+                    null == traverse(node, this.paths[i], this.pathIndices[i], this.pathNames[i])) {
+                    throw new ApplyNodePatchException(
+                        () -> "Unable to navigate to " + operation.patchPath(),
+                        operation
+                    );
+                }
+                break;
+            case TEST:
+                break;
+            default:
+                NeverError.unhandledCase(this.opcodes[i], ADD, COPY, MOVE, REMOVE, REPLACE, TEST);
+        }
+    }
+
+    /**
+     * Fails if the path ends with a name or append and its parent is missing.
+     */
+    private void checkParent(final N node,
+                             final int i) {
+        final NodePatchNonEmpty<N, NAME> operation = this.operations[i];
+        final NodePatchPath path = operation.patchPath();
+        final int size = path.size();
+
+        if (size > 0 &&
+            path.index(size - 1) < 0 &&
+            null == navigate(node, this.pathIndices[i], this.pathNames[i], size - 1)) {
+            throw new ApplyNodePatchException(
+                () -> "Unable to navigate to parent of " + path,
+                operation
+            );
+        }
+    }
+
+    /**
+     * Fails if the from of a copy or move is missing.
+     */
+    private void checkFrom(final N node,
+                           final int i) {
+        if (null == traverse(node, this.froms[i], this.fromIndices[i], this.fromNames[i])) {
+            final NodePatchNonEmpty<N, NAME> operation = this.operations[i];
+            throw new ApplyNodePatchException(
+                () -> "Unable to navigate to find node to copy from: " + operation.patchFrom(),
+                operation
+            );
+        }
+    }
+
+    private N add(final N node,
+                  final NodePointer<N, NAME> path,
+                  final N add,
+                  final int[] startIndices,
+                  final String[] startNames,
+                  final int i) {
+        return this.traverseStartOrFail(path.add(node, add), startIndices, startNames, i);
+    }
+
+    private N remove(final N node,
+                     final NodePointer<N, NAME> path,
+                     final int[] startIndices,
+                     final String[] startNames,
+                     final int i) {
+        return this.traverseStartOrFail(path.remove(node), startIndices, startNames, i);
+    }
+
+    /**
+     * Returns the start node within the tree holding the given node, or its root when applying to a root.
+     */
+    private N traverseStartOrFail(final N node,
+                                  final int[] startIndices,
+                                  final String[] startNames,
+                                  final int i) {
+        final N root = node.root();
+        final N start = null == startIndices ?
+            root :
+            navigate(root, startIndices, startNames, startIndices.length);
+        if (null == start) {
+            throw new ApplyNodePatchException(
+                () -> "Patch failed: Unable to navigate to starting node: " + NodePatchMessages.node(node),
+                this.operations[i]
+            );
+        }
+        return start;
+    }
+
+    private N copying(final N node,
+                      final NodePointer<N, NAME> from,
+                      final int[] indices,
+                      final String[] names,
+                      final int i) {
+        final N copying = traverse(node, from, indices, names);
+        if (null == copying) {
+            throw new ApplyNodePatchException(
+                () -> "Patch failed: Unable to navigate to find node to copy from: " + NodePatchMessages.node(node),
+                this.operations[i]
+            );
+        }
+        return copying;
+    }
+
+    private void test(final N node,
+                      final NodePointer<N, NAME> path,
+                      final int[] indices,
+                      final String[] names,
+                      final N value,
+                      final int i) {
+        final N tested = traverse(node, path, indices, names);
+        if (null == tested) {
+            throw new ApplyNodePatchException("Patch failed", this.operations[i]);
+        }
+
+        final N without = tested.removeParent();
+        if (!value.equals(without)) {
+            throw new ApplyNodePatchException(
+                () -> "Value test failed: " + NodePatchMessages.node(without),
+                this.operations[i]
+            );
+        }
+    }
+
+    /**
+     * Walks the resolved steps, or the pointer itself when it is not absolute, returning null if a node is missing.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N traverse(final N node,
+                                                                                final NodePointer<N, NAME> pointer,
+                                                                                final int[] indices,
+                                                                                final String[] names) {
+        return null == indices ?
+            pointer.traverse(node)
+                .orElse(null) :
+            navigate(node, indices, names, indices.length);
+    }
+
+    /**
+     * Walks the given number of leading steps selecting the child at the index, or otherwise the child with the name,
+     * returning null if any child is missing.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N navigate(final N node,
+                                                                                final int[] indices,
+                                                                                final String[] names,
+                                                                                final int count) {
+        N current = node;
+
+        for (int i = 0; null != current && i < count; i++) {
+            final List<N> children = current.children();
+            final int index = indices[i];
+
+            N child = null;
+            if (index >= 0) {
+                if (index < children.size()) {
+                    child = children.get(index);
+                }
+            } else {
+                final String name = names[i];
+                for (final N possible : children) {
+                    if (possible.name().value().equals(name)) {
+                        child = possible;
+                        break;
+                    }
+                }
+            }
+
+            current = child;
+        }
+
+        return current;
+    }
+
+    /**
+     * The opcode of each operation.
+     */
+    private final int[] opcodes;
+
+    /**
+     * The path of each operation, used to add and remove.
+     */
+    private final NodePointer<N, NAME>[] paths;
+
+    /**
+     * The from of each COPY and MOVE, otherwise null.
+     */
+    private final NodePointer<N, NAME>[] froms;
+
+    /**
+     * The index of each step of each absolute path, -1 for a name, otherwise null.
+     */
+    private final int[][] pathIndices;
+
+    /**
+     * The name of each named step of each absolute path, otherwise null.
+     */
+    private final String[][] pathNames;
+
+    /**
+     * The index of each step of the absolute from of each COPY and MOVE, -1 for a name, otherwise null.
+     */
+    private final int[][] fromIndices;
+
+    /**
+     * The name of each named step of the absolute from of each COPY and MOVE, otherwise null.
+     */
+    private final String[][] fromNames;
+
+    /**
+     * The value of each ADD, REPLACE and TEST, otherwise null.
+     */
+    private final Object[] values;
+
+    /**
+     * The original operations, which are only used to report failures.
+     */
+    private final NodePatchNonEmpty<N, NAME>[] operations;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.patch.toString();
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Arrays;
+
+/**
+ * Transforms a patch written against a base so it may be applied after a concurrent patch written against the same
+ * base. Each operation is transformed against every concurrent operation, which is in turn transformed against the
+ * operation, so later operations, which were written after the earlier ones, are transformed against the concurrent
+ * operations as they are after the earlier operations.
+ * <ul>
+ * <li>An array index is shifted by the elements the concurrent operation inserts or removes before it, an insert at the
+ * same index as a concurrent insert goes after the concurrent element.</li>
+ * <li>A path within a node the concurrent operation moved is rewritten to where it was moved to, which is a conflict
+ * when it was appended to an array, as its index is not known.</li>
+ * <li>When both write the same path, the rebased operation wins.</li>
+ * <li>Changing a node, or anything below a node, the concurrent operation removed, or below a node it replaced, is a
+ * conflict.</li>
+ * <li>Testing or copying a node the concurrent operation changed is a conflict.</li>
+ * <li>Relative paths cannot be transformed and are always a conflict.</li>
+ * </ul>
+ */
+final class NodePatchRebase<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Returns the patch transformed to apply after the concurrent patch, or the patch when none of its paths changed.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatch<N, NAME> rebase(final NodePatch<N, NAME> patch,
+                                                                                        final NodePatch<N, NAME> concurrent) {
+        return patch.size() > 0 && concurrent.size() > 0 ?
+            new NodePatchRebase<>(concurrent).rebase(patch) :
+            patch;
+    }
+
+    private NodePatchRebase(final NodePatch<N, NAME> concurrent) {
+        super();
+
+        final int size = concurrent.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        concurrent.copyOperations(operations, 0);
+
+        this.concurrentOperations = operations;
+        this.concurrent = Cast.to(new NodePatchDiffOperation[size]);
+
+        int relative = -1;
+        for (int i = 0; i < size; i++) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+
+            // tests change nothing so other operations are never transformed by them
+            if (NodePatchPlan.TEST != operation.opcode()) {
+                final NodePatchDiffOperation<N, NAME> transformable = operation(operation);
+                if (null == transformable && relative < 0) {
+                    relative = i;
+                }
+                this.concurrent[i] = transformable;
+            }
+        }
+
+        this.relative = relative;
+    }
+
+    private NodePatch<N, NAME> rebase(final NodePatch<N, NAME> patch) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        final NodePatchBuilder<N, NAME> builder = Cast.to(NodePatchBuilder.wildcard());
+        builder.ensureCapacity(size);
+
+        boolean changed = false;
+
+        for (final NodePatchNonEmpty<N, NAME> operation : operations) {
+            final NodePatchDiffOperation<N, NAME> original = operation(operation);
+            final NodePatchDiffOperation<N, NAME> rebased = this.rebase(
+                operation,
+                original
+            );
+
+            if (original == rebased) {
+                builder.append(operation);
+            } else {
+                // a move to where the node already is does nothing
+                if (!(NodePatchPlan.MOVE == rebased.opcode && Arrays.equals(rebased.from, rebased.path))) {
+                    rebased.build(builder, Cast.to(NODE_TYPE));
+                }
+                changed = true;
+            }
+        }
+
+        return changed ?
+            builder.build() :
+            patch;
+    }
+
+    /**
+     * Transforms the operation against each concurrent operation, replacing each concurrent operation with itself
+     * transformed against the operation, or null once it no longer has any effect.
+     */
+    private NodePatchDiffOperation<N, NAME> rebase(final NodePatchNonEmpty<N, NAME> operation,
+                                                   final NodePatchDiffOperation<N, NAME> original) {
+        final NodePatchDiffOperation<N, NAME>[] concurrent = this.concurrent;
+        final int count = concurrent.length;
+
+        if (this.relative >= 0) {
+            throw this.conflict(operation, this.relative);
+        }
+
+        NodePatchDiffOperation<N, NAME> rebased = original;
+
+        for (int i = 0; i < count; i++) {
+            final NodePatchDiffOperation<N, NAME> concurrentOperation = concurrent[i];
+
+            if (null != concurrentOperation) {
+                final NodePatchDiffOperation<N, NAME> transformed = null != rebased ?
+                    transform(rebased, concurrentOperation, true) :
+                    null;
+                if (null == transformed || NodePatchPlan.COPY == transformed.opcode && Arrays.equals(transformed.from, transformed.path)) {
+                    throw this.conflict(operation, i);
+                }
+
+                concurrent[i] = transform(concurrentOperation, rebased, false);
+                rebased = transformed;
+            }
+        }
+
+        return rebased;
+    }
+
+    private RebaseNodePatchException conflict(final NodePatchNonEmpty<N, NAME> operation,
+                                              final int concurrent) {
+        final NodePatchNonEmpty<N, NAME> concurrentOperation = this.concurrentOperations[concurrent];
+
+        return new RebaseNodePatchException(
+            "Conflict between " + NodePatchMessages.patch(operation) + " and concurrent " + NodePatchMessages.patch(concurrentOperation),
+            operation,
+            concurrentOperation
+        );
+    }
+
+    /**
+     * Returns the operation with its paths as tokens, or null if any of its paths are relative.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> operation(final NodePatchNonEmpty<N, NAME> operation) {
+        final NodePatchPath from = operation.patchFrom();
+
+        NodePatchDiffOperation<N, NAME> transformable = null;
+
+        if (operation.patchPath().isAbsolute() && (null == from || from.isAbsolute())) {
+            final Object[] path = NodePatchRebaseNodePointerVisitor.tokens(operation.path);
+
+            switch (operation.opcode()) {
+                case NodePatchPlan.ADD:
+                    transformable = NodePatchDiffOperation.add(path, value(operation));
+                    break;
+                case NodePatchPlan.COPY:
+                    transformable = NodePatchDiffOperation.copy(from(operation), path, null);
+                    break;
+                case NodePatchPlan.MOVE:
+                    transformable = NodePatchDiffOperation.move(from(operation), path, null);
+                    break;
+                case NodePatchPlan.REMOVE:
+                    transformable = NodePatchDiffOperation.remove(path, null);
+                    break;
+                case NodePatchPlan.REPLACE:
+                    transformable = NodePatchDiffOperation.replace(path, value(operation));
+                    break;
+                default:
+                    transformable = NodePatchDiffOperation.test(path, value(operation));
+                    break;
+            }
+        }
+
+        return transformable;
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> Object[] from(final NodePatchNonEmpty<N, NAME> operation) {
+        return NodePatchRebaseNodePointerVisitor.tokens(((NodePatchNotEmptyCopyOrMove<N, NAME>) operation).from);
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N value(final NodePatchNonEmpty<N, NAME> operation) {
+        return ((NodePatchNotEmptyAddReplaceOrTest<N, NAME>) operation).value;
+    }
+
+    /**
+     * Returns the operation transformed to apply after the other operation, where both were written against the same
+     * node, or null if it cannot be transformed. The rebased operation is after and wins when both write the same path,
+     * for the concurrent operation after is false and null means its effects were removed or overwritten by the other
+     * operation.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchDiffOperation<N, NAME> transform(final NodePatchDiffOperation<N, NAME> operation,
+                                                                                                                final NodePatchDiffOperation<N, NAME> other,
+                                                                                                                final boolean after) {
+        final Object[] from = operation.from;
+        final Object[] path = operation.path;
+
+        Object[] transformedFrom = from;
+        Object[] transformedPath;
+
+        switch (operation.opcode) {
+            case NodePatchPlan.ADD:
+                transformedPath = map(path, INSERT, other, after);
+                break;
+            case NodePatchPlan.COPY:
+                // copying a value the other operation changed is a conflict like testing it, where the concurrent copy
+                // was copied from no longer matters as it is already inserted
+                if (after) {
+                    transformedFrom = tests(from, other) ?
+                        map(from, READ, other, after) :
+                        null;
+                }
+                transformedPath = map(path, INSERT, other, after);
+                break;
+            case NodePatchPlan.MOVE:
+                transformedFrom = map(from, READ, other, after);
+
+                // the path is found after removing the moved node, so the other operation must be transformed the same way
+                transformedPath = map(
+                    path,
+                    INSERT,
+                    transform(other, NodePatchDiffOperation.remove(from, null), !after),
+                    after
+                );
+                break;
+            case NodePatchPlan.REMOVE:
+            case NodePatchPlan.REPLACE:
+                transformedPath = map(path, WRITE, other, after);
+                break;
+            default:
+                transformedPath = tests(path, other) ?
+                    map(path, READ, other, after) :
+                    null;
+                break;
+        }
+
+        NodePatchDiffOperation<N, NAME> transformed = null;
+
+        if (UNKNOWN == transformedFrom || UNKNOWN == transformedPath) {
+            // a concurrent operation that cannot be followed conflicts with every later operation
+            if (!after) {
+                transformed = NodePatchDiffOperation.replace(new Object[0], null);
+            }
+        } else {
+            if (NodePatchPlan.MOVE == operation.opcode && !after) {
+                // when both move the same node the rebased move wins, if the concurrently moved node was removed it was
+                // still inserted, and if where it was moved to was overwritten it was still removed
+                if (!(NodePatchPlan.MOVE == other.opcode && Arrays.equals(from, other.from))) {
+                    if (null == transformedFrom) {
+                        if (null != transformedPath) {
+                            transformed = NodePatchDiffOperation.add(transformedPath, null);
+                        }
+                    } else {
+                        transformed = null != transformedPath ?
+                            operation.setPaths(transformedFrom, transformedPath) :
+                            NodePatchDiffOperation.remove(transformedFrom, null);
+                    }
+                }
+            } else {
+                // a node cannot be moved into itself
+                if ((null == from || null != transformedFrom) &&
+                    null != transformedPath &&
+                    !(NodePatchPlan.MOVE == operation.opcode && transformedFrom.length < transformedPath.length && isPrefix(transformedFrom, transformedPath))) {
+                    transformed = operation.setPaths(transformedFrom, transformedPath);
+                }
+            }
+        }
+
+        return transformed;
+    }
+
+    /**
+     * Returns true if the other operation did not change the tested path, moving or shifting the tested node is not a
+     * change.
+     */
+    private static boolean tests(final Object[] path,
+                                 final NodePatchDiffOperation<?, ?> other) {
+        final boolean changes;
+
+        switch (other.opcode) {
+            case NodePatchPlan.ADD:
+            case NodePatchPlan.COPY:
+                changes = changes(path, other.path, true);
+                break;
+            case NodePatchPlan.MOVE:
+                changes = changes(path, other.path, true) ||
+                    path.length < other.from.length && isPrefix(path, other.from);
+                break;
+            case NodePatchPlan.REMOVE:
+            case NodePatchPlan.REPLACE:
+                changes = changes(path, other.path, false);
+                break;
+            default:
+                changes = false;
+                break;
+        }
+
+        return !changes;
+    }
+
+    /**
+     * Returns true if writing the given path changes the tested path or anything below it, inserting at the same index
+     * only shifts the tested node.
+     */
+    private static boolean changes(final Object[] tested,
+                                   final Object[] path,
+                                   final boolean insert) {
+        return isPrefix(tested, path) &&
+            !(insert && tested.length == path.length && lastIndex(path) >= 0);
+    }
+
+    /**
+     * Returned by {@link #map(Object[], int, NodePatchDiffOperation, boolean)} when the path cannot be known without
+     * the node, such as a path within a node moved to the end of an array.
+     */
+    private final static Object[] UNKNOWN = new Object[0];
+
+    /**
+     * The path is read, such as the path of a test or the from of a copy or move.
+     */
+    private final static int READ = 0;
+
+    /**
+     * The path is removed or replaced.
+     */
+    private final static int WRITE = 1;
+
+    /**
+     * The path is where a node is inserted.
+     */
+    private final static int INSERT = 2;
+
+    /**
+     * Returns the path transformed to follow the other operation, or null if it no longer exists or when not after, if
+     * the write was overwritten.
+     */
+    private static Object[] map(final Object[] path,
+                                final int use,
+                                final NodePatchDiffOperation<?, ?> other,
+                                final boolean after) {
+        Object[] mapped = path;
+
+        if (null != other) {
+            switch (other.opcode) {
+                case NodePatchPlan.ADD:
+                case NodePatchPlan.COPY:
+                    mapped = inserted(path, use, other.path, after);
+                    break;
+                case NodePatchPlan.MOVE:
+                    mapped = moved(path, use, other.from, other.path, after);
+                    break;
+                case NodePatchPlan.REMOVE:
+                    mapped = removed(path, use, other.path, after);
+                    break;
+                case NodePatchPlan.REPLACE:
+                    mapped = replaced(path, use, other.path, after);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Shifts later array elements, an insert with a name replaces any existing node.
+     */
+    private static Object[] inserted(final Object[] path,
+                                     final int use,
+                                     final Object[] insert,
+                                     final boolean after) {
+        Object[] mapped = path;
+
+        final int index = lastIndex(insert);
+        if (index >= 0) {
+            final int depth = insert.length - 1;
+
+            if (isSibling(insert, path)) {
+                final int pathIndex = index(path[depth]);
+                if (pathIndex > index ||
+                    pathIndex == index && (INSERT != use || path.length > insert.length || after)) {
+                    mapped = setIndex(path, depth, pathIndex + 1);
+                }
+            }
+        } else {
+            if (!isAppend(insert)) {
+                mapped = replaced(path, use, insert, after);
+            }
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Follows the moved node, otherwise the node is removed and inserted elsewhere.
+     */
+    private static Object[] moved(final Object[] path,
+                                  final int use,
+                                  final Object[] from,
+                                  final Object[] to,
+                                  final boolean after) {
+        Object[] mapped;
+
+        // inserting before the moved array element does not follow it
+        if (isPrefix(from, path) && !(INSERT == use && path.length == from.length && lastIndex(path) >= 0)) {
+            // the index of an append is not known without the node
+            if (isAppend(to)) {
+                mapped = UNKNOWN;
+            } else {
+                mapped = new Object[to.length + path.length - from.length];
+                System.arraycopy(to, 0, mapped, 0, to.length);
+                System.arraycopy(path, from.length, mapped, to.length, path.length - from.length);
+            }
+        } else {
+            mapped = removed(path, use, from, after);
+            if (null != mapped) {
+                mapped = inserted(mapped, use, to, after);
+            }
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Paths at or below the removed node no longer exist, except to insert at the same place, later array elements are
+     * shifted back.
+     */
+    private static Object[] removed(final Object[] path,
+                                    final int use,
+                                    final Object[] remove,
+                                    final boolean after) {
+        Object[] mapped = path;
+
+        final int index = lastIndex(remove);
+
+        if (isPrefix(remove, path)) {
+            if (!(INSERT == use && path.length == remove.length && (after || index >= 0))) {
+                mapped = null;
+            }
+        } else {
+            if (index >= 0 && isSibling(remove, path)) {
+                final int depth = remove.length - 1;
+                final int pathIndex = index(path[depth]);
+                if (pathIndex > index) {
+                    mapped = setIndex(path, depth, pathIndex - 1);
+                }
+            }
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Paths below the replaced node no longer exist, a write of the replaced node is overwritten unless after.
+     */
+    private static Object[] replaced(final Object[] path,
+                                     final int use,
+                                     final Object[] replace,
+                                     final boolean after) {
+        Object[] mapped = path;
+
+        if (isPrefix(replace, path)) {
+            if (path.length > replace.length) {
+                mapped = null;
+            } else {
+                if (!(READ == use || after || INSERT == use && lastIndex(path) >= 0)) {
+                    mapped = null;
+                }
+            }
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Returns true if the prefix equals or is an ancestor of the path.
+     */
+    private static boolean isPrefix(final Object[] prefix,
+                                    final Object[] path) {
+        return prefix.length <= path.length &&
+            isPrefix(prefix, prefix.length, path);
+    }
+
+    /**
+     * Returns true if the path is at or below a sibling of the node at the given path.
+     */
+    private static boolean isSibling(final Object[] sibling,
+                                     final Object[] path) {
+        return sibling.length <= path.length &&
+            isPrefix(sibling, sibling.length - 1, path);
+    }
+
+    private static boolean isPrefix(final Object[] prefix,
+                                    final int length,
+                                    final Object[] path) {
+        boolean prefixed = true;
+
+        for (int i = 0; prefixed && i < length; i++) {
+            prefixed = prefix[i].equals(path[i]);
+        }
+
+        return prefixed;
+    }
+
+    private static boolean isAppend(final Object[] path) {
+        final int length = path.length;
+        return length > 0 &&
+            NodePatchPath.APPEND.equals(path[length - 1]);
+    }
+
+    /**
+     * Returns the index the path ends with or -1.
+     */
+    private static int lastIndex(final Object[] path) {
+        final int length = path.length;
+        return length > 0 ?
+            index(path[length - 1]) :
+            -1;
+    }
+
+    private static int index(final Object token) {
+        return token instanceof Integer ?
+            (Integer) token :
+            -1;
+    }
+
+    private static Object[] setIndex(final Object[] path,
+                                     final int depth,
+                                     final int index) {
+        final Object[] copy = path.clone();
+        copy[depth] = index;
+        return copy;
+    }
+
+    /**
+     * The type of rebuilt pointers, which is only required to create the first component.
+     */
+    private final static Class<?> NODE_TYPE = Node.class;
+
+    /**
+     * The concurrent operations, used to report conflicts.
+     */
+    private final NodePatchNonEmpty<N, NAME>[] concurrentOperations;
+
+    /**
+     * The concurrent operations transformed by the operations rebased so far, null for tests and operations that no
+     * longer have any effect.
+     */
+    private final NodePatchDiffOperation<N, NAME>[] concurrent;
+
+    /**
+     * The index of the first concurrent operation with a relative path or -1.
+     */
+    private final int relative;
+}
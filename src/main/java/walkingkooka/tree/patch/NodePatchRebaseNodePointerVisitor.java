@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+import walkingkooka.tree.pointer.NodePointerVisitor;
+import walkingkooka.visit.Visiting;
+
+import java.util.List;
+
+/**
+ * Walks a {@link NodePointer} collecting its components as tokens, which are either a {@link Name}, an {@link Integer}
+ * index or {@link NodePatchPath#APPEND}, so {@link NodePatchRebase} can rewrite them and build a new pointer.
+ */
+final class NodePatchRebaseNodePointerVisitor<N extends Node<N, NAME, ?, ?>, NAME extends Name> extends NodePointerVisitor<N, NAME> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> Object[] tokens(final NodePointer<N, NAME> path) {
+        final NodePatchRebaseNodePointerVisitor<N, NAME> visitor = new NodePatchRebaseNodePointerVisitor<>();
+        visitor.accept(path);
+        return visitor.tokens.toArray();
+    }
+
+    // VisibleForTesting
+    NodePatchRebaseNodePointerVisitor() {
+        super();
+    }
+
+    @Override
+    protected Visiting startVisitNamedChild(final NodePointer<N, NAME> node,
+                                            final NAME name) {
+        this.tokens.add(name);
+        return Visiting.CONTINUE;
+    }
+
+    @Override
+    protected Visiting startVisitIndexedChild(final NodePointer<N, NAME> node,
+                                              final int index) {
+        this.tokens.add(index);
+        return Visiting.CONTINUE;
+    }
+
+    @Override
+    protected void visitAppend(final NodePointer<N, NAME> node) {
+        this.tokens.add(NodePatchPath.APPEND);
+    }
+
+    // VisibleForTesting
+    final List<Object> tokens = Lists.array();
+
+    @Override
+    public String toString() {
+        return this.tokens.toString();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Optional;
+
+/**
+ * The result of {@link NodePatch#tryApply(Node)}, either a success holding the patched node or a failure holding a
+ * {@link NodePatchFailure}.
+ */
+public abstract class NodePatchResult<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchResult<N, NAME> success(final N value) {
+        return NodePatchResultSuccess.with(value);
+    }
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchResult<N, NAME> failure(final NodePatchFailure<N, NAME> failure) {
+        return NodePatchResultFailure.with(failure);
+    }
+
+    /**
+     * Package private to limit sub-classing.
+     */
+    NodePatchResult() {
+        super();
+    }
+
+    /**
+     * Returns true if every operation succeeded.
+     */
+    public abstract boolean isSuccess();
+
+    /**
+     * The patched node if successful.
+     */
+    public abstract Optional<N> value();
+
+    /**
+     * The failure if unsuccessful.
+     */
+    public abstract Optional<NodePatchFailure<N, NAME>> failure();
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Optional;
+
+/**
+ * A {@link NodePatchResult} holding the {@link NodePatchFailure} of the operation that failed.
+ */
+final class NodePatchResultFailure<N extends Node<N, NAME, ?, ?>, NAME extends Name> extends NodePatchResult<N, NAME> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchResultFailure<N, NAME> with(final NodePatchFailure<N, NAME> failure) {
+        return new NodePatchResultFailure<>(failure);
+    }
+
+    private NodePatchResultFailure(final NodePatchFailure<N, NAME> failure) {
+        super();
+        this.failure = failure;
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return false;
+    }
+
+    @Override
+    public Optional<N> value() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<NodePatchFailure<N, NAME>> failure() {
+        return Optional.of(this.failure);
+    }
+
+    private final NodePatchFailure<N, NAME> failure;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return this.failure.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchResultFailure && this.failure.equals(((NodePatchResultFailure<?, ?>) other).failure);
+    }
+
+    @Override
+    public String toString() {
+        return "Failure " + this.failure;
+    }
+}
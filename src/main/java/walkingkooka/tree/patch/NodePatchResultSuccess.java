@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+
+import java.util.Optional;
+
+/**
+ * A successful {@link NodePatchResult} holding the patched node.
+ */
+final class NodePatchResultSuccess<N extends Node<N, NAME, ?, ?>, NAME extends Name> extends NodePatchResult<N, NAME> {
+
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchResultSuccess<N, NAME> with(final N value) {
+        return new NodePatchResultSuccess<>(value);
+    }
+
+    private NodePatchResultSuccess(final N value) {
+        super();
+        this.value = value;
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return true;
+    }
+
+    @Override
+    public Optional<N> value() {
+        return Optional.of(this.value);
+    }
+
+    private final N value;
+
+    @Override
+    public Optional<NodePatchFailure<N, NAME>> failure() {
+        return Optional.empty();
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return this.value.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchResultSuccess && this.value.equals(((NodePatchResultSuccess<?, ?>) other).value);
+    }
+
+    /**
+     * The value is not included as it may be a large document.
+     */
+    @Override
+    public String toString() {
+        return "Success";
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.json.JsonArray;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.marshall.JsonNodeMarshallContext;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.List;
+
+/**
+ * A patch holding two or more operations in a flat array.<br>
+ * The array may be shared by several sequences, each sequence only ever reading the operations between its
+ * {@link #offset} and {@link #size}. Appending claims the free slot after the last operation when it has not already
+ * been claimed by another append, otherwise the operations are copied to a new larger array. This makes appends to a
+ * chain of patches amortized O(1).<br>
+ * Sequences created by {@link NodePatch#concat(NodePatch[])} only hold their parts, which are copied into a flat array
+ * the first time the operations are needed.
+ */
+final class NodePatchSequence<N extends Node<N, NAME, ?, ?>, NAME extends Name> extends NodePatch<N, NAME> {
+
+    /**
+     * The initial capacity of the operations array.
+     */
+    private final static int INITIAL_CAPACITY = 4;
+
+    /**
+     * Creates a new {@link NodePatchSequence} with the two operations.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchSequence<N, NAME> with(final NodePatchNonEmpty<N, NAME> first,
+                                                                                            final NodePatchNonEmpty<N, NAME> second) {
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[INITIAL_CAPACITY]);
+        operations[0] = first;
+        operations[1] = second;
+
+        return new NodePatchSequence<>(operations, 0, 2, null);
+    }
+
+    /**
+     * Creates a new {@link NodePatchSequence} taking ownership of the given array holding two or more operations.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchSequence<N, NAME> with(final NodePatchNonEmpty<N, NAME>[] operations,
+                                                                                            final int size) {
+        return new NodePatchSequence<>(operations, 0, size, null);
+    }
+
+    /**
+     * Creates a new {@link NodePatchSequence} that holds the given non empty parts, which together have size operations.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchSequence<N, NAME> concat(final NodePatch<N, NAME>[] parts,
+                                                                                              final int size) {
+        return new NodePatchSequence<>(null, 0, size, parts);
+    }
+
+    /**
+     * Private ctor use factory.
+     */
+    private NodePatchSequence(final NodePatchNonEmpty<N, NAME>[] operations,
+                              final int offset,
+                              final int size,
+                              final NodePatch<N, NAME>[] parts) {
+        super();
+        this.operations = operations;
+        this.offset = offset;
+        this.size = size;
+        this.parts = parts;
+    }
+
+    /**
+     * Claims the free slot after the last operation if possible, otherwise copies the operations into a new larger array.
+     */
+    @Override
+    NodePatch<N, NAME> append(final NodePatchNonEmpty<N, NAME> operation) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations();
+        final int offset = this.offset;
+        final int size = this.size;
+        final int end = offset + size;
+
+        return end < operations.length && claim(operations, end, operation) ?
+            new NodePatchSequence<>(operations, offset, size + 1, null) :
+            new NodePatchSequence<>(grow(operations, offset, size, operation), 0, size + 1, null);
+    }
+
+    /**
+     * Attempts to store the operation in the given free slot, returning false if another append got there first
+     * with a different operation.
+     */
+    private static boolean claim(final Object[] operations,
+                                 final int index,
+                                 final Object operation) {
+        synchronized (operations) {
+            final Object claimed = operations[index];
+            if (null == claimed) {
+                operations[index] = operation;
+            }
+            return null == claimed || operation == claimed;
+        }
+    }
+
+    /**
+     * Copies the operations into a new array with room for more operations and adds the new operation.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchNonEmpty<N, NAME>[] grow(final NodePatchNonEmpty<N, NAME>[] operations,
+                                                                                                     final int offset,
+                                                                                                     final int size,
+                                                                                                     final NodePatchNonEmpty<N, NAME> operation) {
+        final NodePatchNonEmpty<N, NAME>[] copy = Cast.to(new NodePatchNonEmpty[size + (size >> 1) + 1]);
+        System.arraycopy(operations, offset, copy, 0, size);
+        copy[size] = operation;
+        return copy;
+    }
+
+    /**
+     * Returns the operations array, copying the {@link #parts} into a new array the first time for concatenated sequences.
+     */
+    private NodePatchNonEmpty<N, NAME>[] operations() {
+        NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+
+        if (null == operations) {
+            operations = Cast.to(new NodePatchNonEmpty[this.size]);
+
+            int i = 0;
+            for (final NodePatch<N, NAME> part : this.parts) {
+                i = part.copyOperations(operations, i);
+            }
+
+            this.operations = operations;
+        }
+
+        return operations;
+    }
+
+    /**
+     * Possibly shared array holding the operations, only those between {@link #offset} and {@link #size} belong to
+     * this patch. This will be null for concatenated sequences until the operations are first needed.
+     */
+    private volatile NodePatchNonEmpty<N, NAME>[] operations;
+
+    /**
+     * The index of the first operation within {@link #operations}.
+     */
+    private final int offset;
+
+    /**
+     * The number of operations in this patch, always two or more.
+     */
+    private final int size;
+
+    /**
+     * The non empty patches of a concatenated sequence, otherwise null.
+     */
+    private final NodePatch<N, NAME>[] parts;
+
+    // operations.......................................................................................................
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    NodePatchNonEmpty<N, NAME> operation(final int index) {
+        return this.operations()[this.offset + index];
+    }
+
+    /**
+     * Returns a view sharing the operations array, which is only copied if the view has operations appended.
+     */
+    @Override
+    NodePatch<N, NAME> subPatch0(final int from,
+                                 final int to) {
+        final NodePatch<N, NAME> patch;
+
+        switch (to - from) {
+            case 0:
+                patch = Cast.to(NodePatchEmpty.getWildcard());
+                break;
+            case 1:
+                patch = this.operation(from);
+                break;
+            default:
+                patch = from == 0 && to == this.size ?
+                    this :
+                    new NodePatchSequence<>(this.operations(), this.offset + from, to - from, null);
+                break;
+        }
+
+        return patch;
+    }
+
+    @Override
+    int copyOperations(final NodePatchNonEmpty<N, NAME>[] target,
+                       final int index) {
+        final int size = this.size;
+        System.arraycopy(this.operations(), this.offset, target, index, size);
+        return index + size;
+    }
+
+    // Function.........................................................................................................
+
+    /**
+     * Applies each operation in turn.
+     */
+    @Override
+    N apply0(final N node,
+             final NodePointer<N, NAME> start) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations();
+        final int offset = this.offset;
+        final int end = offset + this.size;
+
+        N current = node;
+        for (int i = offset; i < end; i++) {
+            current = operations[i].apply0(current, start);
+        }
+        return current;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations();
+        final int offset = this.offset;
+        final int end = offset + this.size;
+
+        int hashCode = 1;
+        for (int i = offset; i < end; i++) {
+            hashCode = 31 * hashCode + operations[i].hashCode();
+        }
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof NodePatchSequence && this.equals0(Cast.to(other));
+    }
+
+    private boolean equals0(final NodePatchSequence<?, ?> other) {
+        final int size = this.size;
+        boolean equals = size == other.size;
+
+        if (equals) {
+            final NodePatchNonEmpty<?, ?>[] operations = this.operations();
+            final int offset = this.offset;
+            final NodePatchNonEmpty<?, ?>[] otherOperations = other.operations();
+            final int otherOffset = other.offset;
+
+            for (int i = 0; equals && i < size; i++) {
+                equals = operations[offset + i].equals(otherOperations[otherOffset + i]);
+            }
+        }
+
+        return equals;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        this.toString0(b);
+        return b.toString();
+    }
+
+    @Override
+    void toString0(final StringBuilder b) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations();
+        final int offset = this.offset;
+        final int end = offset + this.size;
+
+        String separator = "";
+        for (int i = offset; i < end; i++) {
+            b.append(separator);
+            operations[i].toString0(b);
+
+            separator = ", ";
+        }
+    }
+
+    // HasJsonNode......................................................................................................
+
+    /**
+     * A sequence is represented as an array with elements for each operation.<br>
+     * <pre>
+     * {
+     *   "type": "patch",
+     *   "value": [{
+     *     "op": "move",
+     *     "path-name-type": "json-property-name",
+     *     "from": "/b2",
+     *     "path": "/a1"
+     *   }, {
+     *     "op": "move",
+     *     "path-name-type": "json-property-name",
+     *     "from": "/b2",
+     *     "path": "/c3"
+     *   }, {
+     *     "op": "move",
+     *     "path-name-type": "json-property-name",
+     *     "from": "/c3",
+     *     "path": "/a1"
+     *   }]
+     * }
+     * </pre>
+     */
+    @Override
+    JsonArray marshall0(final NodePatchToJsonFormat format,
+                        final JsonNodeMarshallContext context) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations();
+        final int offset = this.offset;
+        final int end = offset + this.size;
+
+        final List<JsonNode> elements = Lists.array();
+        for (int i = offset; i < end; i++) {
+            elements.add(operations[i].marshallOperation(format, context));
+        }
+
+        return JsonNode.array().setChildren(elements);
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import walkingkooka.Cast;
+import walkingkooka.NeverError;
+import walkingkooka.naming.Name;
+import walkingkooka.tree.Node;
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Checks whether every operation of a patch would succeed without building the trees {@link NodePatch#apply(Node)}
+ * creates. Each operation is checked against the original node by traversing its paths, and earlier operations are
+ * only applied when a later operation reads something they change, or when an operation cannot be checked by
+ * traversal alone, such as an insert at a missing array index or a move within the moved node.<br>
+ * Numeric tokens are navigated by index and all others by name. Adding a named child, or appending, is only known to
+ * succeed when the existing children of the parent show it holds named or indexed children, otherwise such as for an
+ * empty parent or a leaf, the add is applied to find out.<br>
+ * {@link NodePatch#tryApply(Node)} uses the same checks but applies each operation once it has been checked, so
+ * failures found by the checks never create an exception.
+ */
+final class NodePatchValidator<N extends Node<N, NAME, ?, ?>, NAME extends Name> {
+
+    /**
+     * Validates the patch against the given node, returning the first failure if any.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> Optional<NodePatchFailure<N, NAME>> validate(final NodePatch<N, NAME> patch,
+                                                                                                          final N node,
+                                                                                                          final NodePointer<N, NAME> start) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        final NodePatchValidator<N, NAME> validator = new NodePatchValidator<>(operations, start, MAX_PENDING);
+        validator.check(node);
+
+        return Optional.ofNullable(validator.failure);
+    }
+
+    /**
+     * Applies the patch to the given node, checking each operation before it is applied so failures are reported
+     * without creating exceptions, except for operations that cannot be checked by traversal alone.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchResult<N, NAME> tryApply(final NodePatch<N, NAME> patch,
+                                                                                               final N node,
+                                                                                               final NodePointer<N, NAME> start) {
+        final int size = patch.size();
+        final NodePatchNonEmpty<N, NAME>[] operations = Cast.to(new NodePatchNonEmpty[size]);
+        patch.copyOperations(operations, 0);
+
+        return tryApply(operations, node, start);
+    }
+
+    /**
+     * Applies the patch to each node like {@link #tryApply(NodePatch, Node, NodePointer)}. The patch is compiled once
+     * into a {@link NodePatchPlan} shared by every node, so the returned {@link Stream} may be parallel if the given
+     * {@link Stream} is.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> Stream<NodePatchResult<N, NAME>> applyAll(final NodePatch<N, NAME> patch,
+                                                                                                       final Stream<N> nodes) {
+        return nodes.map(
+            NodePatchPlan.with(patch)::tryApply
+        );
+    }
+
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> NodePatchResult<N, NAME> tryApply(final NodePatchNonEmpty<N, NAME>[] operations,
+                                                                                                       final N node,
+                                                                                                       final NodePointer<N, NAME> start) {
+        final NodePatchValidator<N, NAME> validator = new NodePatchValidator<>(operations, start, 0);
+        N patched = validator.check(node);
+        if (null == validator.failure) {
+            patched = validator.apply(patched, validator.applied, operations.length);
+        }
+
+        final NodePatchFailure<N, NAME> failure = validator.failure;
+        return null == failure ?
+            NodePatchResult.success(patched) :
+            NodePatchResult.failure(failure);
+    }
+
+    // VisibleForTesting
+    NodePatchValidator(final NodePatchNonEmpty<N, NAME>[] operations,
+                       final NodePointer<N, NAME> start,
+                       final int maxPending) {
+        super();
+        this.operations = operations;
+        this.start = start;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Checks every operation stopping at the first failure, returning the node with the operations before
+     * {@link #applied} applied.
+     */
+    private N check(final N node) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final int maxPending = this.maxPending;
+        final int size = operations.length;
+
+        N current = node;
+        int applied = 0;
+
+        for (int i = 0; null == this.failure && i < size; i++) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+
+            if (i - applied >= maxPending || this.changedByPending(operation, applied, i)) {
+                current = this.apply(current, applied, i);
+                applied = i;
+            }
+
+            if (null == this.failure) {
+                final int checked = this.check(operation, current);
+                switch (checked) {
+                    case VALID:
+                        break;
+                    case INVALID:
+                        this.failure = NodePatchFailure.with(i, operation, this.message);
+                        break;
+                    case UNKNOWN:
+                        current = this.apply(current, applied, i + 1);
+                        applied = i + 1;
+                        break;
+                    default:
+                        NeverError.unhandledCase(checked, VALID, INVALID, UNKNOWN);
+                }
+            }
+        }
+
+        this.applied = applied;
+        return current;
+    }
+
+    /**
+     * The maximum number of checked operations that are not yet applied when validating, which bounds the cost of
+     * testing each operation against them.
+     */
+    private final static int MAX_PENDING = 64;
+
+    /**
+     * Returns true if any of the pending operations changes the path or from of the given operation.
+     */
+    private boolean changedByPending(final NodePatchNonEmpty<N, NAME> operation,
+                                     final int from,
+                                     final int to) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final NodePatchPath path = operation.patchPath();
+        final NodePatchPath operationFrom = operation.patchFrom();
+
+        boolean changed = false;
+        for (int i = from; !changed && i < to; i++) {
+            final NodePatchNonEmpty<N, NAME> pending = operations[i];
+            changed = pending.changes(path) ||
+                null != operationFrom && pending.changes(operationFrom);
+        }
+        return changed;
+    }
+
+    /**
+     * Applies the operations between from and to, recording the failure and returning null if one fails.
+     */
+    private N apply(final N node,
+                    final int from,
+                    final int to) {
+        final NodePatchNonEmpty<N, NAME>[] operations = this.operations;
+        final NodePointer<N, NAME> start = this.start;
+
+        N current = node;
+        for (int i = from; null != current && i < to; i++) {
+            final NodePatchNonEmpty<N, NAME> operation = operations[i];
+            try {
+                current = operation.apply0(current, start);
+            } catch (final ApplyNodePatchException cause) {
+                this.failure = NodePatchFailure.with(i, operation, cause::getMessage);
+                current = null;
+            }
+        }
+        return current;
+    }
+
+    private final static int VALID = 0;
+    private final static int INVALID = 1;
+    private final static int UNKNOWN = 2;
+
+    /**
+     * Checks the operation by traversing the node, returning {@link #UNKNOWN} when that is not possible.
+     */
+    private int check(final NodePatchNonEmpty<N, NAME> operation,
+                      final N node) {
+        final int opcode = operation.opcode();
+        int result = UNKNOWN;
+
+        switch (opcode) {
+            case NodePatchPlan.ADD:
+                result = this.checkAdd(operation, node);
+                break;
+            case NodePatchPlan.COPY:
+                result = this.checkFrom(operation, node) ?
+                    this.checkAdd(operation, node) :
+                    INVALID;
+                break;
+            case NodePatchPlan.MOVE:
+                if (this.checkFrom(operation, node)) {
+                    final NodePatchPath from = operation.patchFrom();
+                    final NodePatchPath path = operation.patchPath();
+
+                    result = from.overlaps(path) || from.shifts(path) ?
+                        UNKNOWN :
+                        this.checkAdd(operation, node);
+                } else {
+                    result = INVALID;
+                }
+                break;
+            case NodePatchPlan.REMOVE:
+            case NodePatchPlan.REPLACE:
+                result = this.checkExists(operation, node);
+                break;
+            case NodePatchPlan.TEST:
+                result = this.checkTest(operation, node);
+                break;
+            default:
+                NeverError.unhandledCase(opcode, NodePatchPlan.ADD, NodePatchPlan.COPY, NodePatchPlan.MOVE, NodePatchPlan.REMOVE, NodePatchPlan.REPLACE, NodePatchPlan.TEST);
+        }
+
+        return result;
+    }
+
+    /**
+     * An add succeeds if its path exists or if the parent exists and the path ends with a name or append that the parent
+     * accepts.
+     */
+    private int checkAdd(final NodePatchNonEmpty<N, NAME> operation,
+                         final N node) {
+        final NodePatchPath path = operation.patchPath();
+        final int size = path.size();
+
+        final int result;
+        if (0 == size) {
+            result = UNKNOWN;
+        } else {
+            if (operation.path.traverse(node).isPresent()) {
+                result = VALID;
+            } else {
+                if (path.index(size - 1) >= 0) {
+                    result = UNKNOWN;
+                } else {
+                    final N parent = navigate(node, path, size - 1);
+                    if (null != parent) {
+                        result = accepts(parent, NodePatchPath.APPEND.equals(path.token(size - 1))) ?
+                            VALID :
+                            UNKNOWN;
+                    } else {
+                        this.message = () -> "Unable to navigate to parent of " + path;
+                        result = INVALID;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns true if the existing children of the parent are uniquely named, for a named add, or not, for an append.
+     * A parent without children, which may be a leaf, is not known to accept either.
+     */
+    private static <N extends Node<N, NAME, ?, ?>, NAME extends Name> boolean accepts(final N parent,
+                                                                                     final boolean append) {
+        final List<N> children = parent.children();
+        return !children.isEmpty() &&
+            children.get(0).hasUniqueNameAmongstSiblings() != append;
+    }
+
+    /**
+     * Returns true if the from of a copy or move exists.
+     */
+    private boolean checkFrom(final NodePatchNonEmpty<N, NAME> operation,
+                              final N node) {
+        final NodePointer<N, NAME> from = ((NodePatchNotEmptyCopyOrMove<N, NAME>) operation).from;
+        final boolean exists = from.traverse(node).isPresent();
+        if (!exists) {
+            this.message = () -> "Unable to navigate to find node to copy from: " + operation.patchFrom();
+        }
+        return exists;
+    }
+
+    /**
+     * A remove or replace succeeds if its path exists, removing the node itself is not checked.
+     */
+    private int checkExists(final NodePatchNonEmpty<N, NAME> operation,
+                            final N node) {
+        final NodePatchPath path = operation.patchPath();
+
+        final int result;
+        if (0 == path.size()) {
+            result = UNKNOWN;
+        } else {
+            if (operation.path.traverse(node).isPresent()) {
+                result = VALID;
+            } else {
+                this.message = () -> "Unable to navigate to " + path;
+                result = INVALID;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * A test succeeds if its path exists and holds an equal value.
+     */
+    private int checkTest(final NodePatchNonEmpty<N, NAME> operation,
+                          final N node) {
+        final Optional<N> tested = operation.path.traverse(node);
+
+        int result = INVALID;
+        if (tested.isPresent()) {
+            final N without = tested.get()
+                .removeParent();
+            if (((NodePatchNotEmptyAddReplaceOrTest<N, NAME>) operation).value.equals(without)) {
+                result = VALID;
+            } else {
+                this.message = () -> "Value test failed: " + NodePatchMessages.node(without);
+            }
+        } else {
+            this.message = () -> "Patch failed";
+        }
+
+        return result;
+    }
+
+    /**
+     * Navigates the given number of leading tokens of the path, returning null if any child is missing.
+     */
+    static <N extends Node<N, NAME, ?, ?>, NAME extends Name> N navigate(final N node,
+                                                                        final NodePatchPath path,
+                                                                        final int count) {
+        N current = node;
+
+        for (int i = 0; null != current && i < count; i++) {
+            final List<N> children = current.children();
+            final int index = path.index(i);
+
+            N child = null;
+            if (index >= 0) {
+                if (index < children.size()) {
+                    child = children.get(index);
+                }
+            } else {
+                final String name = path.name(i);
+                for (final N possible : children) {
+                    if (possible.name().value().equals(name)) {
+                        child = possible;
+                        break;
+                    }
+                }
+            }
+
+            current = child;
+        }
+
+        return current;
+    }
+
+    private final NodePatchNonEmpty<N, NAME>[] operations;
+
+    private final NodePointer<N, NAME> start;
+
+    /**
+     * The maximum number of checked operations that are not yet applied, zero applies each operation once checked.
+     */
+    private final int maxPending;
+
+    /**
+     * The number of leading operations applied when {@link #check(Node)} finished.
+     */
+    private int applied;
+
+    /**
+     * The message for the last {@link #INVALID} check.
+     */
+    private Supplier<String> message;
+
+    private NodePatchFailure<N, NAME> failure;
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        String separator = "";
+
+        for (final NodePatchNonEmpty<N, NAME> operation : this.operations) {
+            b.append(separator);
+            operation.toString0(b);
+
+            separator = ", ";
+        }
+
+        return b.toString();
+    }
+}
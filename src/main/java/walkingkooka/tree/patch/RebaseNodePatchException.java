@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import java.util.Objects;
+
+/**
+ * Exception thrown when a patch cannot be rebased because one of its operations conflicts with an operation of the
+ * concurrent patch, such as changing a node the concurrent patch removed, or testing a value it changed.
+ */
+public class RebaseNodePatchException extends NodePatchException {
+
+    public RebaseNodePatchException(final String message,
+                                    final NodePatch<?, ?> patch,
+                                    final NodePatch<?, ?> concurrent) {
+        super(message);
+        this.patch = Objects.requireNonNull(patch, "patch");
+        this.concurrent = Objects.requireNonNull(concurrent, "concurrent");
+    }
+
+    /**
+     * The operation of the rebased patch that conflicts.
+     */
+    public NodePatch<?, ?> patch() {
+        return this.patch;
+    }
+
+    private final NodePatch<?, ?> patch;
+
+    /**
+     * The operation of the concurrent patch it conflicts with.
+     */
+    public NodePatch<?, ?> concurrent() {
+        return this.concurrent;
+    }
+
+    private final NodePatch<?, ?> concurrent;
+}
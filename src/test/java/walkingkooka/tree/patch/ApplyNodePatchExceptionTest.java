@@ -85,6 +85,41 @@ public final class ApplyNodePatchExceptionTest implements StandardThrowableTesti
         this.getCauseAndCheck(exception, cause);
     }
 
+    @Test
+    public void testWithLazyMessage() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.empty();
+        final int[] count = new int[1];
+
+        final ApplyNodePatchException exception = new ApplyNodePatchException(
+            () -> {
+                count[0]++;
+                return MESSAGE;
+            },
+            patch
+        );
+        this.checkEquals(0, count[0], "message built before requested");
+
+        this.getMessageAndCheck(exception, MESSAGE);
+        this.getMessageAndCheck(exception, MESSAGE);
+        this.checkEquals(1, count[0], "message built once");
+        this.patchAndCheck(exception, patch);
+    }
+
+    @Test
+    public void testWithLazyMessageAndCause() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.empty();
+        final Exception cause = new Exception("cause!");
+
+        final ApplyNodePatchException exception = new ApplyNodePatchException(
+            () -> MESSAGE,
+            patch,
+            cause
+        );
+        this.getMessageAndCheck(exception, MESSAGE);
+        this.patchAndCheck(exception, patch);
+        this.getCauseAndCheck(exception, cause);
+    }
+
     private NodePatch<JsonNode, JsonPropertyName> empty() {
         return NodePatch.empty(JsonNode.class);
     }
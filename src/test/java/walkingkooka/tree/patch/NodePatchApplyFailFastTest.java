@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchApplyFailFastTest extends NodePatchTestCase2<NodePatchApplyFailFast> {
+
+    @Test
+    public void testApplyFailFastNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .applyFailFast(null)
+        );
+    }
+
+    @Test
+    public void testApplyFailFast() {
+        this.applyFailFastAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), this.value1())
+                .remove(this.path2())
+                .test(this.path3(), this.value3()),
+            "{\"b2\": true, \"c3\": \"value3\"}",
+            "{\"a1\": \"value1\", \"c3\": \"value3\"}"
+        );
+    }
+
+    @Test
+    public void testApplyFailFastTestAfterChange() {
+        this.applyFailFastAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value1())
+                .test(this.pointer("/a1/b2"), this.value1()),
+            "{\"a1\": {}}",
+            "{\"a1\": {\"b2\": \"value1\"}}"
+        );
+    }
+
+    @Test
+    public void testApplyFailFastTestAfterArrayInsert() {
+        this.applyFailFastAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1())
+                .test(this.pointer("/a1/1"), this.value2()),
+            "{\"a1\": [\"value2\"]}",
+            "{\"a1\": [\"value1\", \"value2\"]}"
+        );
+    }
+
+    @Test
+    public void testApplyFailFastTestFailsFirst() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .remove(this.path1())
+            .test(this.path2(), this.value2());
+        final JsonNode node = JsonNode.parse("{\"b2\": \"different\"}");
+
+        this.checkEquals(
+            patch.get(0),
+            this.applyFails(patch, node)
+                .patch(),
+            "apply"
+        );
+
+        this.checkEquals(
+            patch.get(1),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.applyFailFast(node)
+            ).patch(),
+            "applyFailFast"
+        );
+    }
+
+    @Test
+    public void testHoisted() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .test(this.path1(), this.value1())
+            .replace(this.path2(), this.value2())
+            .test(this.path2(), this.value2())
+            .move(this.path3(), this.pointer("/d4"))
+            .test(this.path3(), this.value3())
+            .test(this.pointer("/e5"), this.value3());
+
+        final NodePatchNonEmpty<?, ?>[] operations = new NodePatchNonEmpty[patch.size()];
+        patch.copyOperations(Cast.to(operations), 0);
+
+        this.checkEquals(
+            "true false false false false true",
+            toString(NodePatchApplyFailFast.hoisted(operations))
+        );
+    }
+
+    @Test
+    public void testHoistedAncestorDescendantAndShifted() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .remove(this.pointer("/a1/b2"))
+            .test(this.pointer("/a1"), this.value1())
+            .test(this.pointer("/a1/b2/c3"), this.value1())
+            .test(this.pointer("/a1/c3"), this.value1())
+            .add(this.pointer("/d4/0"), this.value2())
+            .test(this.pointer("/d4/1/e5"), this.value2())
+            .test(this.pointer("/e5/0"), this.value2());
+
+        final NodePatchNonEmpty<?, ?>[] operations = new NodePatchNonEmpty[patch.size()];
+        patch.copyOperations(Cast.to(operations), 0);
+
+        this.checkEquals(
+            "false false false true false false true",
+            toString(NodePatchApplyFailFast.hoisted(operations))
+        );
+    }
+
+    private static String toString(final boolean[] values) {
+        final StringBuilder b = new StringBuilder();
+        for (final boolean value : values) {
+            if (b.length() > 0) {
+                b.append(' ');
+            }
+            b.append(value);
+        }
+        return b.toString();
+    }
+
+    private void applyFailFastAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                       final String before,
+                                       final String expected) {
+        final JsonNode beforeNode = JsonNode.parse(before);
+        final JsonNode expectedNode = JsonNode.parse(expected);
+
+        this.checkEquals(
+            expectedNode,
+            patch.applyFailFast(beforeNode),
+            () -> "applyFailFast " + patch + " to " + before
+        );
+        this.applyAndCheck(
+            patch,
+            beforeNode,
+            expectedNode
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchApplyFailFast> type() {
+        return NodePatchApplyFailFast.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchApplyGroupedTest extends NodePatchTestCase2<NodePatchApplyGrouped<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testApplyGroupedNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .applyGrouped(null)
+        );
+    }
+
+    @Test
+    public void testApplyEmpty() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class),
+            "{\"a1\": \"value1\"}",
+            "{\"a1\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testApplySharedParent() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2/c1"), this.value1())
+                .add(this.pointer("/a1/b2/c2"), this.value2())
+                .replace(this.pointer("/a1/b2/c3"), this.value3()),
+            "{\"a1\": {\"b2\": {\"c3\": false}}, \"z\": true}",
+            "{\"a1\": {\"b2\": {\"c1\": \"value1\", \"c2\": \"value2\", \"c3\": \"value3\"}}, \"z\": true}"
+        );
+    }
+
+    @Test
+    public void testApplyNestedGroups() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1/c1"), this.value1())
+                .add(this.pointer("/a1/b1/c2"), this.value2())
+                .add(this.pointer("/a1/b2/c1"), this.value1())
+                .remove(this.pointer("/a1/b2/c3"))
+                .add(this.pointer("/z1"), this.value3()),
+            "{\"a1\": {\"b1\": {}, \"b2\": {\"c3\": 3}}}",
+            "{\"a1\": {\"b1\": {\"c1\": \"value1\", \"c2\": \"value2\"}, \"b2\": {\"c1\": \"value1\"}}, \"z1\": \"value3\"}"
+        );
+    }
+
+    @Test
+    public void testApplyCopyAndMoveWithinGroup() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.pointer("/a1/b1/c1"), this.pointer("/a1/b2/c1"))
+                .move(this.pointer("/a1/b1/c2"), this.pointer("/a1/b2/c2")),
+            "{\"a1\": {\"b1\": {\"c1\": 1, \"c2\": 2}, \"b2\": {}}}",
+            "{\"a1\": {\"b1\": {}, \"b2\": {\"c1\": 1, \"c2\": 2}}}"
+        );
+    }
+
+    @Test
+    public void testApplyMoveOutsideGroup() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1/c1"), this.value1())
+                .move(this.pointer("/a1/b1/c1"), this.pointer("/z1")),
+            "{\"a1\": {\"b1\": {}}}",
+            "{\"a1\": {\"b1\": {}}, \"z1\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testApplyArrayIndexPrefix() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0/b1"), this.value1())
+                .add(this.pointer("/a1/0/b2"), this.value2()),
+            "{\"a1\": [{}]}",
+            "{\"a1\": [{\"b1\": \"value1\", \"b2\": \"value2\"}]}"
+        );
+    }
+
+    @Test
+    public void testApplyArrayIndexPrefixNotFirst() {
+        this.applyGroupedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/1/b1"), this.value1())
+                .add(this.pointer("/a1/1/b2"), this.value2()),
+            "{\"a1\": [{}, {}]}",
+            "{\"a1\": [{}, {\"b1\": \"value1\", \"b2\": \"value2\"}]}"
+        );
+    }
+
+    @Test
+    public void testApplyGroupParentMissingFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b1/c1"), this.value1())
+            .add(this.pointer("/a1/b1/c2"), this.value2());
+        final JsonNode node = JsonNode.parse("{\"z1\": true}");
+
+        this.checkEquals(
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.apply(node)
+            ).getMessage(),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.applyGrouped(node)
+            ).getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testApplyGroupTestFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b1/c1"), this.value1())
+            .test(this.pointer("/a1/b1/c1"), this.value2());
+        final JsonNode node = JsonNode.parse("{\"a1\": {\"b1\": {}}}");
+
+        this.checkEquals(
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.apply(node)
+            ).getMessage(),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.applyGrouped(node)
+            ).getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testApplyNotRoot() {
+        final JsonNode child = JsonNode.parse("{\"a1\": {\"b1\": {}}}")
+            .children()
+            .get(0);
+
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b1/c1"), this.value1())
+            .add(this.pointer("/a1/b1/c2"), this.value2());
+
+        this.checkEquals(
+            patch.apply(child),
+            patch.applyGrouped(child)
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> add = Cast.to(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), this.value1())
+        );
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> remove = Cast.to(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path2())
+        );
+
+        this.toStringAndCheck(
+            new NodePatchApplyGrouped<>(
+                Cast.to(new NodePatchNonEmpty[]{add, remove})
+            ),
+            add + ", " + remove
+        );
+    }
+
+    private void applyGroupedAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                      final String before,
+                                      final String expected) {
+        final JsonNode beforeNode = JsonNode.parse(before);
+        final JsonNode expectedNode = JsonNode.parse(expected);
+
+        this.checkEquals(
+            expectedNode,
+            patch.applyGrouped(beforeNode),
+            () -> "applyGrouped " + patch + " to " + before
+        );
+        this.applyAndCheck(
+            patch,
+            beforeNode,
+            expectedNode
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchApplyGrouped<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchApplyGrouped.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchApplyWithInverseTest extends NodePatchTestCase2<NodePatchApplyWithInverse> {
+
+    @Test
+    public void testApplyWithInverseNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .applyWithInverse(null)
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseEmpty() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class),
+            "{\"a1\": 1}",
+            "{\"a1\": 1}",
+            NodePatch.empty(JsonNode.class)
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseAdd() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), this.value1()),
+            "{}",
+            "{\"a1\": \"value1\"}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseAddExisting() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), this.value1()),
+            "{\"a1\": 1}",
+            "{\"a1\": \"value1\"}",
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), JsonNode.number(1))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseAddArrayInsert() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1()),
+            "{\"a1\": [1]}",
+            "{\"a1\": [\"value1\", 1]}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/0"))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseAddAppend() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/-"), this.value1()),
+            "{\"a1\": [1, 2]}",
+            "{\"a1\": [1, 2, \"value1\"]}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/2"))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseCopy() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path2()),
+            "{\"a1\": 1}",
+            "{\"a1\": 1, \"b2\": 1}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path2())
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseMove() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.path1(), this.path2()),
+            "{\"a1\": 1}",
+            "{\"b2\": 1}",
+            NodePatch.empty(JsonNode.class)
+                .move(this.path2(), this.path1())
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseMoveOverExisting() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.path1(), this.path2()),
+            "{\"a1\": 1, \"b2\": 2}",
+            "{\"b2\": 1}",
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path2(), JsonNode.number(2))
+                .add(this.path1(), JsonNode.number(1))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseMoveWithinArray() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/0"), this.pointer("/a1/-")),
+            "{\"a1\": [1, 2, 3]}",
+            "{\"a1\": [2, 3, 1]}",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/2"), this.pointer("/a1/0"))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseRemove() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/1")),
+            "{\"a1\": [1, 2, 3]}",
+            "{\"a1\": [1, 3]}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/1"), JsonNode.number(2))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseReplace() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1()),
+            "{\"a1\": {\"b2\": 2}}",
+            "{\"a1\": \"value1\"}",
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), JsonNode.parse("{\"b2\": 2}"))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseTest() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1())
+                .add(this.path2(), this.value2()),
+            "{\"a1\": \"value1\"}",
+            "{\"a1\": \"value1\", \"b2\": \"value2\"}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path2())
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseSeveral() {
+        this.applyWithInverseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/-"), this.value1())
+                .remove(this.path2())
+                .replace(this.path3(), this.value3())
+                .move(this.pointer("/a1/0"), this.pointer("/d4")),
+            "{\"a1\": [1], \"b2\": 2, \"c3\": 3}",
+            "{\"a1\": [\"value1\"], \"c3\": \"value3\", \"d4\": 1}",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/d4"), this.pointer("/a1/0"))
+                .replace(this.path3(), JsonNode.number(3))
+                .add(this.path2(), JsonNode.number(2))
+                .remove(this.pointer("/a1/1"))
+        );
+    }
+
+    @Test
+    public void testApplyWithInverseFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.path1(), this.value1())
+            .remove(this.path2());
+
+        this.checkEquals(
+            patch.get(1),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.applyWithInverse(JsonNode.object())
+            ).patch()
+        );
+    }
+
+    private void applyWithInverseAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                          final String before,
+                                          final String after,
+                                          final NodePatch<JsonNode, JsonPropertyName> inverse) {
+        final JsonNode beforeNode = JsonNode.parse(before);
+        final JsonNode afterNode = JsonNode.parse(after);
+
+        final NodePatchInverseResult<JsonNode, JsonPropertyName> result = patch.applyWithInverse(beforeNode);
+        this.checkEquals(
+            NodePatchInverseResult.with(
+                afterNode,
+                inverse
+            ),
+            result,
+            () -> "applyWithInverse " + patch + " to " + before
+        );
+        this.applyAndCheck(
+            patch,
+            beforeNode,
+            afterNode
+        );
+        this.applyAndCheck(
+            result.inverse(),
+            afterNode,
+            beforeNode
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchApplyWithInverse> type() {
+        return NodePatchApplyWithInverse.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchBuilderTest extends NodePatchTestCase2<NodePatchBuilder<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWithNullTypeFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.builder(null)
+        );
+    }
+
+    @Test
+    public void testEnsureCapacityNegativeFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> this.builder().ensureCapacity(-1)
+        );
+    }
+
+    @Test
+    public void testAddNullPathFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.builder().add(null, this.value1())
+        );
+    }
+
+    @Test
+    public void testCopyFromSameAsPathFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> this.builder().copy(this.path1(), this.path1())
+        );
+    }
+
+    @Test
+    public void testBuildEmpty() {
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            this.builder().build()
+        );
+    }
+
+    @Test
+    public void testBuildOneOperation() {
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1()),
+            this.builder()
+                .remove(this.path1())
+                .build()
+        );
+    }
+
+    @Test
+    public void testBuildSeveralOperations() {
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), this.value1())
+                .copy(this.path1(), this.path2())
+                .move(this.path2(), this.path3())
+                .remove(this.path1())
+                .replace(this.path3(), this.value3())
+                .test(this.path3(), this.value3()),
+            this.builder()
+                .add(this.path1(), this.value1())
+                .copy(this.path1(), this.path2())
+                .move(this.path2(), this.path3())
+                .remove(this.path1())
+                .replace(this.path3(), this.value3())
+                .test(this.path3(), this.value3())
+                .build()
+        );
+    }
+
+    @Test
+    public void testBuildApply() {
+        this.applyAndCheck(
+            this.builder()
+                .ensureCapacity(3)
+                .replace(this.pointer("/baz"), JsonNode.string("boo"))
+                .add(this.pointer("/hello"), JsonNode.array().appendChild(JsonNode.string("world")))
+                .remove(this.pointer("/foo"))
+                .build(),
+            "{\"baz\": \"qux\", \"foo\": \"bar\"}",
+            "{\"baz\": \"boo\", \"hello\": [\"world\"]}"
+        );
+    }
+
+    @Test
+    public void testAddAfterBuildDoesNotChangeBuilt() {
+        final NodePatchBuilder<JsonNode, JsonPropertyName> builder = this.builder()
+            .remove(this.path1())
+            .remove(this.path2());
+
+        final NodePatch<JsonNode, JsonPropertyName> built = builder.build();
+
+        builder.remove(this.path3());
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .remove(this.path2()),
+            built
+        );
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .remove(this.path2())
+                .remove(this.path3()),
+            builder.build()
+        );
+    }
+
+    @Test
+    public void testBuiltAppendDoesNotChangeBuilder() {
+        final NodePatchBuilder<JsonNode, JsonPropertyName> builder = this.builder()
+            .remove(this.path1())
+            .remove(this.path2());
+
+        final NodePatch<JsonNode, JsonPropertyName> appended = builder.build()
+            .remove(this.path3());
+
+        builder.add(this.path3(), this.value3());
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .remove(this.path2())
+                .remove(this.path3()),
+            appended
+        );
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .remove(this.path2())
+                .add(this.path3(), this.value3()),
+            builder.build()
+        );
+    }
+
+    @Test
+    public void testClear() {
+        final NodePatchBuilder<JsonNode, JsonPropertyName> builder = this.builder()
+            .remove(this.path1())
+            .remove(this.path2());
+        builder.clear();
+
+        this.checkEquals(
+            0,
+            builder.size(),
+            "size"
+        );
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            builder.build()
+        );
+    }
+
+    @Test
+    public void testClearAfterBuildReuse() {
+        final NodePatchBuilder<JsonNode, JsonPropertyName> builder = this.builder()
+            .remove(this.path1())
+            .remove(this.path2());
+
+        final NodePatch<JsonNode, JsonPropertyName> built = builder.build();
+
+        builder.clear()
+            .add(this.path3(), this.value3())
+            .remove(this.path3());
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .remove(this.path2()),
+            built
+        );
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path3(), this.value3())
+                .remove(this.path3()),
+            builder.build()
+        );
+    }
+
+    @Test
+    public void testSize() {
+        this.checkEquals(
+            2,
+            this.builder()
+                .remove(this.path1())
+                .remove(this.path2())
+                .size(),
+            "size"
+        );
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.builder()
+                .add(this.path1(), this.value1())
+                .remove(this.path2()),
+            "add path=\"/a1\" value=\"value1\", remove path=\"/b2\""
+        );
+    }
+
+    private NodePatchBuilder<JsonNode, JsonPropertyName> builder() {
+        return NodePatch.builder(JsonNode.class);
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchBuilder<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchBuilder.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+public final class NodePatchCommutesTest extends NodePatchTestCase2<NodePatchCommutes<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testCommutesEmpty() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1()),
+            true
+        );
+    }
+
+    @Test
+    public void testCommutesDifferentPaths() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/b2"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/c3"), this.value2()),
+            true
+        );
+    }
+
+    @Test
+    public void testCommutesSamePath() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesWriteBelow() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesTests() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1())
+                .test(this.pointer("/a1/b2"), this.value2()),
+            true
+        );
+    }
+
+    @Test
+    public void testCommutesTestAboveWrite() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/b2"), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesTestBelowWrite() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.pointer("/a1/b2"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesArrayReplaceDifferentIndices() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/0"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/1"), this.value2()),
+            true
+        );
+    }
+
+    @Test
+    public void testCommutesArrayInsertShifts() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/2/b2"), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesArrayRemoveShifts() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/2")),
+            NodePatch.empty(JsonNode.class)
+                .test(this.pointer("/a1/0"), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesAppends() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/-"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/-"), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesCopyFromRead() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path2()),
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path3()),
+            true
+        );
+    }
+
+    @Test
+    public void testCommutesCopyFromWritten() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path2()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value2()),
+            false
+        );
+    }
+
+    @Test
+    public void testCommutesMoveFromRead() {
+        this.commutesAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.path1(), this.path2()),
+            NodePatch.empty(JsonNode.class)
+                .test(this.pointer("/a1/b2"), this.value2()),
+            false
+        );
+    }
+
+    private void commutesAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                  final NodePatch<JsonNode, JsonPropertyName> other,
+                                  final boolean expected) {
+        this.checkEquals(
+            expected,
+            patch.commutesWith(other),
+            () -> patch + " commutesWith " + other
+        );
+        this.checkEquals(
+            expected,
+            other.commutesWith(patch),
+            () -> other + " commutesWith " + patch
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchCommutes<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchCommutes.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+
+public final class NodePatchDiffHashesTest extends NodePatchTestCase2<NodePatchDiffHashes<JsonNode>> {
+
+    @Test
+    public void testHashEqual() {
+        this.hashAndCheck(
+            "{\"a1\": [1, 2, {\"b2\": true}], \"c3\": null}",
+            "{\"a1\": [1, 2, {\"b2\": true}], \"c3\": null}",
+            true
+        );
+    }
+
+    @Test
+    public void testHashPropertyOrderIgnored() {
+        this.hashAndCheck(
+            "{\"a1\": 1, \"b2\": 2}",
+            "{\"b2\": 2, \"a1\": 1}",
+            true
+        );
+    }
+
+    @Test
+    public void testHashDifferentLeaf() {
+        this.hashAndCheck(
+            "{\"a1\": [1, 2, {\"b2\": true}]}",
+            "{\"a1\": [1, 2, {\"b2\": false}]}",
+            false
+        );
+    }
+
+    @Test
+    public void testHashDifferentPropertyName() {
+        this.hashAndCheck(
+            "{\"a1\": 1}",
+            "{\"b2\": 1}",
+            false
+        );
+    }
+
+    @Test
+    public void testHashArrayOrder() {
+        this.hashAndCheck(
+            "[1, 2]",
+            "[2, 1]",
+            false
+        );
+    }
+
+    @Test
+    public void testHashChildIgnoresParent() {
+        final JsonNode node = JsonNode.parse("{\"a1\": {\"b2\": [1, 2]}}");
+        final NodePatchDiffHashes<JsonNode> hashes = NodePatchDiffHashes.empty();
+
+        this.checkEquals(
+            hashes.hash(JsonNode.parse("{\"b2\": [1, 2]}")),
+            hashes.hash(node.children().get(0)),
+            "hash"
+        );
+    }
+
+    @Test
+    public void testHashCached() {
+        final JsonNode node = JsonNode.parse("{\"a1\": [1, 2], \"b2\": true}");
+        final NodePatchDiffHashes<JsonNode> hashes = NodePatchDiffHashes.empty();
+
+        final long hash = hashes.hash(node);
+        this.checkEquals(5, hashes.size(), "size");
+
+        this.checkEquals(hash, hashes.hash(node), "hash");
+        hashes.hash(node.children().get(0));
+        this.checkEquals(5, hashes.size(), "size");
+    }
+
+    @Test
+    public void testHashDeep() {
+        JsonNode before = this.value1();
+        JsonNode after = this.value1();
+
+        for (int i = 0; i < 10000; i++) {
+            before = JsonNode.array()
+                .appendChild(before);
+            after = JsonNode.array()
+                .appendChild(after);
+        }
+
+        final NodePatchDiffHashes<JsonNode> hashes = NodePatchDiffHashes.empty();
+        this.checkEquals(
+            hashes.hash(before),
+            hashes.hash(after),
+            "hash"
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchDiffHashes<JsonNode> hashes = NodePatchDiffHashes.empty();
+        hashes.hash(JsonNode.parse("[1, 2]"));
+
+        this.toStringAndCheck(
+            hashes,
+            "3 hashes"
+        );
+    }
+
+    private void hashAndCheck(final String node,
+                              final String other,
+                              final boolean equal) {
+        final NodePatchDiffHashes<JsonNode> hashes = NodePatchDiffHashes.empty();
+
+        this.checkEquals(
+            equal,
+            hashes.hash(JsonNode.parse(node)) == hashes.hash(JsonNode.parse(other)),
+            () -> node + " " + other
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchDiffHashes<JsonNode>> type() {
+        return Cast.to(NodePatchDiffHashes.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
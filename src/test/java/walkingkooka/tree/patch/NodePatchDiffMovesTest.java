@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.List;
+
+public final class NodePatchDiffMovesTest extends NodePatchTestCase2<NodePatchDiffMoves<JsonNode, JsonPropertyName>> {
+
+    private final static JsonNode SUB_TREE = JsonNode.parse("{\"c3\": [1, 2]}");
+
+    @Test
+    public void testDetectRemoveThenAdd() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.remove(path("a1"), SUB_TREE),
+                NodePatchDiffOperation.add(path("b2"), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .move(this.path1(), this.path2())
+        );
+    }
+
+    @Test
+    public void testDetectAddThenRemoveShifts() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.add(path("a1", 0), SUB_TREE),
+                NodePatchDiffOperation.add(path("b2", 0), this.value2()),
+                NodePatchDiffOperation.remove(path("b2", 1), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/b2/0"), this.pointer("/a1/0"))
+                .add(this.pointer("/b2/0"), this.value2()),
+            "{\"a1\": [], \"b2\": [{\"c3\": [1, 2]}, 1]}",
+            "{\"a1\": [{\"c3\": [1, 2]}], \"b2\": [\"value2\", 1]}"
+        );
+    }
+
+    @Test
+    public void testDetectRemoveThenAddShifts() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.remove(path("a1", 0), SUB_TREE),
+                NodePatchDiffOperation.remove(path("a1", 0), JsonNode.number(1)),
+                NodePatchDiffOperation.add(path("a1", 0), this.value1()),
+                NodePatchDiffOperation.add(path("b2", 0), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/1"))
+                .add(this.pointer("/a1/0"), this.value1())
+                .move(this.pointer("/a1/1"), this.pointer("/b2/0")),
+            "{\"a1\": [{\"c3\": [1, 2]}, 1], \"b2\": []}",
+            "{\"a1\": [\"value1\"], \"b2\": [{\"c3\": [1, 2]}]}"
+        );
+    }
+
+    @Test
+    public void testDetectLeafNotMoved() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.remove(path("a1"), this.value1()),
+                NodePatchDiffOperation.add(path("b2"), this.value1())
+            ),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .add(this.path2(), this.value1())
+        );
+    }
+
+    @Test
+    public void testDetectDifferentNotMoved() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.remove(path("a1"), SUB_TREE),
+                NodePatchDiffOperation.add(path("b2"), JsonNode.parse("{\"c3\": [1]}"))
+            ),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .add(this.path2(), JsonNode.parse("{\"c3\": [1]}"))
+        );
+    }
+
+    @Test
+    public void testDetectAncestorReplacedNotMoved() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.add(path("b2"), SUB_TREE),
+                NodePatchDiffOperation.replace(path("a1", "c3"), this.value3()),
+                NodePatchDiffOperation.remove(path("a1", "c3", "d"), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .add(this.path2(), SUB_TREE)
+                .replace(this.pointer("/a1/c3"), this.value3())
+                .remove(this.pointer("/a1/c3/d"))
+        );
+    }
+
+    @Test
+    public void testDetectCopyUnchanged() {
+        final NodePatchDiffMoves<JsonNode, JsonPropertyName> moves = this.moves();
+        moves.unchanged(SUB_TREE, path("a1"), 0);
+
+        this.detectAndCheck(
+            moves,
+            Lists.of(
+                NodePatchDiffOperation.add(path("b2"), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path2())
+        );
+    }
+
+    @Test
+    public void testDetectCopyUnchangedDescendant() {
+        final NodePatchDiffMoves<JsonNode, JsonPropertyName> moves = this.moves();
+        moves.unchanged(JsonNode.parse("{\"z\": {\"c3\": [1, 2]}}"), path("a1"), 0);
+
+        this.detectAndCheck(
+            moves,
+            Lists.of(
+                NodePatchDiffOperation.add(path("b2"), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .copy(this.pointer("/a1/z"), this.path2())
+        );
+    }
+
+    @Test
+    public void testDetectCopyUnchangedLaterIgnored() {
+        final NodePatchDiffMoves<JsonNode, JsonPropertyName> moves = this.moves();
+        moves.unchanged(SUB_TREE, path("a1"), 1);
+
+        this.detectAndCheck(
+            moves,
+            Lists.of(
+                NodePatchDiffOperation.add(path("b2"), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .add(this.path2(), SUB_TREE)
+        );
+    }
+
+    @Test
+    public void testDetectCopyAdded() {
+        this.detectAndCheck(
+            Lists.of(
+                NodePatchDiffOperation.add(path("a1"), SUB_TREE),
+                NodePatchDiffOperation.add(path("b2"), SUB_TREE)
+            ),
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), SUB_TREE)
+                .copy(this.path1(), this.path2())
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchDiffMoves<JsonNode, JsonPropertyName> moves = this.moves();
+        moves.unchanged(SUB_TREE, path("a1"), 0);
+        moves.unchanged(this.value1(), path("b2"), 0);
+
+        this.toStringAndCheck(
+            moves,
+            "1 sources"
+        );
+    }
+
+    private NodePatchDiffMoves<JsonNode, JsonPropertyName> moves() {
+        final NodePatchDiffHashes<JsonNode> hashes = NodePatchDiffHashes.empty();
+        return NodePatchDiffMoves.with(hashes);
+    }
+
+    private static Object[] path(final Object... tokens) {
+        final Object[] path = tokens.clone();
+        for (int i = 0; i < path.length; i++) {
+            if (path[i] instanceof String) {
+                path[i] = JsonPropertyName.with((String) path[i]);
+            }
+        }
+        return path;
+    }
+
+    private void detectAndCheck(final List<NodePatchDiffOperation<JsonNode, JsonPropertyName>> operations,
+                                final NodePatch<JsonNode, JsonPropertyName> expected,
+                                final String before,
+                                final String after) {
+        this.detectAndCheck(
+            operations,
+            expected
+        );
+        this.applyAndCheck(
+            expected,
+            before,
+            after
+        );
+    }
+
+    private void detectAndCheck(final List<NodePatchDiffOperation<JsonNode, JsonPropertyName>> operations,
+                                final NodePatch<JsonNode, JsonPropertyName> expected) {
+        this.detectAndCheck(
+            this.moves(),
+            operations,
+            expected
+        );
+    }
+
+    private void detectAndCheck(final NodePatchDiffMoves<JsonNode, JsonPropertyName> moves,
+                                final List<NodePatchDiffOperation<JsonNode, JsonPropertyName>> operations,
+                                final NodePatch<JsonNode, JsonPropertyName> expected) {
+        final List<NodePatchDiffOperation<JsonNode, JsonPropertyName>> detected = Lists.array();
+        detected.addAll(operations);
+        moves.detect(detected);
+
+        final NodePatchBuilder<JsonNode, JsonPropertyName> builder = NodePatch.builder(JsonNode.class);
+        for (final NodePatchDiffOperation<JsonNode, JsonPropertyName> operation : detected) {
+            operation.build(builder, JsonNode.class);
+        }
+
+        this.checkEquals(
+            expected,
+            builder.build(),
+            () -> "detect " + operations
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchDiffMoves<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchDiffMoves.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
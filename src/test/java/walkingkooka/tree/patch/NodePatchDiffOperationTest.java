@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class NodePatchDiffOperationTest extends NodePatchTestCase2<NodePatchDiffOperation<JsonNode, JsonPropertyName>> {
+
+    private final static Object[] PATH = new Object[]{JsonPropertyName.with("a1"), 0};
+
+    private final static Object[] FROM = new Object[]{JsonPropertyName.with("b2")};
+
+    @Test
+    public void testBuildAdd() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.add(PATH, this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1())
+        );
+    }
+
+    @Test
+    public void testBuildCopy() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.copy(FROM, PATH, this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path2(), this.pointer("/a1/0"))
+        );
+    }
+
+    @Test
+    public void testBuildMove() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.move(FROM, PATH, this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .move(this.path2(), this.pointer("/a1/0"))
+        );
+    }
+
+    @Test
+    public void testBuildRemove() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.remove(PATH, this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/0"))
+        );
+    }
+
+    @Test
+    public void testBuildReplace() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.replace(PATH, this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/0"), this.value1())
+        );
+    }
+
+    @Test
+    public void testBuildTest() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.test(PATH, this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .test(this.pointer("/a1/0"), this.value1())
+        );
+    }
+
+    @Test
+    public void testSetPathsSame() {
+        final NodePatchDiffOperation<JsonNode, JsonPropertyName> operation = NodePatchDiffOperation.move(FROM, PATH, this.value1());
+        assertSame(
+            operation,
+            operation.setPaths(FROM.clone(), PATH.clone())
+        );
+    }
+
+    @Test
+    public void testSetPathsDifferent() {
+        this.buildAndCheck(
+            NodePatchDiffOperation.move(FROM, PATH, this.value1())
+                .setPaths(PATH, FROM),
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/0"), this.path2())
+        );
+    }
+
+    @Test
+    public void testToStringAdd() {
+        this.toStringAndCheck(
+            NodePatchDiffOperation.add(PATH, this.value1()),
+            "add path=/a1/0 value=\"value1\""
+        );
+    }
+
+    @Test
+    public void testToStringMove() {
+        this.toStringAndCheck(
+            NodePatchDiffOperation.move(FROM, PATH, this.value1()),
+            "move from=/b2 path=/a1/0"
+        );
+    }
+
+    @Test
+    public void testToStringTest() {
+        this.toStringAndCheck(
+            NodePatchDiffOperation.test(PATH, this.value1()),
+            "test path=/a1/0 value=\"value1\""
+        );
+    }
+
+    @Test
+    public void testToStringRemove() {
+        this.toStringAndCheck(
+            NodePatchDiffOperation.remove(PATH, this.value1()),
+            "remove path=/a1/0"
+        );
+    }
+
+    private void buildAndCheck(final NodePatchDiffOperation<JsonNode, JsonPropertyName> operation,
+                               final NodePatch<JsonNode, JsonPropertyName> expected) {
+        final NodePatchBuilder<JsonNode, JsonPropertyName> builder = NodePatch.builder(JsonNode.class);
+        operation.build(builder, JsonNode.class);
+
+        this.checkEquals(
+            expected,
+            builder.build()
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchDiffOperation<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchDiffOperation.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+public final class NodePatchDiffResultTest extends NodePatchTestCase2<NodePatchDiffResult<JsonNode, JsonPropertyName>>
+    implements HashCodeEqualsDefinedTesting2<NodePatchDiffResult<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWith() {
+        final NodePatchDiffResult<JsonNode, JsonPropertyName> result = this.createObject();
+        this.checkEquals(this.patch(), result.patch(), "patch");
+        this.checkEquals(false, result.isApproximate(), "isApproximate");
+    }
+
+    @Test
+    public void testDifferentPatch() {
+        this.checkNotEquals(
+            NodePatchDiffResult.with(
+                NodePatch.empty(JsonNode.class)
+                    .remove(this.path1()),
+                false
+            )
+        );
+    }
+
+    @Test
+    public void testDifferentApproximate() {
+        this.checkNotEquals(
+            NodePatchDiffResult.with(
+                this.patch(),
+                true
+            )
+        );
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.createObject(),
+            NodePatchMessages.patch(this.patch())
+        );
+    }
+
+    @Test
+    public void testToStringApproximate() {
+        this.toStringAndCheck(
+            NodePatchDiffResult.with(
+                this.patch(),
+                true
+            ),
+            "approximate " + NodePatchMessages.patch(this.patch())
+        );
+    }
+
+    private NodePatch<JsonNode, JsonPropertyName> patch() {
+        return NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1());
+    }
+
+    @Override
+    public NodePatchDiffResult<JsonNode, JsonPropertyName> createObject() {
+        return NodePatchDiffResult.with(
+            this.patch(),
+            false
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchDiffResult<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchDiffResult.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
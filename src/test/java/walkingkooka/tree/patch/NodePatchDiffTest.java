@@ -0,0 +1,685 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchDiffTest extends NodePatchTestCase2<NodePatchDiff<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testDiffNullBeforeFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.diff(null, JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testDiffNullAfterFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.diff(JsonNode.object(), null)
+        );
+    }
+
+    @Test
+    public void testDiffDifferentLeafFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> NodePatch.diff(this.value1(), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffObjectAndArrayFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> NodePatch.diff(JsonNode.object(), JsonNode.array())
+        );
+    }
+
+    @Test
+    public void testDiffSame() {
+        final JsonNode node = JsonNode.parse("{\"a1\": [1, 2, {\"b2\": true}]}");
+
+        this.diffAndCheck(
+            node,
+            node,
+            NodePatch.empty(JsonNode.class)
+        );
+    }
+
+    @Test
+    public void testDiffEqual() {
+        this.diffAndCheck(
+            "{\"a1\": [1, 2, {\"b2\": true}]}",
+            "{\"a1\": [1, 2, {\"b2\": true}]}",
+            NodePatch.empty(JsonNode.class)
+        );
+    }
+
+    @Test
+    public void testDiffObjectAdd() {
+        this.diffAndCheck(
+            "{\"a1\": 1}",
+            "{\"a1\": 1, \"b2\": \"value2\"}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.path2(), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffObjectRemove() {
+        this.diffAndCheck(
+            "{\"a1\": 1, \"b2\": 2}",
+            "{\"b2\": 2}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+        );
+    }
+
+    @Test
+    public void testDiffObjectReplace() {
+        this.diffAndCheck(
+            "{\"a1\": 1, \"b2\": 2}",
+            "{\"a1\": \"value1\", \"b2\": 2}",
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1())
+        );
+    }
+
+    @Test
+    public void testDiffObjectReplaceDifferentType() {
+        this.diffAndCheck(
+            "{\"a1\": {\"b2\": 2}}",
+            "{\"a1\": [2]}",
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), JsonNode.parse("[2]"))
+        );
+    }
+
+    @Test
+    public void testDiffObjectAddRemoveReplace() {
+        this.diffAndCheck(
+            "{\"a1\": 1, \"b2\": 2, \"z\": true}",
+            "{\"b2\": \"value2\", \"c3\": \"value3\", \"z\": true}",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .add(this.path3(), this.value3())
+                .replace(this.path2(), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffNestedObjects() {
+        this.diffAndCheck(
+            "{\"a1\": {\"b2\": {\"c3\": 3, \"z\": true}}, \"z\": true}",
+            "{\"a1\": {\"b2\": {\"c3\": \"value3\", \"z\": true}}, \"z\": true}",
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/b2/c3"), this.value3())
+        );
+    }
+
+    @Test
+    public void testDiffArrayAppend() {
+        this.diffAndCheck(
+            "[1, 2]",
+            "[1, 2, \"value3\"]",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/2"), this.value3())
+        );
+    }
+
+    @Test
+    public void testDiffArrayInsertFirst() {
+        this.diffAndCheck(
+            "[1, 2, 3]",
+            "[\"value1\", 1, 2, 3]",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/0"), this.value1())
+        );
+    }
+
+    @Test
+    public void testDiffArrayRemoveMiddle() {
+        this.diffAndCheck(
+            "[1, 2, 3]",
+            "[1, 3]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/1"))
+        );
+    }
+
+    @Test
+    public void testDiffArrayReplaceAndRemove() {
+        this.diffAndCheck(
+            "[1, 2, 3, 4, 5]",
+            "[1, \"value2\", 5]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/3"))
+                .remove(this.pointer("/2"))
+                .replace(this.pointer("/1"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffArrayReplaceAndAdd() {
+        this.diffAndCheck(
+            "[1, 2, 5]",
+            "[1, \"value2\", 3, 4, 5]",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/2"), JsonNode.number(3))
+                .add(this.pointer("/3"), JsonNode.number(4))
+                .replace(this.pointer("/1"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffArrayInsertRemoveAndChange() {
+        this.diffAndCheck(
+            "[1, 2, 3, 4, 5, 6]",
+            "[2, 3, \"value3\", 5, 6, 7]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/0"))
+                .add(this.pointer("/5"), JsonNode.number(7))
+                .replace(this.pointer("/2"), this.value3())
+        );
+    }
+
+    @Test
+    public void testDiffArrayInsertRemoveAndChangeEditLimit() {
+        final JsonNode before = JsonNode.parse("[1, 2, 3, 4, 5, 6]");
+        final JsonNode after = JsonNode.parse("[2, 3, \"value3\", 5, 6, 7]");
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.differ(JsonNode.class)
+            .setArrayEditLimit(2)
+            .diff(before, after);
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/0"), JsonNode.number(2))
+                .replace(this.pointer("/1"), JsonNode.number(3))
+                .replace(this.pointer("/2"), this.value3())
+                .replace(this.pointer("/3"), JsonNode.number(5))
+                .replace(this.pointer("/4"), JsonNode.number(6))
+                .replace(this.pointer("/5"), JsonNode.number(7)),
+            patch
+        );
+        this.applyAndCheck(
+            patch,
+            before,
+            after
+        );
+    }
+
+    @Test
+    public void testDiffArrayMoved() {
+        this.diffAndCheck(
+            "[1, 2, 3, 4]",
+            "[2, 3, 4, 1]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/0"))
+                .add(this.pointer("/3"), JsonNode.number(1))
+        );
+    }
+
+    @Test
+    public void testDiffArrayChangedElementDiffed() {
+        this.diffAndCheck(
+            "[{\"a1\": 1, \"b2\": 2}, 0, 3, 4]",
+            "[{\"a1\": 1, \"b2\": \"value2\"}, 3, 4, 5]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/1"))
+                .add(this.pointer("/3"), JsonNode.number(5))
+                .replace(this.pointer("/0/b2"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffArrayMovedSubTree() {
+        this.diffAndCheck(
+            "[{\"a1\": 1}, {\"b2\": 2}, {\"c3\": 3}]",
+            "[{\"c3\": 3}, {\"a1\": 1}, {\"b2\": 2}]",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/2"), this.pointer("/0"))
+        );
+    }
+
+    @Test
+    public void testDiffMovedSubTreeToLaterObject() {
+        this.diffAndCheck(
+            "{\"a1\": {\"b2\": {\"c3\": 3}}, \"z\": {}}",
+            "{\"a1\": {}, \"z\": {\"b2\": {\"c3\": 3}}}",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/b2"), this.pointer("/z/b2"))
+        );
+    }
+
+    @Test
+    public void testDiffMovedSubTreeToEarlierObject() {
+        this.diffAndCheck(
+            "{\"a1\": {}, \"z\": {\"b2\": [1, 2]}}",
+            "{\"a1\": {\"b2\": [1, 2]}, \"z\": {}}",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/z/b2"), this.pointer("/a1/b2"))
+        );
+    }
+
+    @Test
+    public void testDiffMovedSubTreeBetweenArrays() {
+        this.diffAndCheck(
+            "{\"a1\": [[1, 2], 3], \"b2\": [4]}",
+            "{\"a1\": [3], \"b2\": [5, 4, [1, 2]]}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/b2/0"), JsonNode.number(5))
+                .move(this.pointer("/a1/0"), this.pointer("/b2/2"))
+        );
+    }
+
+    @Test
+    public void testDiffCopiedUnchangedSubTree() {
+        this.diffAndCheck(
+            "{\"a1\": {\"b2\": [1, 2]}}",
+            "{\"a1\": {\"b2\": [1, 2]}, \"c3\": [1, 2]}",
+            NodePatch.empty(JsonNode.class)
+                .copy(this.pointer("/a1/b2"), this.path3())
+        );
+    }
+
+    @Test
+    public void testDiffCopiedAddedSubTree() {
+        this.diffAndCheck(
+            "{}",
+            "{\"a1\": [1, 2], \"b2\": [1, 2]}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.path1(), JsonNode.parse("[1, 2]"))
+                .copy(this.path1(), this.path2())
+        );
+    }
+
+    @Test
+    public void testDiffLargeArrayInsert() {
+        final int count = 10000;
+
+        JsonNode before = JsonNode.array();
+        JsonNode after = JsonNode.array();
+        for (int i = 0; i < count; i++) {
+            if (10 == i) {
+                after = after.appendChild(this.value1());
+            }
+            before = before.appendChild(JsonNode.number(i));
+            after = after.appendChild(
+                count - 1 == i ?
+                    this.value2() :
+                    JsonNode.number(i)
+            );
+        }
+
+        this.diffAndCheck(
+            before,
+            after,
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/10"), this.value1())
+                .replace(this.pointer("/" + count), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffArrayOfObjects() {
+        this.diffAndCheck(
+            "{\"a1\": [{\"b2\": 1}, {\"b2\": 2}]}",
+            "{\"a1\": [{\"b2\": 1}, {\"b2\": \"value2\", \"c3\": \"value3\"}, {}]}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/2"), JsonNode.object())
+                .add(this.pointer("/a1/1/c3"), this.value3())
+                .replace(this.pointer("/a1/1/b2"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffEmptyObjectToNonEmpty() {
+        this.diffAndCheck(
+            "{\"a1\": {}}",
+            "{\"a1\": {\"b2\": \"value2\"}}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffEmptyArrayToNonEmpty() {
+        this.diffAndCheck(
+            "{\"a1\": []}",
+            "{\"a1\": [\"value1\", \"value2\"]}",
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1())
+                .add(this.pointer("/a1/1"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffDeep() {
+        final int depth = 2000;
+
+        JsonNode before = this.value1();
+        JsonNode after = this.value2();
+        final StringBuilder path = new StringBuilder();
+
+        for (int i = 0; i < depth; i++) {
+            before = JsonNode.array()
+                .appendChild(before);
+            after = JsonNode.array()
+                .appendChild(after);
+            path.append("/0");
+        }
+
+        this.diffAndCheck(
+            before,
+            after,
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer(path.toString()), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffVisitLimitReplacesRemaining() {
+        this.diffResultAndCheck(
+            NodePatch.differ(JsonNode.class)
+                .setVisitLimit(0),
+            JsonNode.parse("{\"a1\": {\"b2\": 1, \"c3\": 2}, \"d4\": 1}"),
+            JsonNode.parse("{\"a1\": {\"b2\": 1, \"c3\": 3}, \"d4\": 2}"),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/d4"), JsonNode.number(2))
+                .replace(this.path1(), JsonNode.parse("{\"b2\": 1, \"c3\": 3}")),
+            true
+        );
+    }
+
+    @Test
+    public void testDiffVisitLimitNotReached() {
+        this.diffResultAndCheck(
+            NodePatch.differ(JsonNode.class)
+                .setVisitLimit(4),
+            JsonNode.parse("{\"a1\": {\"b2\": 1, \"c3\": 2}, \"d4\": 1}"),
+            JsonNode.parse("{\"a1\": {\"b2\": 1, \"c3\": 3}, \"d4\": 2}"),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/d4"), JsonNode.number(2))
+                .replace(this.pointer("/a1/c3"), JsonNode.number(3)),
+            false
+        );
+    }
+
+    @Test
+    public void testDiffVisitLimitArrayPairedByPosition() {
+        this.diffResultAndCheck(
+            NodePatch.differ(JsonNode.class)
+                .setVisitLimit(2),
+            JsonNode.parse("{\"a1\": [1, 2, 3]}"),
+            JsonNode.parse("{\"a1\": [2, 3, 4]}"),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/0"), JsonNode.number(2))
+                .replace(this.pointer("/a1/1"), JsonNode.number(3))
+                .replace(this.pointer("/a1/2"), JsonNode.number(4)),
+            true
+        );
+    }
+
+    @Test
+    public void testDiffVisitLimitDeep() {
+        final int depth = 2000;
+
+        JsonNode before = this.value1();
+        JsonNode after = this.value2();
+
+        for (int i = 0; i < depth; i++) {
+            before = JsonNode.array()
+                .appendChild(before);
+            after = JsonNode.array()
+                .appendChild(after);
+        }
+
+        // each pair diffed visits 2 children and compares them once, so the pair at depth 4 is the first after 10
+        JsonNode replaced = after;
+        for (int i = 0; i < 4; i++) {
+            replaced = replaced.children()
+                .get(0);
+        }
+
+        this.diffResultAndCheck(
+            NodePatch.differ(JsonNode.class)
+                .setVisitLimit(10),
+            before,
+            after,
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/0/0/0/0"), replaced.removeParent()),
+            true
+        );
+    }
+
+    @Test
+    public void testDiffArrayKeyMoved() {
+        this.diffAndCheck(
+            this.keyed(),
+            "{\"a1\": [{\"id\": 1, \"v\": 1}, {\"id\": 2, \"v\": 2}, {\"id\": 3, \"v\": 3}]}",
+            "{\"a1\": [{\"id\": 3, \"v\": 3}, {\"id\": 1, \"v\": 1}, {\"id\": 2, \"v\": \"value2\"}]}",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/2"), this.pointer("/a1/0"))
+                .replace(this.pointer("/a1/2/v"), this.value2())
+        );
+    }
+
+    @Test
+    public void testDiffArrayKeyReversed() {
+        this.diffAndCheck(
+            this.keyed(),
+            "[{\"id\": 1}, {\"id\": 2}, {\"id\": 3}, {\"id\": 4}]",
+            "[{\"id\": 4}, {\"id\": 3}, {\"id\": 2}, {\"id\": 1}]",
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/2"), this.pointer("/3"))
+                .move(this.pointer("/1"), this.pointer("/3"))
+                .move(this.pointer("/0"), this.pointer("/3"))
+        );
+    }
+
+    @Test
+    public void testDiffArrayKeyAddedAndRemoved() {
+        this.diffAndCheck(
+            this.keyed(),
+            "[{\"id\": 1}, {\"id\": 2}]",
+            "[{\"id\": 2}, {\"id\": 3}]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/0"))
+                .add(this.pointer("/1"), JsonNode.parse("{\"id\": 3}"))
+        );
+    }
+
+    @Test
+    public void testDiffArrayKeyDuplicateMatchedByIndex() {
+        this.diffAndCheck(
+            this.keyed(),
+            "[{\"id\": 1, \"v\": 1}, {\"id\": 1, \"v\": 2}]",
+            "[{\"id\": 1, \"v\": 2}]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/0"))
+        );
+    }
+
+    @Test
+    public void testDiffArrayKeyMissingMatchedByIndex() {
+        this.diffAndCheck(
+            this.keyed(),
+            "[1, 2, 3]",
+            "[3, 1, 2]",
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/2"))
+                .add(this.pointer("/0"), JsonNode.number(3))
+        );
+    }
+
+    @Test
+    public void testIncreasing() {
+        this.increasingAndCheck(
+            new int[]{3, 0, 1, 4, 2},
+            0, 1, 2
+        );
+    }
+
+    @Test
+    public void testIncreasingEmpty() {
+        this.increasingAndCheck(
+            new int[0]
+        );
+    }
+
+    @Test
+    public void testIncreasingDecreasing() {
+        this.increasingAndCheck(
+            new int[]{3, 2, 1, 0},
+            0
+        );
+    }
+
+    private void increasingAndCheck(final int[] values,
+                                    final int... expected) {
+        this.checkEquals(
+            Arrays.toString(expected),
+            Arrays.toString(NodePatchDiff.increasing(values, values.length)),
+            () -> "increasing " + Arrays.toString(values)
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchDiff<JsonNode, JsonPropertyName> diff = new NodePatchDiff<>(
+            JsonNode.class,
+            NodePatch.differ(JsonNode.class)
+        );
+        this.toStringAndCheck(
+            diff,
+            ""
+        );
+    }
+
+    private void diffAndCheck(final String before,
+                              final String after,
+                              final NodePatch<JsonNode, JsonPropertyName> expected) {
+        this.diffAndCheck(
+            JsonNode.parse(before),
+            JsonNode.parse(after),
+            expected
+        );
+    }
+
+    private void diffAndCheck(final JsonNode before,
+                              final JsonNode after,
+                              final NodePatch<JsonNode, JsonPropertyName> expected) {
+        this.diffAndCheck(
+            NodePatch.differ(JsonNode.class),
+            before,
+            after,
+            expected
+        );
+    }
+
+    private void diffAndCheck(final NodePatchDiffer<JsonNode, JsonPropertyName> differ,
+                              final String before,
+                              final String after,
+                              final NodePatch<JsonNode, JsonPropertyName> expected) {
+        this.diffAndCheck(
+            differ,
+            JsonNode.parse(before),
+            JsonNode.parse(after),
+            expected
+        );
+    }
+
+    private void diffAndCheck(final NodePatchDiffer<JsonNode, JsonPropertyName> differ,
+                              final JsonNode before,
+                              final JsonNode after,
+                              final NodePatch<JsonNode, JsonPropertyName> expected) {
+        final NodePatch<JsonNode, JsonPropertyName> patch = differ.diff(before, after);
+        this.checkEquals(
+            expected,
+            patch,
+            () -> "diff " + before + " " + after
+        );
+        this.applyAndCheck(
+            patch,
+            before,
+            after
+        );
+    }
+
+    private void diffResultAndCheck(final NodePatchDiffer<JsonNode, JsonPropertyName> differ,
+                                    final JsonNode before,
+                                    final JsonNode after,
+                                    final NodePatch<JsonNode, JsonPropertyName> expected,
+                                    final boolean approximate) {
+        final NodePatchDiffResult<JsonNode, JsonPropertyName> result = differ.diffResult(before, after);
+        this.checkEquals(
+            NodePatchDiffResult.with(
+                expected,
+                approximate
+            ),
+            result,
+            () -> "diffResult " + before + " " + after
+        );
+        this.applyAndCheck(
+            result.patch(),
+            before,
+            after
+        );
+    }
+
+    /**
+     * A {@link NodePatchDiffer} matching array elements by their id property.
+     */
+    private NodePatchDiffer<JsonNode, JsonPropertyName> keyed() {
+        return NodePatch.differ(JsonNode.class)
+            .setArrayKey(
+                Optional.of(
+                    (n) -> n.children()
+                        .stream()
+                        .filter(c -> c.name().value().equals("id"))
+                        .map(JsonNode::removeParent)
+                        .findFirst()
+                        .orElse(null)
+                )
+            );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchDiff<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchDiff.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import walkingkooka.tree.pointer.NodePointer;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchDifferTest extends NodePatchTestCase<NodePatchDiffer<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWithNullTypeFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.differ(null)
+        );
+    }
+
+    @Test
+    public void testDefaults() {
+        this.checkEquals(
+            NodePatchDiffer.DEFAULT_ARRAY_EDIT_LIMIT,
+            this.differ().arrayEditLimit(),
+            "arrayEditLimit"
+        );
+        this.checkEquals(
+            Optional.empty(),
+            this.differ().arrayKey(),
+            "arrayKey"
+        );
+        this.checkEquals(
+            NodePatchDiffer.DEFAULT_VISIT_LIMIT,
+            this.differ().visitLimit(),
+            "visitLimit"
+        );
+    }
+
+    @Test
+    public void testSetArrayEditLimitNegativeFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> this.differ().setArrayEditLimit(-1)
+        );
+    }
+
+    @Test
+    public void testSetArrayEditLimitSame() {
+        final NodePatchDiffer<JsonNode, JsonPropertyName> differ = this.differ();
+        assertSame(
+            differ,
+            differ.setArrayEditLimit(NodePatchDiffer.DEFAULT_ARRAY_EDIT_LIMIT)
+        );
+    }
+
+    @Test
+    public void testSetArrayEditLimitDifferent() {
+        final NodePatchDiffer<JsonNode, JsonPropertyName> differ = this.differ();
+        final NodePatchDiffer<JsonNode, JsonPropertyName> different = differ.setArrayEditLimit(0);
+
+        this.checkEquals(
+            0,
+            different.arrayEditLimit(),
+            "arrayEditLimit"
+        );
+        this.checkNotEquals(
+            differ,
+            different
+        );
+        this.checkEquals(
+            different,
+            this.differ()
+                .setArrayEditLimit(0)
+        );
+    }
+
+    @Test
+    public void testSetArrayKeyNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.differ().setArrayKey(null)
+        );
+    }
+
+    @Test
+    public void testSetArrayKeySame() {
+        final NodePatchDiffer<JsonNode, JsonPropertyName> differ = this.differ();
+        assertSame(
+            differ,
+            differ.setArrayKey(Optional.empty())
+        );
+    }
+
+    @Test
+    public void testSetArrayKeyDifferent() {
+        final NodePatchDiffer<JsonNode, JsonPropertyName> differ = this.differ()
+            .setArrayEditLimit(12);
+        final Optional<Function<JsonNode, Object>> arrayKey = Optional.of(JsonNode::removeParent);
+        final NodePatchDiffer<JsonNode, JsonPropertyName> different = differ.setArrayKey(arrayKey);
+
+        assertSame(
+            arrayKey,
+            different.arrayKey(),
+            "arrayKey"
+        );
+        this.checkEquals(
+            12,
+            different.arrayEditLimit(),
+            "arrayEditLimit"
+        );
+        this.checkNotEquals(
+            differ,
+            different
+        );
+        this.checkEquals(
+            different,
+            differ.setArrayKey(arrayKey)
+        );
+    }
+
+    @Test
+    public void testSetVisitLimitNegativeFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> this.differ().setVisitLimit(-1)
+        );
+    }
+
+    @Test
+    public void testSetVisitLimitSame() {
+        final NodePatchDiffer<JsonNode, JsonPropertyName> differ = this.differ();
+        assertSame(
+            differ,
+            differ.setVisitLimit(NodePatchDiffer.DEFAULT_VISIT_LIMIT)
+        );
+    }
+
+    @Test
+    public void testSetVisitLimitDifferent() {
+        final NodePatchDiffer<JsonNode, JsonPropertyName> differ = this.differ()
+            .setArrayEditLimit(12);
+        final NodePatchDiffer<JsonNode, JsonPropertyName> different = differ.setVisitLimit(100);
+
+        this.checkEquals(
+            100,
+            different.visitLimit(),
+            "visitLimit"
+        );
+        this.checkEquals(
+            12,
+            different.arrayEditLimit(),
+            "arrayEditLimit"
+        );
+        this.checkNotEquals(
+            differ,
+            different
+        );
+        this.checkEquals(
+            different,
+            differ.setVisitLimit(100)
+        );
+    }
+
+    @Test
+    public void testDiffNullBeforeFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.differ()
+                .diff(null, JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testDiffNullAfterFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.differ()
+                .diff(JsonNode.object(), null)
+        );
+    }
+
+    @Test
+    public void testDiff() {
+        final JsonNode before = JsonNode.parse("{\"a1\": [1, 2, 3]}");
+        final JsonNode after = JsonNode.parse("{\"a1\": [2, 3, 4]}");
+
+        this.checkEquals(
+            NodePatch.diff(before, after),
+            this.differ()
+                .diff(before, after)
+        );
+    }
+
+    @Test
+    public void testDiffArrayKey() {
+        final JsonNode before = JsonNode.parse("[{\"id\": 1}, {\"id\": 2}]");
+        final JsonNode after = JsonNode.parse("[{\"id\": 2}, {\"id\": 1}]");
+
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.differ()
+            .setArrayKey(Optional.of(JsonNode::removeParent))
+            .diff(before, after);
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/0"), this.pointer("/1")),
+            patch
+        );
+        this.checkEquals(
+            after,
+            patch.apply(before)
+        );
+    }
+
+    @Test
+    public void testDiffResultNullBeforeFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.differ()
+                .diffResult(null, JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testDiffResultNullAfterFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.differ()
+                .diffResult(JsonNode.object(), null)
+        );
+    }
+
+    @Test
+    public void testDiffResult() {
+        final JsonNode before = JsonNode.parse("{\"a1\": [1, 2, 3]}");
+        final JsonNode after = JsonNode.parse("{\"a1\": [2, 3, 4]}");
+
+        this.checkEquals(
+            NodePatchDiffResult.with(
+                NodePatch.diff(before, after),
+                false
+            ),
+            this.differ()
+                .diffResult(before, after)
+        );
+    }
+
+    @Test
+    public void testDiffResultVisitLimit() {
+        final JsonNode before = JsonNode.parse("{\"a1\": {\"b2\": 1}}");
+        final JsonNode after = JsonNode.parse("{\"a1\": {\"b2\": 2}}");
+
+        this.checkEquals(
+            NodePatchDiffResult.with(
+                NodePatch.empty(JsonNode.class)
+                    .replace(this.pointer("/a1"), JsonNode.parse("{\"b2\": 2}")),
+                true
+            ),
+            this.differ()
+                .setVisitLimit(0)
+                .diffResult(before, after)
+        );
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.differ()
+                .setArrayEditLimit(12),
+            "arrayEditLimit=12"
+        );
+    }
+
+    @Test
+    public void testToStringVisitLimit() {
+        this.toStringAndCheck(
+            this.differ()
+                .setArrayEditLimit(12)
+                .setVisitLimit(100),
+            "arrayEditLimit=12 visitLimit=100"
+        );
+    }
+
+    private NodePointer<JsonNode, JsonPropertyName> pointer(final String pointer) {
+        return NodePointer.parse(
+            pointer,
+            JsonPropertyName::with,
+            JsonNode.class
+        );
+    }
+
+    private NodePatchDiffer<JsonNode, JsonPropertyName> differ() {
+        return NodePatch.differ(JsonNode.class);
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchDiffer<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchDiffer.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
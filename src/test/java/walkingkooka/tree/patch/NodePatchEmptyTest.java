@@ -23,6 +23,7 @@ import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonPropertyName;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class NodePatchEmptyTest extends NodePatchTestCase3<NodePatchEmpty<JsonNode, JsonPropertyName>> {
@@ -46,6 +47,40 @@ public final class NodePatchEmptyTest extends NodePatchTestCase3<NodePatchEmpty<
         this.applyAndCheck(this.createPatch(), node, node);
     }
 
+    @Test
+    public void testSize() {
+        this.checkEquals(
+            0,
+            this.createPatch().size(),
+            "size"
+        );
+    }
+
+    @Test
+    public void testGetFails() {
+        assertThrows(
+            IndexOutOfBoundsException.class,
+            () -> this.createPatch().get(0)
+        );
+    }
+
+    @Test
+    public void testSubPatch() {
+        final NodePatchEmpty<JsonNode, JsonPropertyName> patch = this.createPatch();
+        assertSame(
+            patch,
+            patch.subPatch(0, 0)
+        );
+    }
+
+    @Test
+    public void testSubPatchInvalidToFails() {
+        assertThrows(
+            IndexOutOfBoundsException.class,
+            () -> this.createPatch().subPatch(0, 1)
+        );
+    }
+
     @Test
     public void testJsonNodeUnmarshall() {
         this.unmarshallAndCheck(JsonNode.array(),
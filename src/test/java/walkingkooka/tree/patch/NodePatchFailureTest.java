@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+public final class NodePatchFailureTest extends NodePatchTestCase2<NodePatchFailure<JsonNode, JsonPropertyName>>
+    implements HashCodeEqualsDefinedTesting2<NodePatchFailure<JsonNode, JsonPropertyName>> {
+
+    private final static int INDEX = 1;
+    private final static String MESSAGE = "Value test failed: 123";
+
+    @Test
+    public void testWith() {
+        final NodePatchFailure<JsonNode, JsonPropertyName> failure = this.createObject();
+        this.checkEquals(INDEX, failure.index(), "index");
+        this.checkEquals(this.operation(), failure.operation(), "operation");
+        this.checkEquals(MESSAGE, failure.message(), "message");
+    }
+
+    @Test
+    public void testDifferentIndex() {
+        this.checkNotEquals(NodePatchFailure.with(INDEX + 1, this.operation(), MESSAGE));
+    }
+
+    @Test
+    public void testDifferentOperation() {
+        this.checkNotEquals(
+            NodePatchFailure.with(
+                INDEX,
+                NodePatch.empty(JsonNode.class)
+                    .remove(this.path1()),
+                MESSAGE
+            )
+        );
+    }
+
+    @Test
+    public void testDifferentMessage() {
+        this.checkNotEquals(NodePatchFailure.with(INDEX, this.operation(), "different"));
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.createObject(),
+            "#1 " + this.operation() + " " + MESSAGE
+        );
+    }
+
+    private NodePatch<JsonNode, JsonPropertyName> operation() {
+        return NodePatch.empty(JsonNode.class)
+            .test(this.path1(), this.value1());
+    }
+
+    @Override
+    public NodePatchFailure<JsonNode, JsonPropertyName> createObject() {
+        return NodePatchFailure.with(INDEX, this.operation(), MESSAGE);
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchFailure<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchFailure.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+public final class NodePatchInverseResultTest extends NodePatchTestCase2<NodePatchInverseResult<JsonNode, JsonPropertyName>>
+    implements HashCodeEqualsDefinedTesting2<NodePatchInverseResult<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWith() {
+        final NodePatchInverseResult<JsonNode, JsonPropertyName> result = this.createObject();
+        this.checkEquals(this.value1(), result.value(), "value");
+        this.checkEquals(this.inverse(), result.inverse(), "inverse");
+    }
+
+    @Test
+    public void testDifferentValue() {
+        this.checkNotEquals(
+            NodePatchInverseResult.with(
+                this.value2(),
+                this.inverse()
+            )
+        );
+    }
+
+    @Test
+    public void testDifferentInverse() {
+        this.checkNotEquals(
+            NodePatchInverseResult.with(
+                this.value1(),
+                NodePatch.empty(JsonNode.class)
+                    .remove(this.path2())
+            )
+        );
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.createObject(),
+            NodePatchMessages.patch(this.inverse())
+        );
+    }
+
+    private NodePatch<JsonNode, JsonPropertyName> inverse() {
+        return NodePatch.empty(JsonNode.class)
+            .remove(this.path1());
+    }
+
+    @Override
+    public NodePatchInverseResult<JsonNode, JsonPropertyName> createObject() {
+        return NodePatchInverseResult.with(
+            this.value1(),
+            this.inverse()
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchInverseResult<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchInverseResult.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.tree.json.JsonArray;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.pointer.NodePointer;
+
+public final class NodePatchMessagesTest extends NodePatchTestCase4<NodePatchMessages> {
+
+    @Test
+    public void testNodeSmall() {
+        final JsonNode node = JsonNode.parse("{\"a1\": [1, 2, 3]}");
+
+        this.checkEquals(
+            node.toString(),
+            NodePatchMessages.node(node)
+        );
+    }
+
+    @Test
+    public void testNodeManyDescendants() {
+        JsonArray array = JsonNode.array();
+        for (int i = 0; i < NodePatchMessages.MAX_NODES; i++) {
+            array = array.appendChild(JsonNode.number(i));
+        }
+
+        this.checkEquals(
+            array.pointer() + " (" + NodePatchMessages.MAX_NODES + " children)",
+            NodePatchMessages.node(array)
+        );
+    }
+
+    @Test
+    public void testNodeMaxDescendants() {
+        JsonArray array = JsonNode.array();
+        for (int i = 0; i < NodePatchMessages.MAX_NODES - 1; i++) {
+            array = array.appendChild(JsonNode.number(i));
+        }
+
+        this.checkEquals(
+            array.toString(),
+            NodePatchMessages.node(array)
+        );
+    }
+
+    @Test
+    public void testNodeLongText() {
+        final String text = "a".repeat(NodePatchMessages.MAX_LENGTH * 2);
+
+        this.checkEquals(
+            JsonNode.string(text)
+                .toString()
+                .substring(0, NodePatchMessages.MAX_LENGTH) + "...",
+            NodePatchMessages.node(JsonNode.string(text))
+        );
+    }
+
+    @Test
+    public void testNodeLongTextChild() {
+        final JsonNode node = JsonNode.parse(
+            "{\"a1\": \"" + "a".repeat(NodePatchMessages.MAX_LENGTH) + "\"}"
+        );
+
+        this.checkEquals(
+            node.pointer() + " (1 children)",
+            NodePatchMessages.node(node)
+        );
+    }
+
+    @Test
+    public void testAbbreviateShort() {
+        this.checkEquals(
+            "abc",
+            NodePatchMessages.abbreviate("abc")
+        );
+    }
+
+    @Test
+    public void testPatch() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1"), JsonNode.string("value1"))
+            .remove(this.pointer("/b2"));
+
+        this.checkEquals(
+            patch.toString(),
+            NodePatchMessages.patch(patch)
+        );
+    }
+
+    @Test
+    public void testPatchMany() {
+        final String value = "a".repeat(NodePatchMessages.MAX_LENGTH - 10);
+
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1"), JsonNode.string(value))
+            .remove(this.pointer("/b2"))
+            .remove(this.pointer("/c3"));
+
+        this.checkEquals(
+            patch.get(0) + ", ... 2 more",
+            NodePatchMessages.patch(patch)
+        );
+    }
+
+    private NodePointer<JsonNode, JsonPropertyName> pointer(final String path) {
+        return NodePointer.parse(path, JsonPropertyName::with, JsonNode.class);
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchMessages> type() {
+        return NodePatchMessages.class;
+    }
+}
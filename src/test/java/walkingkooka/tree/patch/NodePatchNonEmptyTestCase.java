@@ -32,6 +32,7 @@ import java.util.Locale;
 import java.util.Optional;
 import java.util.function.Function;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public abstract class NodePatchNonEmptyTestCase<P extends NodePatchNonEmpty<JsonNode, JsonPropertyName>> extends NodePatchTestCase3<P> {
@@ -66,6 +67,49 @@ public abstract class NodePatchNonEmptyTestCase<P extends NodePatchNonEmpty<Json
             this.createPatch().add(path2, this.value3()));
     }
 
+    @Test
+    public final void testSize() {
+        this.checkEquals(
+            1,
+            this.createPatch().size(),
+            "size"
+        );
+    }
+
+    @Test
+    public final void testGet() {
+        final P patch = this.createPatch();
+        assertSame(
+            patch,
+            patch.get(0)
+        );
+    }
+
+    @Test
+    public final void testGetInvalidIndexFails() {
+        assertThrows(
+            IndexOutOfBoundsException.class,
+            () -> this.createPatch().get(1)
+        );
+    }
+
+    @Test
+    public final void testSubPatchAll() {
+        final P patch = this.createPatch();
+        assertSame(
+            patch,
+            patch.subPatch(0, 1)
+        );
+    }
+
+    @Test
+    public final void testSubPatchEmpty() {
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            this.createPatch().subPatch(1, 1)
+        );
+    }
+
     @Test
     public final void testFromJsonUnknownPropertyFails() {
         this.unmarshallFails2("[{\n" +
@@ -43,7 +43,7 @@ public final class NodePatchNotEmptyAddReplaceOrTestAddTest extends NodePatchNot
 
     @Test
     public void testAddTwoChildren() {
-        this.applyAndCheck(this.createPatch().append0(this.createPatch(this.property2(), this.value2())),
+        this.applyAndCheck(this.createPatch().append(this.createPatch(this.property2(), this.value2())),
             "{}",
             "{\"a1\":\"value1\", \"b2\": \"value2\"}");
     }
@@ -64,7 +64,7 @@ public final class NodePatchNotEmptyAddReplaceOrTestAddTest extends NodePatchNot
 
     @Test
     public void testAddMultiStep() {
-        this.applyAndCheck(this.createPatch("/a1", JsonNode.object()).append0(this.createPatch("/a1/b2", this.value2())),
+        this.applyAndCheck(this.createPatch("/a1", JsonNode.object()).append(this.createPatch("/a1/b2", this.value2())),
             "{}",
             "{\"a1\": {\"b2\": \"value2\"}}");
     }
@@ -53,7 +53,7 @@ public final class NodePatchNotEmptyAddReplaceOrTestReplaceTest extends NodePatc
 
     @Test
     public void testReplaceChildTwice() {
-        this.applyAndCheck(this.createPatch().append0(this.createPatch(this.property2(), this.value2())),
+        this.applyAndCheck(this.createPatch().append(this.createPatch(this.property2(), this.value2())),
             "{\"a1\": \"old-a1\", \"b2\": \"old-b2\"}",
             "{\"a1\":\"value1\", \"b2\": \"value2\"}");
     }
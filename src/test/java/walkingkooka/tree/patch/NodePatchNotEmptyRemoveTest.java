@@ -47,7 +47,7 @@ public final class NodePatchNotEmptyRemoveTest extends NodePatchNonEmptyTestCase
 
     @Test
     public void testRemoveTwoChildren() {
-        this.applyAndCheck(this.createPatch().append0(this.createPatch(this.property2())),
+        this.applyAndCheck(this.createPatch().append(this.createPatch(this.property2())),
             "{\"a1\":\"value1\", \"b2\": \"value2\", \"c3\": \"value3\"}",
             "{\"c3\": \"value3\"}");
     }
@@ -68,7 +68,7 @@ public final class NodePatchNotEmptyRemoveTest extends NodePatchNonEmptyTestCase
 
     @Test
     public void testRemoveMultiStep() {
-        this.applyAndCheck(this.createPatch("/a1/b2").append0(this.createPatch("/a1")),
+        this.applyAndCheck(this.createPatch("/a1/b2").append(this.createPatch("/a1")),
             "{\"a1\": {\"b2\": \"value2\"}, \"c3\": \"value3\"}",
             "{\"c3\": \"value3\"}");
     }
@@ -0,0 +1,457 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class NodePatchOptimizerTest extends NodePatchTestCase2<NodePatchOptimizer<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testOptimizeEmpty() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class);
+        assertSame(
+            patch,
+            patch.optimize()
+        );
+    }
+
+    @Test
+    public void testOptimizeNothingRemoved() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.path1(), this.value1())
+            .add(this.path2(), this.value2());
+        assertSame(
+            patch,
+            patch.optimize()
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceReplace() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.path1(), this.value1())
+                .replace(this.path1(), this.value2()),
+            this.empty()
+                .replace(this.path1(), this.value2()),
+            "{\"a1\": \"before\"}"
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceReplaceReplace() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.path1(), this.value1())
+                .replace(this.path1(), this.value2())
+                .replace(this.path1(), this.value3()),
+            this.empty()
+                .replace(this.path1(), this.value3()),
+            "{\"a1\": \"before\"}"
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceIndependentReplace() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.path1(), this.value1())
+                .add(this.path2(), this.value2())
+                .test(this.pointer("/c3"), this.value3())
+                .replace(this.path1(), this.value3()),
+            this.empty()
+                .add(this.path2(), this.value2())
+                .test(this.pointer("/c3"), this.value3())
+                .replace(this.path1(), this.value3()),
+            "{\"a1\": \"before\", \"c3\": \"value3\"}"
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceTestReplaceNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.path1(), this.value1())
+                .test(this.path1(), this.value1())
+                .replace(this.path1(), this.value2())
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceChildReplaceNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.pointer("/a1"), JsonNode.parse("{\"b2\": 1}"))
+                .replace(this.pointer("/a1/b2"), this.value2())
+                .replace(this.pointer("/a1"), this.value1())
+        );
+    }
+
+    @Test
+    public void testOptimizeArrayInsertBeforeNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.pointer("/a1/1/b2"), this.value1())
+                .add(this.pointer("/a1/0"), this.value2())
+                .replace(this.pointer("/a1/1"), this.value3())
+        );
+    }
+
+    @Test
+    public void testOptimizeAddReplace() {
+        this.optimizeAndCheck(
+            this.empty()
+                .add(this.path1(), this.value1())
+                .replace(this.path1(), this.value2()),
+            this.empty()
+                .add(this.path1(), this.value2()),
+            "{}"
+        );
+    }
+
+    @Test
+    public void testOptimizeAddReplaceArray() {
+        this.optimizeAndCheck(
+            this.empty()
+                .add(this.pointer("/a1/0"), this.value1())
+                .replace(this.pointer("/a1/0"), this.value2()),
+            this.empty()
+                .add(this.pointer("/a1/0"), this.value2()),
+            "{\"a1\": [1]}"
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceRemove() {
+        this.optimizeAndCheck(
+            this.empty()
+                .replace(this.path1(), this.value1())
+                .remove(this.path1()),
+            this.empty()
+                .remove(this.path1()),
+            "{\"a1\": \"before\", \"b2\": true}"
+        );
+    }
+
+    @Test
+    public void testOptimizeRemoveAdd() {
+        this.optimizeAndCheck(
+            this.empty()
+                .remove(this.path1())
+                .add(this.path1(), this.value1()),
+            this.empty()
+                .replace(this.path1(), this.value1()),
+            "{\"a1\": \"before\"}"
+        );
+    }
+
+    @Test
+    public void testOptimizeAddRemoveNotRemoved() {
+        // add replaces an existing property so dropping both would leave it behind
+        this.optimizeAndCheck(
+            this.empty()
+                .add(this.path1(), this.value1())
+                .remove(this.path1())
+        );
+    }
+
+    @Test
+    public void testOptimizeTestTest() {
+        this.optimizeAndCheck(
+            this.empty()
+                .test(this.path1(), this.value1())
+                .add(this.path2(), this.value2())
+                .test(this.path1(), this.value1()),
+            this.empty()
+                .test(this.path1(), this.value1())
+                .add(this.path2(), this.value2()),
+            "{\"a1\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testOptimizeTestTestDifferentValue() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.empty()
+            .test(this.path1(), this.value1())
+            .test(this.path1(), this.value2());
+        this.optimizeAndCheck(patch);
+
+        final JsonNode node = JsonNode.parse("{\"a1\": \"value1\"}");
+        this.checkEquals(
+            this.applyFails(patch, node).getMessage(),
+            this.applyFails(patch.optimize(), node).getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testOptimizeCopyRemove() {
+        this.optimizeAndCheck(
+            this.empty()
+                .copy(this.path1(), this.path2())
+                .remove(this.path1()),
+            this.empty()
+                .move(this.path1(), this.path2()),
+            "{\"a1\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testOptimizeCopyRemoveArrayShiftNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .copy(this.pointer("/a1/1"), this.pointer("/a1/0"))
+                .remove(this.pointer("/a1/1"))
+        );
+    }
+
+    @Test
+    public void testOptimizeCopyTestRemoveNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .copy(this.path1(), this.path2())
+                .test(this.path2(), this.value1())
+                .remove(this.path1())
+        );
+    }
+
+    @Test
+    public void testOptimizeRemoveShiftsAddNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .remove(this.pointer("/a1/0"))
+                .replace(this.pointer("/a1/1/b2"), this.value1())
+                .add(this.pointer("/a1/0"), this.value2())
+        );
+    }
+
+    @Test
+    public void testOptimizeAddShiftsTestReplaceNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .add(this.pointer("/a1/0"), this.value1())
+                .test(this.pointer("/a1/1"), this.value2())
+                .replace(this.pointer("/a1/0"), this.value3())
+        );
+    }
+
+    @Test
+    public void testOptimizeCopyShiftsTestRemoveNotRemoved() {
+        this.optimizeAndCheck(
+            this.empty()
+                .copy(this.path1(), this.pointer("/b2/0"))
+                .test(this.pointer("/b2/1"), this.value2())
+                .remove(this.path1())
+        );
+    }
+
+    @Test
+    public void testOptimizeReplaceMissingFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.empty()
+            .replace(this.path1(), this.value1())
+            .replace(this.path1(), this.value2());
+        final JsonNode node = JsonNode.object();
+
+        this.applyFails(patch, node);
+        this.applyFails(patch.optimize(), node);
+    }
+
+    // compose........................................................................................................
+
+    @Test
+    public void testComposeReplaceReplace() {
+        this.composeAndCheck(
+            this.empty()
+                .replace(this.path1(), this.value1()),
+            this.empty()
+                .replace(this.path1(), this.value2()),
+            this.empty()
+                .replace(this.path1(), this.value2()),
+            "{\"a1\": \"before\"}"
+        );
+    }
+
+    @Test
+    public void testComposeChildReplaced() {
+        this.composeAndCheck(
+            this.empty()
+                .add(this.pointer("/a1/b2"), this.value1())
+                .replace(this.pointer("/a1/c3"), this.value2())
+                .add(this.path2(), this.value2()),
+            this.empty()
+                .replace(this.path1(), this.value3()),
+            this.empty()
+                .add(this.path2(), this.value2())
+                .replace(this.path1(), this.value3()),
+            "{\"a1\": {\"c3\": 1}}"
+        );
+    }
+
+    @Test
+    public void testComposeChildRemoved() {
+        this.composeAndCheck(
+            this.empty()
+                .add(this.pointer("/a1/0"), this.value1())
+                .remove(this.pointer("/a1/1")),
+            this.empty()
+                .remove(this.path1()),
+            this.empty()
+                .remove(this.path1()),
+            "{\"a1\": [1, 2]}"
+        );
+    }
+
+    @Test
+    public void testComposeChildMovedFromOutsideNotRemoved() {
+        this.composeAndCheck(
+            this.empty()
+                .move(this.path2(), this.pointer("/a1/b2")),
+            this.empty()
+                .remove(this.path1()),
+            "{\"a1\": {}, \"b2\": 2}"
+        );
+    }
+
+    @Test
+    public void testComposeChildTestNotRemoved() {
+        this.composeAndCheck(
+            this.empty()
+                .add(this.pointer("/a1/b2"), this.value1())
+                .test(this.pointer("/a1/b2"), this.value1()),
+            this.empty()
+                .replace(this.path1(), this.value3()),
+            "{\"a1\": {}}"
+        );
+    }
+
+    @Test
+    public void testComposeTestReadsChildNotRemoved() {
+        this.composeAndCheck(
+            this.empty()
+                .add(this.pointer("/a1/b2"), this.value1()),
+            this.empty()
+                .copy(this.pointer("/a1/b2"), this.path3())
+                .replace(this.path1(), this.value3()),
+            "{\"a1\": {}}"
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> add = Cast.to(
+            this.empty()
+                .add(this.path1(), this.value1())
+        );
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> remove = Cast.to(
+            this.empty()
+                .remove(this.path2())
+        );
+
+        this.toStringAndCheck(
+            new NodePatchOptimizer<>(
+                Cast.to(new NodePatchNonEmpty[]{add, null, remove}),
+                false
+            ),
+            add + ", " + remove
+        );
+    }
+
+    private NodePatch<JsonNode, JsonPropertyName> empty() {
+        return NodePatch.empty(JsonNode.class);
+    }
+
+    private void optimizeAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch) {
+        assertSame(
+            patch,
+            patch.optimize(),
+            () -> "optimize " + patch
+        );
+    }
+
+    private void optimizeAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                  final NodePatch<JsonNode, JsonPropertyName> expected,
+                                  final String before) {
+        final NodePatch<JsonNode, JsonPropertyName> optimized = patch.optimize();
+        this.checkEquals(
+            expected,
+            optimized,
+            () -> "optimize " + patch
+        );
+        this.checkEquals(
+            patch.size() - expected.size(),
+            patch.size() - optimized.size(),
+            "removed"
+        );
+
+        final JsonNode node = JsonNode.parse(before);
+        this.applyAndCheck(
+            optimized,
+            node,
+            patch.apply(node)
+        );
+    }
+
+    private void composeAndCheck(final NodePatch<JsonNode, JsonPropertyName> first,
+                                 final NodePatch<JsonNode, JsonPropertyName> second,
+                                 final String before) {
+        final NodePatch<JsonNode, JsonPropertyName> concat = NodePatch.concat(first, second);
+        this.composeAndCheck(
+            first,
+            second,
+            concat,
+            before
+        );
+    }
+
+    private void composeAndCheck(final NodePatch<JsonNode, JsonPropertyName> first,
+                                 final NodePatch<JsonNode, JsonPropertyName> second,
+                                 final NodePatch<JsonNode, JsonPropertyName> expected,
+                                 final String before) {
+        final NodePatch<JsonNode, JsonPropertyName> composed = NodePatch.compose(first, second);
+        this.checkEquals(
+            expected,
+            composed,
+            () -> "compose " + first + " " + second
+        );
+
+        final JsonNode node = JsonNode.parse(before);
+        this.applyAndCheck(
+            composed,
+            node,
+            second.apply(first.apply(node))
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchOptimizer<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchOptimizer.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchPartitionedTest extends NodePatchTestCase2<NodePatchPartitioned<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testApplyPartitionedNullRootFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .applyPartitioned(null, this.sequential())
+        );
+    }
+
+    @Test
+    public void testApplyPartitionedNullRunnerFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .applyPartitioned(JsonNode.object(), null)
+        );
+    }
+
+    @Test
+    public void testApplyPartitionedNotRootFails() {
+        final JsonNode child = JsonNode.parse("{\"a1\": {\"b1\": {}}}")
+            .children()
+            .get(0);
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/b1/c1"), this.value1())
+                .applyPartitioned(child, this.sequential())
+        );
+    }
+
+    @Test
+    public void testApplyDisjointGroups() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1"), this.value1())
+                .replace(this.pointer("/b2/c1"), this.value2())
+                .remove(this.pointer("/a1/b2"))
+                .add(this.pointer("/c3/0"), this.value3()),
+            "{\"a1\": {\"b2\": true}, \"b2\": {\"c1\": 1}, \"c3\": [], \"z\": false}",
+            "{\"a1\": {\"b1\": \"value1\"}, \"b2\": {\"c1\": \"value2\"}, \"c3\": [\"value3\"], \"z\": false}",
+            3
+        );
+    }
+
+    @Test
+    public void testApplyCopyAndMoveWithinGroups() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.pointer("/a1/b1"), this.pointer("/a1/b2"))
+                .move(this.pointer("/c3/b1"), this.pointer("/c3/b2")),
+            "{\"a1\": {\"b1\": 1}, \"c3\": {\"b1\": 2}}",
+            "{\"a1\": {\"b1\": 1, \"b2\": 1}, \"c3\": {\"b2\": 2}}",
+            2
+        );
+    }
+
+    @Test
+    public void testApplySingleGroup() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1"), this.value1())
+                .add(this.pointer("/a1/b2"), this.value2()),
+            "{\"a1\": {}, \"z\": true}",
+            "{\"a1\": {\"b1\": \"value1\", \"b2\": \"value2\"}, \"z\": true}",
+            0
+        );
+    }
+
+    @Test
+    public void testApplyRootLevelOperation() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1"), this.value1())
+                .add(this.pointer("/c3"), this.value3()),
+            "{\"a1\": {}}",
+            "{\"a1\": {\"b1\": \"value1\"}, \"c3\": \"value3\"}",
+            0
+        );
+    }
+
+    @Test
+    public void testApplyMoveAcrossGroups() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1"), this.value1())
+                .move(this.pointer("/a1/b1"), this.pointer("/c3/b1")),
+            "{\"a1\": {}, \"c3\": {}}",
+            "{\"a1\": {}, \"c3\": {\"b1\": \"value1\"}}",
+            0
+        );
+    }
+
+    @Test
+    public void testApplyChildMissingFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b1"), this.value1())
+            .add(this.pointer("/c3/b1"), this.value3());
+        final JsonNode node = JsonNode.parse("{\"a1\": {}}");
+
+        this.checkEquals(
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.apply(node)
+            ).getMessage(),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.applyPartitioned(node, this.parallel())
+            ).getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testApplyArrayRoot() {
+        this.applyPartitionedAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/0/b1"), this.value1())
+                .add(this.pointer("/1/b1"), this.value2()),
+            "[{}, {}]",
+            "[{\"b1\": \"value1\"}, {\"b1\": \"value2\"}]",
+            0
+        );
+    }
+
+    @Test
+    public void testApplyGroupFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b1"), this.value1())
+            .test(this.pointer("/c3/b1"), this.value2());
+        final JsonNode node = JsonNode.parse("{\"a1\": {}, \"c3\": {\"b1\": \"different\"}}");
+
+        this.checkEquals(
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.apply(node)
+            ).getMessage(),
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> patch.applyPartitioned(node, this.parallel())
+            ).getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testApplyRunnerResultCountMismatchFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b1"), this.value1())
+            .add(this.pointer("/c3/b1"), this.value3());
+
+        final IllegalStateException thrown = assertThrows(
+            IllegalStateException.class,
+            () -> patch.applyPartitioned(
+                JsonNode.parse("{\"a1\": {}, \"c3\": {}}"),
+                (suppliers) -> suppliers.subList(0, 1)
+                    .stream()
+                    .map(Supplier::get)
+                    .collect(Collectors.toList())
+            )
+        );
+        this.checkEquals(
+            "Runner returned 1 results expected 2",
+            thrown.getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> add = Cast.to(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b1"), this.value1())
+        );
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> remove = Cast.to(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/c3/b1"))
+        );
+
+        final NodePatchPartitioned<JsonNode, JsonPropertyName> partitioned = new NodePatchPartitioned<>(
+            JsonNode.parse("{\"a1\": {}, \"c3\": {\"b1\": true}}")
+        );
+        this.checkEquals(
+            true,
+            partitioned.partition(
+                Cast.to(new NodePatchNonEmpty[]{add, remove})
+            ),
+            "partition"
+        );
+
+        this.toStringAndCheck(
+            partitioned,
+            "[" + add + ", " + remove + "]"
+        );
+    }
+
+    private void applyPartitionedAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                          final String before,
+                                          final String expected,
+                                          final int groups) {
+        final JsonNode beforeNode = JsonNode.parse(before);
+        final JsonNode expectedNode = JsonNode.parse(expected);
+
+        final int[] runnerGroups = new int[1];
+        this.checkEquals(
+            expectedNode,
+            patch.applyPartitioned(
+                beforeNode,
+                (suppliers) -> {
+                    runnerGroups[0] = suppliers.size();
+                    return this.sequential()
+                        .apply(suppliers);
+                }
+            ),
+            () -> "applyPartitioned " + patch + " to " + before
+        );
+        this.checkEquals(
+            groups,
+            runnerGroups[0],
+            () -> "groups " + patch
+        );
+
+        this.checkEquals(
+            expectedNode,
+            patch.applyPartitioned(
+                beforeNode,
+                this.parallel()
+            ),
+            () -> "applyPartitioned parallel " + patch + " to " + before
+        );
+        this.applyAndCheck(
+            patch,
+            beforeNode,
+            expectedNode
+        );
+    }
+
+    private Function<List<Supplier<JsonNode>>, List<JsonNode>> sequential() {
+        return (suppliers) -> suppliers.stream()
+            .map(Supplier::get)
+            .collect(Collectors.toList());
+    }
+
+    private Function<List<Supplier<JsonNode>>, List<JsonNode>> parallel() {
+        return (suppliers) -> suppliers.parallelStream()
+            .map(Supplier::get)
+            .collect(Collectors.toList());
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchPartitioned<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchPartitioned.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
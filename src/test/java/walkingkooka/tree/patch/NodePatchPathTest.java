@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.pointer.NodePointer;
+
+public final class NodePatchPathTest extends NodePatchTestCase4<NodePatchPath>
+    implements HashCodeEqualsDefinedTesting2<NodePatchPath> {
+
+    @Test
+    public void testParseEmpty() {
+        final NodePatchPath path = NodePatchPath.parse("");
+        this.checkEquals(true, path.isAbsolute(), "isAbsolute");
+        this.checkEquals(0, path.size(), "size");
+    }
+
+    @Test
+    public void testParseRelative() {
+        final NodePatchPath path = NodePatchPath.parse("a1");
+        this.checkEquals(false, path.isAbsolute(), "isAbsolute");
+        this.checkEquals(0, path.size(), "size");
+    }
+
+    @Test
+    public void testParse() {
+        final NodePatchPath path = NodePatchPath.parse("/a1/b~12/c~03");
+        this.checkEquals(3, path.size(), "size");
+        this.checkEquals("b~12", path.token(1), "token");
+        this.checkEquals("b/2", path.name(1), "name");
+        this.checkEquals("c~3", path.name(2), "name");
+    }
+
+    @Test
+    public void testWith() {
+        this.checkEquals(
+            NodePatchPath.parse("/a1/b2"),
+            NodePatchPath.with(this.pointer("/a1/b2"))
+        );
+    }
+
+    @Test
+    public void testIndex() {
+        final NodePatchPath path = NodePatchPath.parse("/0/12/012/a/-/");
+        this.checkEquals(0, path.index(0), "0");
+        this.checkEquals(12, path.index(1), "12");
+        this.checkEquals(-1, path.index(2), "012");
+        this.checkEquals(-1, path.index(3), "a");
+        this.checkEquals(-1, path.index(4), "-");
+        this.checkEquals(-1, path.index(5), "");
+    }
+
+    @Test
+    public void testCommonPrefixLength() {
+        this.checkEquals(
+            2,
+            NodePatchPath.parse("/a1/b2/c3").commonPrefixLength(NodePatchPath.parse("/a1/b2/d4"))
+        );
+    }
+
+    @Test
+    public void testCommonPrefixLengthRelative() {
+        this.checkEquals(
+            0,
+            NodePatchPath.parse("/a1").commonPrefixLength(NodePatchPath.parse("a1"))
+        );
+    }
+
+    @Test
+    public void testIsPrefixOf() {
+        final NodePatchPath a1 = NodePatchPath.parse("/a1");
+        final NodePatchPath b2 = NodePatchPath.parse("/a1/b2");
+
+        this.checkEquals(true, a1.isPrefixOf(b2), "a1 isPrefixOf b2");
+        this.checkEquals(true, a1.isPrefixOf(a1), "a1 isPrefixOf a1");
+        this.checkEquals(false, b2.isPrefixOf(a1), "b2 isPrefixOf a1");
+    }
+
+    @Test
+    public void testOverlaps() {
+        final NodePatchPath a1 = NodePatchPath.parse("/a1");
+
+        this.checkEquals(true, a1.overlaps(NodePatchPath.parse("/a1/b2")), "child");
+        this.checkEquals(false, a1.overlaps(NodePatchPath.parse("/a12")), "sibling");
+        this.checkEquals(true, a1.overlaps(NodePatchPath.parse("a1")), "relative");
+    }
+
+    @Test
+    public void testShifts() {
+        final NodePatchPath index = NodePatchPath.parse("/a1/0");
+
+        this.checkEquals(true, index.shifts(NodePatchPath.parse("/a1/1/b2")), "later sibling");
+        this.checkEquals(true, NodePatchPath.parse("/a1/-").shifts(NodePatchPath.parse("/a1/1")), "append");
+        this.checkEquals(false, NodePatchPath.parse("/a1/b2").shifts(NodePatchPath.parse("/a1/c3")), "property");
+        this.checkEquals(false, index.shifts(NodePatchPath.parse("/b2/1")), "other parent");
+    }
+
+    @Test
+    public void testParent() {
+        this.checkEquals(
+            NodePatchPath.parse("/a1"),
+            NodePatchPath.parse("/a1/b2").parent()
+        );
+    }
+
+    @Test
+    public void testParentRoot() {
+        final NodePatchPath root = NodePatchPath.parse("");
+        this.checkEquals(
+            root,
+            root.parent()
+        );
+    }
+
+    @Test
+    public void testDifferentTokens() {
+        this.checkNotEquals(NodePatchPath.parse("/a1/c3"));
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            NodePatchPath.parse("/a1/b2"),
+            "/a1/b2"
+        );
+    }
+
+    private NodePointer<JsonNode, JsonPropertyName> pointer(final String path) {
+        return NodePointer.parse(path, JsonPropertyName::with, JsonNode.class);
+    }
+
+    @Override
+    public NodePatchPath createObject() {
+        return NodePatchPath.parse("/a1/b2");
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<NodePatchPath> type() {
+        return NodePatchPath.class;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchPlanTest extends NodePatchTestCase2<NodePatchPlan<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testApplyNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.patch().compile().apply(null)
+        );
+    }
+
+    @Test
+    public void testPatch() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.patch();
+        assertSame(
+            patch,
+            patch.compile().patch()
+        );
+    }
+
+    @Test
+    public void testSize() {
+        this.checkEquals(
+            3,
+            this.patch().compile().size(),
+            "size"
+        );
+    }
+
+    @Test
+    public void testApplyEmpty() {
+        final JsonNode node = JsonNode.parse("{\"a1\": \"value1\"}");
+
+        this.compileApplyAndCheck(
+            NodePatch.empty(JsonNode.class),
+            node,
+            node
+        );
+    }
+
+    @Test
+    public void testApplyAdd() {
+        this.compileApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value2()),
+            "{\"a1\": {}}",
+            "{\"a1\": {\"b2\": \"value2\"}}"
+        );
+    }
+
+    @Test
+    public void testApplyCopy() {
+        this.compileApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.pointer("/a1"), this.pointer("/b2/c3")),
+            "{\"a1\": \"COPIED\", \"b2\": {\"c3\": \"value3\"}}",
+            "{\"a1\": \"COPIED\", \"b2\": {\"c3\": \"COPIED\"}}"
+        );
+    }
+
+    @Test
+    public void testApplyMove() {
+        this.compileApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1"), this.pointer("/b2/c3")),
+            "{\"a1\": \"MOVED\", \"b2\": {\"c3\": \"value3\"}}",
+            "{\"b2\": {\"c3\": \"MOVED\"}}"
+        );
+    }
+
+    @Test
+    public void testApplyRemove() {
+        this.compileApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/b2")),
+            "{\"a1\": {\"b2\": \"value2\"}}",
+            "{\"a1\": {}}"
+        );
+    }
+
+    @Test
+    public void testApplyTest() {
+        final JsonNode node = JsonNode.parse("{\"a1\": \"value1\"}");
+
+        this.compileApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.pointer("/a1"), this.value1()),
+            node,
+            node
+        );
+    }
+
+    @Test
+    public void testApplyJsonPatchExample() {
+        this.compileApplyAndCheck(
+            this.patch(),
+            "{\"baz\": \"qux\", \"foo\": \"bar\"}",
+            "{\"baz\": \"boo\", \"hello\": [\"world\"]}"
+        );
+    }
+
+    @Test
+    public void testApplySeveralTimes() {
+        final NodePatchPlan<JsonNode, JsonPropertyName> plan = this.patch().compile();
+
+        this.checkEquals(
+            JsonNode.parse("{\"baz\": \"boo\", \"hello\": [\"world\"]}"),
+            plan.apply(JsonNode.parse("{\"baz\": \"qux\", \"foo\": \"bar\"}"))
+        );
+        this.checkEquals(
+            JsonNode.parse("{\"baz\": \"boo\", \"hello\": [\"world\"], \"extra\": true}"),
+            plan.apply(JsonNode.parse("{\"baz\": 1, \"foo\": 2, \"extra\": true}"))
+        );
+    }
+
+    @Test
+    public void testApplyNotRoot() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .copy(this.pointer("/b2"), this.pointer("/c3"))
+            .test(this.pointer("/c3"), this.value2());
+        final JsonNode node = JsonNode.parse("{\"a1\": {\"b2\": \"value2\"}}")
+            .children()
+            .get(0);
+
+        this.checkEquals(
+            patch.apply(node),
+            patch.compile()
+                .apply(node)
+        );
+    }
+
+    @Test
+    public void testApplyTestFails() {
+        final NodePatch<JsonNode, JsonPropertyName> test = NodePatch.empty(JsonNode.class)
+            .test(this.pointer("/a1"), this.value2());
+
+        final ApplyNodePatchException thrown = assertThrows(
+            ApplyNodePatchException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/b2"))
+                .append(Cast.to(test))
+                .compile()
+                .apply(JsonNode.parse("{\"a1\": \"value1\", \"b2\": \"value2\"}"))
+        );
+        this.checkEquals(
+            test,
+            thrown.patch(),
+            "patch"
+        );
+        this.checkEquals(
+            "Value test failed: \"value1\"",
+            thrown.getMessage(),
+            "message"
+        );
+    }
+
+    @Test
+    public void testApplyTestPathMissingFails() {
+        assertThrows(
+            ApplyNodePatchException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .test(this.pointer("/a1"), this.value1())
+                .compile()
+                .apply(JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testApplyRemoveUnknownFails() {
+        final NodePatch<JsonNode, JsonPropertyName> remove = NodePatch.empty(JsonNode.class)
+            .remove(this.pointer("/a1/b2/c3"));
+
+        this.checkEquals(
+            remove,
+            assertThrows(
+                ApplyNodePatchException.class,
+                () -> remove.compile()
+                    .apply(JsonNode.object())
+            ).patch(),
+            "patch"
+        );
+    }
+
+    @Test
+    public void testApplyCopyFromUnknownFails() {
+        assertThrows(
+            ApplyNodePatchException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .copy(this.pointer("/a1"), this.pointer("/b2"))
+                .compile()
+                .apply(JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testTryApplyNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> this.patch().compile().tryApply(null)
+        );
+    }
+
+    @Test
+    public void testTryApply() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/b2"), this.value2());
+        final JsonNode node = JsonNode.parse("{\"a1\": {}}");
+
+        this.checkEquals(
+            patch.tryApply(node),
+            patch.compile()
+                .tryApply(node)
+        );
+    }
+
+    @Test
+    public void testTryApplyFails() {
+        final NodePatch<JsonNode, JsonPropertyName> remove = NodePatch.empty(JsonNode.class)
+            .remove(this.pointer("/a1/b2/c3"));
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/d4"), this.value1())
+            .append(Cast.to(remove));
+        final JsonNode node = JsonNode.object();
+
+        final NodePatchResult<JsonNode, JsonPropertyName> result = patch.compile()
+            .tryApply(node);
+        this.checkEquals(
+            NodePatchResult.failure(
+                NodePatchFailure.with(
+                    1,
+                    remove,
+                    "Unable to navigate to /a1/b2/c3"
+                )
+            ),
+            result
+        );
+        this.checkEquals(
+            patch.tryApply(node),
+            result,
+            "NodePatch.tryApply"
+        );
+    }
+
+    @Test
+    public void testTryApplyTestFails() {
+        final NodePatch<JsonNode, JsonPropertyName> test = NodePatch.empty(JsonNode.class)
+            .test(this.pointer("/a1"), this.value2());
+
+        this.checkEquals(
+            NodePatchResult.failure(
+                NodePatchFailure.with(
+                    0,
+                    test,
+                    "Value test failed: \"value1\""
+                )
+            ),
+            test.compile()
+                .tryApply(JsonNode.parse("{\"a1\": \"value1\"}"))
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.patch();
+
+        this.toStringAndCheck(
+            patch.compile(),
+            patch.toString()
+        );
+    }
+
+    private void compileApplyAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                      final String before,
+                                      final String expected) {
+        this.compileApplyAndCheck(
+            patch,
+            JsonNode.parse(before),
+            JsonNode.parse(expected)
+        );
+    }
+
+    private void compileApplyAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                      final JsonNode before,
+                                      final JsonNode expected) {
+        this.checkEquals(
+            expected,
+            patch.compile()
+                .apply(before),
+            () -> "compile " + patch + " apply " + before
+        );
+        this.applyAndCheck(
+            patch,
+            before,
+            expected
+        );
+    }
+
+    private NodePatch<JsonNode, JsonPropertyName> patch() {
+        return NodePatch.empty(JsonNode.class)
+            .replace(this.pointer("/baz"), JsonNode.string("boo"))
+            .add(this.pointer("/hello"), JsonNode.array().appendChild(JsonNode.string("world")))
+            .remove(this.pointer("/foo"));
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchPlan<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchPlan.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+import walkingkooka.tree.pointer.NodePointer;
+import walkingkooka.tree.pointer.NodePointerVisitorTesting;
+
+public final class NodePatchRebaseNodePointerVisitorTest extends NodePatchTestCase4<NodePatchRebaseNodePointerVisitor<JsonNode, JsonPropertyName>>
+    implements NodePointerVisitorTesting<NodePatchRebaseNodePointerVisitor<JsonNode, JsonPropertyName>, JsonNode, JsonPropertyName> {
+
+    @Test
+    public void testTokensNamed() {
+        this.tokensAndCheck(
+            "/a1/b2",
+            JsonPropertyName.with("a1"),
+            JsonPropertyName.with("b2")
+        );
+    }
+
+    @Test
+    public void testTokensIndexed() {
+        this.tokensAndCheck(
+            "/a1/0/1",
+            JsonPropertyName.with("a1"),
+            0,
+            1
+        );
+    }
+
+    @Test
+    public void testTokensAppend() {
+        this.tokensAndCheck(
+            "/a1/-",
+            JsonPropertyName.with("a1"),
+            NodePatchPath.APPEND
+        );
+    }
+
+    private void tokensAndCheck(final String path,
+                                final Object... tokens) {
+        this.checkEquals(
+            Lists.of(tokens),
+            Lists.of(
+                NodePatchRebaseNodePointerVisitor.tokens(
+                    NodePointer.parse(path, JsonPropertyName::with, JsonNode.class)
+                )
+            ),
+            () -> "tokens " + path
+        );
+    }
+
+    @Test
+    public void testToString() {
+        final NodePatchRebaseNodePointerVisitor<JsonNode, JsonPropertyName> visitor = this.createVisitor();
+        visitor.accept(NodePointer.parse("/a1/0", JsonPropertyName::with, JsonNode.class));
+        this.toStringAndCheck(visitor, "[a1, 0]");
+    }
+
+    @Override
+    public NodePatchRebaseNodePointerVisitor<JsonNode, JsonPropertyName> createVisitor() {
+        return new NodePatchRebaseNodePointerVisitor<>();
+    }
+
+    @Override
+    public String typeNamePrefix() {
+        return NodePatchRebase.class.getSimpleName();
+    }
+
+    @Override
+    public Class<NodePatchRebaseNodePointerVisitor<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchRebaseNodePointerVisitor.class);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchRebaseTest extends NodePatchTestCase2<NodePatchRebase<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testRebaseConcurrentEmpty() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1());
+        assertSame(
+            patch,
+            patch.rebase(NodePatch.empty(JsonNode.class))
+        );
+    }
+
+    @Test
+    public void testRebaseUnrelatedSame() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1());
+        assertSame(
+            patch,
+            patch.rebase(
+                NodePatch.empty(JsonNode.class)
+                    .replace(this.path2(), this.value2())
+            )
+        );
+    }
+
+    @Test
+    public void testRebaseIndexShiftedByInsert() {
+        this.rebaseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/1"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value2()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/2"), this.value1()),
+            "{\"a1\": [1, 2]}"
+        );
+    }
+
+    @Test
+    public void testRebaseIndexShiftedByRemove() {
+        this.rebaseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/2"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/0")),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/1"), this.value1()),
+            "{\"a1\": [1, 2, 3]}"
+        );
+    }
+
+    @Test
+    public void testRebaseIndexLaterInsertNotShifted() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.pointer("/a1/0"), this.value1());
+        assertSame(
+            patch,
+            patch.rebase(
+                NodePatch.empty(JsonNode.class)
+                    .add(this.pointer("/a1/1"), this.value2())
+            )
+        );
+    }
+
+    @Test
+    public void testRebaseInsertSameIndexAfterConcurrent() {
+        this.rebaseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value2()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/1"), this.value1()),
+            "{\"a1\": [1]}"
+        );
+    }
+
+    @Test
+    public void testRebaseLaterOperationShiftedByEarlierAndConcurrent() {
+        this.rebaseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/1"))
+                .add(this.pointer("/a1/-"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value2())
+                .remove(this.pointer("/a1/3")),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1/2"))
+                .add(this.pointer("/a1/-"), this.value1()),
+            "{\"a1\": [1, 2, 3]}"
+        );
+    }
+
+    @Test
+    public void testRebaseMovedPathRewritten() {
+        this.rebaseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/b2"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .move(this.path1(), this.path3()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/c3/b2"), this.value1()),
+            "{\"a1\": {\"b2\": 2}}"
+        );
+    }
+
+    @Test
+    public void testRebaseMoveSameNodeFromRewritten() {
+        this.rebaseAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/0"), this.path2()),
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/0"), this.path3()),
+            NodePatch.empty(JsonNode.class)
+                .move(this.path3(), this.path2()),
+            "{\"a1\": [1]}"
+        );
+    }
+
+    @Test
+    public void testRebaseSamePathWins() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1());
+        assertSame(
+            patch,
+            patch.rebase(
+                NodePatch.empty(JsonNode.class)
+                    .replace(this.path1(), this.value2())
+            )
+        );
+    }
+
+    @Test
+    public void testRebaseBelowRemovedFails() {
+        this.rebaseFails(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/b2"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1()),
+            "Conflict between replace path=\"/a1/b2\" value=\"value1\" and concurrent remove path=\"/a1\""
+        );
+    }
+
+    @Test
+    public void testRebaseBelowReplacedFails() {
+        this.rebaseFails(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/a1/b2"), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value2()),
+            "Conflict between replace path=\"/a1/b2\" value=\"value1\" and concurrent replace path=\"/a1\" value=\"value2\""
+        );
+    }
+
+    @Test
+    public void testRebaseTestChangedFails() {
+        this.rebaseFails(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value2()),
+            "Conflict between test path=\"/a1\" value=\"value1\" and concurrent replace path=\"/a1\" value=\"value2\""
+        );
+    }
+
+    @Test
+    public void testRebaseCopyChangedFails() {
+        this.rebaseFails(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path2()),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value2()),
+            "Conflict between copy from=\"/a1\" path=\"/b2\" and concurrent replace path=\"/a1\" value=\"value2\""
+        );
+    }
+
+    private void rebaseAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                final NodePatch<JsonNode, JsonPropertyName> concurrent,
+                                final NodePatch<JsonNode, JsonPropertyName> expected,
+                                final String before) {
+        final NodePatch<JsonNode, JsonPropertyName> rebased = patch.rebase(concurrent);
+        this.checkEquals(
+            expected,
+            rebased,
+            () -> "rebase " + patch + " " + concurrent
+        );
+
+        rebased.apply(
+            concurrent.apply(
+                JsonNode.parse(before)
+            )
+        );
+    }
+
+    private void rebaseFails(final NodePatch<JsonNode, JsonPropertyName> patch,
+                             final NodePatch<JsonNode, JsonPropertyName> concurrent,
+                             final String message) {
+        final RebaseNodePatchException thrown = assertThrows(
+            RebaseNodePatchException.class,
+            () -> patch.rebase(concurrent)
+        );
+        this.checkEquals(
+            message,
+            thrown.getMessage(),
+            "message"
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchRebase<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchRebase.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
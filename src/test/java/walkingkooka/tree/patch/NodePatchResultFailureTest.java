@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.Optional;
+
+public final class NodePatchResultFailureTest extends NodePatchTestCase2<NodePatchResultFailure<JsonNode, JsonPropertyName>>
+    implements HashCodeEqualsDefinedTesting2<NodePatchResultFailure<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWith() {
+        final NodePatchResultFailure<JsonNode, JsonPropertyName> failure = this.createObject();
+        this.checkEquals(false, failure.isSuccess(), "isSuccess");
+        this.checkEquals(Optional.empty(), failure.value(), "value");
+        this.checkEquals(Optional.of(this.failure("Patch failed")), failure.failure(), "failure");
+    }
+
+    @Test
+    public void testDifferentFailure() {
+        this.checkNotEquals(NodePatchResultFailure.with(this.failure("different")));
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.createObject(),
+            "Failure " + this.failure("Patch failed")
+        );
+    }
+
+    private NodePatchFailure<JsonNode, JsonPropertyName> failure(final String message) {
+        return NodePatchFailure.with(
+            0,
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            message
+        );
+    }
+
+    @Override
+    public NodePatchResultFailure<JsonNode, JsonPropertyName> createObject() {
+        return NodePatchResultFailure.with(this.failure("Patch failed"));
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchResultFailure<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchResultFailure.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.Optional;
+
+public final class NodePatchResultSuccessTest extends NodePatchTestCase2<NodePatchResultSuccess<JsonNode, JsonPropertyName>>
+    implements HashCodeEqualsDefinedTesting2<NodePatchResultSuccess<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWith() {
+        final NodePatchResultSuccess<JsonNode, JsonPropertyName> success = this.createObject();
+        this.checkEquals(true, success.isSuccess(), "isSuccess");
+        this.checkEquals(Optional.of(this.value1()), success.value(), "value");
+        this.checkEquals(Optional.empty(), success.failure(), "failure");
+    }
+
+    @Test
+    public void testDifferentValue() {
+        this.checkNotEquals(NodePatchResultSuccess.with(this.value2()));
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.createObject(),
+            "Success"
+        );
+    }
+
+    @Override
+    public NodePatchResultSuccess<JsonNode, JsonPropertyName> createObject() {
+        return NodePatchResultSuccess.with(this.value1());
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchResultSuccess<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchResultSuccess.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
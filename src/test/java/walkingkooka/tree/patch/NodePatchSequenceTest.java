@@ -0,0 +1,338 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchSequenceTest extends NodePatchTestCase3<NodePatchSequence<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testWith() {
+        this.checkEquals(
+            NodePatchNotEmptyRemove.with(this.path1())
+                .remove(this.path2()),
+            NodePatchSequence.with(
+                NodePatchNotEmptyRemove.with(this.path1()),
+                NodePatchNotEmptyRemove.with(this.path2())
+            )
+        );
+    }
+
+    @Test
+    public void testApply() {
+        this.applyAndCheck(
+            this.createPatch(),
+            "{\"a1\": \"value1\", \"c3\": \"value3\"}",
+            "{\"b2\": \"value2\", \"c3\": \"value3\"}"
+        );
+    }
+
+    @Test
+    public void testAppendSameBaseTwice() {
+        final NodePatch<JsonNode, JsonPropertyName> base = this.createPatch();
+
+        final NodePatch<JsonNode, JsonPropertyName> first = base.add(this.path3(), this.value3());
+        final NodePatch<JsonNode, JsonPropertyName> second = base.remove(this.path3());
+
+        this.toStringAndCheck(
+            base,
+            "remove path=\"/a1\", add path=\"/b2\" value=\"value2\""
+        );
+        this.toStringAndCheck(
+            first,
+            "remove path=\"/a1\", add path=\"/b2\" value=\"value2\", add path=\"/c3\" value=\"value3\""
+        );
+        this.toStringAndCheck(
+            second,
+            "remove path=\"/a1\", add path=\"/b2\" value=\"value2\", remove path=\"/c3\""
+        );
+    }
+
+    @Test
+    public void testAppendSameBaseTwiceApply() {
+        final NodePatch<JsonNode, JsonPropertyName> base = this.createPatch();
+
+        final NodePatch<JsonNode, JsonPropertyName> first = base.add(this.path3(), this.value3());
+        final NodePatch<JsonNode, JsonPropertyName> second = base.test(this.path2(), this.value2());
+
+        this.applyAndCheck(
+            first,
+            "{\"a1\": \"value1\"}",
+            "{\"b2\": \"value2\", \"c3\": \"value3\"}"
+        );
+        this.applyAndCheck(
+            second,
+            "{\"a1\": \"value1\"}",
+            "{\"b2\": \"value2\"}"
+        );
+    }
+
+    @Test
+    public void testAppendMany() {
+        final int count = 50_000;
+
+        NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class);
+        for (int i = 0; i < count; i++) {
+            patch = patch.test(this.path1(), this.value1());
+        }
+
+        final JsonNode node = JsonNode.parse("{\"a1\": \"value1\"}");
+        this.applyAndCheck(
+            patch,
+            node,
+            node
+        );
+        this.checkEquals(
+            count,
+            patch.toJsonPatch()
+                .children()
+                .size(),
+            "toJsonPatch children count"
+        );
+    }
+
+    @Test
+    public void testApplyFailsIncludesOperation() {
+        final NodePatchNonEmpty<JsonNode, JsonPropertyName> test = NodePatchNotEmptyAddReplaceOrTestTest.with(
+            this.path2(),
+            this.value3()
+        );
+
+        this.checkEquals(
+            test,
+            this.applyFails(
+                this.createPatch()
+                    .append(test),
+                "{\"a1\": \"value1\"}"
+            ).patch()
+        );
+    }
+
+    @Test
+    public void testSize() {
+        this.checkEquals(
+            2,
+            this.createPatch().size(),
+            "size"
+        );
+    }
+
+    @Test
+    public void testGet() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.createPatch();
+
+        this.checkEquals(
+            NodePatchNotEmptyRemove.with(this.path1()),
+            patch.get(0)
+        );
+        this.checkEquals(
+            NodePatchNotEmptyAddReplaceOrTestAdd.with(this.path2(), this.value2()),
+            patch.get(1)
+        );
+    }
+
+    @Test
+    public void testGetNegativeIndexFails() {
+        assertThrows(
+            IndexOutOfBoundsException.class,
+            () -> this.createPatch().get(-1)
+        );
+    }
+
+    @Test
+    public void testGetInvalidIndexFails() {
+        assertThrows(
+            IndexOutOfBoundsException.class,
+            () -> this.createPatch().get(2)
+        );
+    }
+
+    @Test
+    public void testSubPatchFromGreaterThanToFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> this.createPatch().subPatch(1, 0)
+        );
+    }
+
+    @Test
+    public void testSubPatchInvalidToFails() {
+        assertThrows(
+            IndexOutOfBoundsException.class,
+            () -> this.createPatch().subPatch(0, 3)
+        );
+    }
+
+    @Test
+    public void testSubPatchAll() {
+        final NodePatchSequence<JsonNode, JsonPropertyName> patch = this.createPatch();
+        assertSame(
+            patch,
+            patch.subPatch(0, 2)
+        );
+    }
+
+    @Test
+    public void testSubPatchEmpty() {
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            this.createPatch().subPatch(1, 1)
+        );
+    }
+
+    @Test
+    public void testSubPatchOne() {
+        this.checkEquals(
+            NodePatchNotEmptyAddReplaceOrTestAdd.with(this.path2(), this.value2()),
+            this.createPatch().subPatch(1, 2)
+        );
+    }
+
+    @Test
+    public void testSubPatchSeveral() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.createPatch()
+            .remove(this.path3())
+            .test(this.path1(), this.value1());
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path2(), this.value2())
+                .remove(this.path3()),
+            patch.subPatch(1, 3)
+        );
+    }
+
+    @Test
+    public void testSubPatchAppendDoesNotChangeOriginal() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.createPatch()
+            .remove(this.path3())
+            .test(this.path1(), this.value1());
+
+        final NodePatch<JsonNode, JsonPropertyName> subPatch = patch.subPatch(0, 3)
+            .add(this.path3(), this.value3());
+
+        this.toStringAndCheck(
+            patch,
+            "remove path=\"/a1\", add path=\"/b2\" value=\"value2\", remove path=\"/c3\", test path=\"/a1\" value=\"value1\""
+        );
+        this.toStringAndCheck(
+            subPatch,
+            "remove path=\"/a1\", add path=\"/b2\" value=\"value2\", remove path=\"/c3\", add path=\"/c3\" value=\"value3\""
+        );
+    }
+
+    @Test
+    public void testEqualsDifferentOrder() {
+        this.checkNotEquals(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path2(), this.value2())
+                .remove(this.path1())
+        );
+    }
+
+    @Test
+    public void testEqualsDifferentSize() {
+        this.checkNotEquals(
+            this.createPatch()
+                .remove(this.path3())
+        );
+    }
+
+    @Test
+    public void testEqualsSingleOperation() {
+        this.checkNotEquals(
+            NodePatchNotEmptyRemove.with(this.path1())
+        );
+    }
+
+    @Test
+    public void testJsonNodeMarshall() {
+        this.marshallAndCheck(
+            this.createPatch(),
+            "[{\n" +
+                "  \"op\": \"remove\",\n" +
+                "  \"path-name-type\": \"json-property-name\",\n" +
+                "  \"path\": \"/a1\"\n" +
+                "}, {\n" +
+                "  \"op\": \"add\",\n" +
+                "  \"path-name-type\": \"json-property-name\",\n" +
+                "  \"path\": \"/b2\",\n" +
+                "  \"value-type\": \"json\",\n" +
+                "  \"value\": \"value2\"\n" +
+                "}]"
+        );
+    }
+
+    @Test
+    public void testJsonNodeMarshallRoundtrip() {
+        this.marshallWithTypeRoundTripTwiceAndCheck(this.createPatch());
+    }
+
+    @Test
+    public void testToJsonPatch() {
+        this.toJsonPatchAndCheck(
+            this.createPatch(),
+            "[{\n" +
+                "  \"op\": \"remove\",\n" +
+                "  \"path\": \"/a1\"\n" +
+                "}, {\n" +
+                "  \"op\": \"add\",\n" +
+                "  \"path\": \"/b2\",\n" +
+                "  \"value\": \"value2\"\n" +
+                "}]"
+        );
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            this.createPatch(),
+            "remove path=\"/a1\", add path=\"/b2\" value=\"value2\""
+        );
+    }
+
+    // NodePatchTestCase3...............................................................................................
+
+    @Override
+    NodePatchSequence<JsonNode, JsonPropertyName> createPatch() {
+        return NodePatchSequence.with(
+            NodePatchNotEmptyRemove.with(this.path1()),
+            NodePatchNotEmptyAddReplaceOrTestAdd.with(this.path2(), this.value2())
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchSequence<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchSequence.class);
+    }
+
+    // TypeNameTesting..................................................................................................
+
+    @Override
+    public String typeNameSuffix() {
+        return "Sequence";
+    }
+}
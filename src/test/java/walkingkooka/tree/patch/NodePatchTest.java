@@ -33,6 +33,7 @@ import java.util.Locale;
 import java.util.Optional;
 import java.util.function.Function;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class NodePatchTest extends NodePatchTestCase2<NodePatch<JsonNode, JsonPropertyName>> {
@@ -302,6 +303,316 @@ public final class NodePatchTest extends NodePatchTestCase2<NodePatch<JsonNode,
             "copy from=\"/a1\" path=\"/b2\", move from=\"/c3\" path=\"/d4/e5\"");
     }
 
+    // applyToRoot......................................................................................................
+
+    @Test
+    public void testApplyToRoot() {
+        this.checkEquals(
+            JsonNode.parse("{\"baz\": \"boo\", \"hello\": [\"world\"]}"),
+            NodePatch.empty(JsonNode.class)
+                .replace(this.pointer("/baz"), this.string("boo"))
+                .add(this.pointer("/hello"), JsonNode.array().appendChild(this.string("world")))
+                .remove(this.pointer("/foo"))
+                .applyToRoot(JsonNode.parse("{\"baz\": \"qux\", \"foo\": \"bar\"}"))
+        );
+    }
+
+    @Test
+    public void testApplyNotRoot() {
+        final JsonNode child = JsonNode.parse("{\"a1\": {\"b2\": \"value2\"}, \"c3\": \"value3\"}")
+            .children()
+            .get(0);
+
+        final JsonNode applied = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/c3"), this.value3())
+            .remove(this.pointer("/b2"))
+            .apply(child);
+
+        this.checkEquals(
+            JsonNode.parse("{\"c3\": \"value3\"}"),
+            applied.removeParent(),
+            "start"
+        );
+        this.checkEquals(
+            JsonNode.parse("{\"a1\": {\"c3\": \"value3\"}, \"c3\": \"value3\"}"),
+            applied.root(),
+            "root"
+        );
+    }
+
+    @Test
+    public void testApplyDeepRoot() {
+        final int depth = 200;
+        final JsonPropertyName name = JsonPropertyName.with("a");
+
+        JsonNode before = JsonNode.object();
+        JsonNode expected = JsonNode.object()
+            .set(this.property2(), this.value2());
+        String path = "";
+
+        for (int i = 0; i < depth; i++) {
+            before = JsonNode.object()
+                .set(name, before);
+            expected = JsonNode.object()
+                .set(name, expected);
+            path = path + "/a";
+        }
+
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer(path + "/b2"), this.value2())
+            .add(this.pointer(path + "/c3"), this.value3())
+            .remove(this.pointer(path + "/c3"));
+
+        this.checkEquals(
+            expected,
+            patch.apply(before),
+            "apply"
+        );
+        this.checkEquals(
+            expected,
+            patch.applyToRoot(before),
+            "applyToRoot"
+        );
+    }
+
+    // concat...........................................................................................................
+
+    @Test
+    public void testConcatNullPatchesFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.concat((NodePatch<JsonNode, JsonPropertyName>[]) null)
+        );
+    }
+
+    @Test
+    public void testConcatNullPatchFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.concat(
+                NodePatch.empty(JsonNode.class),
+                null
+            )
+        );
+    }
+
+    @Test
+    public void testConcatNone() {
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            NodePatch.<JsonNode, JsonPropertyName>concat()
+        );
+    }
+
+    @Test
+    public void testConcatEmpties() {
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            NodePatch.concat(
+                NodePatch.empty(JsonNode.class),
+                NodePatch.empty(JsonNode.class)
+            )
+        );
+    }
+
+    @Test
+    public void testConcatOneNonEmpty() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .remove(this.pointer("/a1"))
+            .remove(this.pointer("/b2"));
+
+        assertSame(
+            patch,
+            NodePatch.concat(
+                NodePatch.empty(JsonNode.class),
+                patch,
+                NodePatch.empty(JsonNode.class)
+            )
+        );
+    }
+
+    @Test
+    public void testConcat() {
+        final NodePatch<JsonNode, JsonPropertyName> concat = NodePatch.concat(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1")),
+            NodePatch.empty(JsonNode.class),
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/b2"), this.value2())
+                .add(this.pointer("/c3"), this.value3())
+        );
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/a1"))
+                .add(this.pointer("/b2"), this.value2())
+                .add(this.pointer("/c3"), this.value3()),
+            concat
+        );
+        this.checkEquals(
+            3,
+            concat.size(),
+            "size"
+        );
+    }
+
+    @Test
+    public void testConcatApply() {
+        this.applyAndCheck(
+            NodePatch.concat(
+                NodePatch.empty(JsonNode.class)
+                    .replace(this.pointer("/baz"), this.string("boo")),
+                NodePatch.empty(JsonNode.class)
+                    .add(this.pointer("/hello"), JsonNode.array().appendChild(this.string("world")))
+                    .remove(this.pointer("/foo"))
+            ),
+            "{\"baz\": \"qux\", \"foo\": \"bar\"}",
+            "{\"baz\": \"boo\", \"hello\": [\"world\"]}"
+        );
+    }
+
+    @Test
+    public void testConcatConcatAppend() {
+        final NodePatch<JsonNode, JsonPropertyName> concat = NodePatch.concat(
+            NodePatch.concat(
+                NodePatch.empty(JsonNode.class)
+                    .remove(this.pointer("/a1")),
+                NodePatch.empty(JsonNode.class)
+                    .remove(this.pointer("/b2"))
+            ),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.pointer("/c3"))
+        ).remove(this.pointer("/d4"));
+
+        this.toStringAndCheck(
+            concat,
+            "remove path=\"/a1\", remove path=\"/b2\", remove path=\"/c3\", remove path=\"/d4\""
+        );
+    }
+
+    // compose........................................................................................................
+
+    @Test
+    public void testComposeNullFirstFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.compose(
+                null,
+                NodePatch.empty(JsonNode.class)
+            )
+        );
+    }
+
+    @Test
+    public void testComposeNullSecondFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.compose(
+                NodePatch.empty(JsonNode.class),
+                null
+            )
+        );
+    }
+
+    @Test
+    public void testComposeEmpties() {
+        assertSame(
+            NodePatch.empty(JsonNode.class),
+            NodePatch.compose(
+                NodePatch.empty(JsonNode.class),
+                NodePatch.empty(JsonNode.class)
+            )
+        );
+    }
+
+    @Test
+    public void testComposeApply() {
+        final NodePatch<JsonNode, JsonPropertyName> first = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/hello"), JsonNode.object())
+            .add(this.pointer("/hello/world"), this.string("1"))
+            .replace(this.pointer("/baz"), this.string("boo"));
+        final NodePatch<JsonNode, JsonPropertyName> second = NodePatch.empty(JsonNode.class)
+            .replace(this.pointer("/hello"), this.string("2"))
+            .replace(this.pointer("/baz"), this.string("boo2"));
+
+        final NodePatch<JsonNode, JsonPropertyName> composed = NodePatch.compose(first, second);
+
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/hello"), this.string("2"))
+                .replace(this.pointer("/baz"), this.string("boo2")),
+            composed
+        );
+
+        this.applyAndCheck(
+            composed,
+            "{\"baz\": \"qux\"}",
+            "{\"baz\": \"boo2\", \"hello\": \"2\"}"
+        );
+    }
+
+    // rebase........................................................................................................
+
+    @Test
+    public void testRebaseNullConcurrentFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .rebase(null)
+        );
+    }
+
+    @Test
+    public void testRebaseEmpty() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class);
+        assertSame(
+            patch,
+            patch.rebase(
+                NodePatch.empty(JsonNode.class)
+                    .remove(this.path1())
+            )
+        );
+    }
+
+    // commutesWith....................................................................................................
+
+    @Test
+    public void testCommutesWithNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .commutesWith(null)
+        );
+    }
+
+    // removeTests.....................................................................................................
+
+    @Test
+    public void testRemoveTestsNone() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.path1(), this.value1())
+            .remove(this.path2());
+        assertSame(
+            patch,
+            patch.removeTests()
+        );
+    }
+
+    @Test
+    public void testRemoveTests() {
+        this.checkEquals(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1())
+                .remove(this.path2()),
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value2())
+                .replace(this.path1(), this.value1())
+                .test(this.path2(), this.value2())
+                .remove(this.path2())
+                .removeTests()
+        );
+    }
+
     private JsonNode string(final String string) {
         return JsonNode.string(string);
     }
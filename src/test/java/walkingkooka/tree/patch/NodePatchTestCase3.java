@@ -44,6 +44,21 @@ public abstract class NodePatchTestCase3<P extends NodePatch<JsonNode, JsonPrope
         assertThrows(NullPointerException.class, () -> this.createPatch().apply(null));
     }
 
+    @Test
+    public final void testApplyToRootNullFails() {
+        assertThrows(NullPointerException.class, () -> this.createPatch().applyToRoot(null));
+    }
+
+    @Test
+    public final void testApplyToRootNotRootFails() {
+        final JsonNode notRoot = JsonNode.object()
+            .set(this.property1(), JsonNode.object())
+            .children()
+            .get(0);
+
+        assertThrows(IllegalArgumentException.class, () -> this.createPatch().applyToRoot(notRoot));
+    }
+
     @Test
     public final void testAddNullPathFails() {
         assertThrows(NullPointerException.class, () -> this.createPatch().add(null, JsonNode.string("value")));
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class NodePatchValidatorTest extends NodePatchTestCase2<NodePatchValidator<JsonNode, JsonPropertyName>> {
+
+    @Test
+    public void testValidateNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .validate(null)
+        );
+    }
+
+    @Test
+    public void testValidateEmpty() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class),
+            "{}"
+        );
+    }
+
+    @Test
+    public void testValidateAdd() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value1()),
+            "{\"a1\": {}}"
+        );
+    }
+
+    @Test
+    public void testValidateAddExisting() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/0"), this.value1()),
+            "{\"a1\": [1]}"
+        );
+    }
+
+    @Test
+    public void testValidateAddAppend() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/-"), this.value1()),
+            "{\"a1\": [1]}"
+        );
+    }
+
+    @Test
+    public void testValidateAddMissingParent() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value1()),
+            "{}",
+            0,
+            "Unable to navigate to parent of /a1/b2"
+        );
+    }
+
+    @Test
+    public void testValidateAddNamedToLeafFails() {
+        this.validateFailsLikeApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value1()),
+            "{\"a1\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testValidateAddNamedToArrayFails() {
+        this.validateFailsLikeApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/b2"), this.value1()),
+            "{\"a1\": [1]}"
+        );
+    }
+
+    @Test
+    public void testValidateAddAppendToObjectFails() {
+        this.validateFailsLikeApplyAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1/-"), this.value1()),
+            "{\"a1\": {\"b2\": 2}}"
+        );
+    }
+
+    @Test
+    public void testValidateAddAfterAdd() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.pointer("/a1"), JsonNode.object())
+                .add(this.pointer("/a1/b2"), this.value1()),
+            "{}"
+        );
+    }
+
+    @Test
+    public void testValidateRemove() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1()),
+            "{\"a1\": 1}"
+        );
+    }
+
+    @Test
+    public void testValidateRemoveMissing() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .add(this.path2(), this.value2())
+                .remove(this.path1()),
+            "{}",
+            1,
+            "Unable to navigate to /a1"
+        );
+    }
+
+    @Test
+    public void testValidateRemoveTwice() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path1())
+                .remove(this.path1()),
+            "{\"a1\": 1}",
+            1,
+            "Unable to navigate to /a1"
+        );
+    }
+
+    @Test
+    public void testValidateReplace() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1()),
+            "{\"a1\": 1}"
+        );
+    }
+
+    @Test
+    public void testValidateCopyFromMissing() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .copy(this.path1(), this.path2()),
+            "{}",
+            0,
+            "Unable to navigate to find node to copy from: /a1"
+        );
+    }
+
+    @Test
+    public void testValidateMove() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.path1(), this.path2()),
+            "{\"a1\": 1}"
+        );
+    }
+
+    @Test
+    public void testValidateMoveWithinArray() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .move(this.pointer("/a1/0"), this.pointer("/a1/1")),
+            "{\"a1\": [1, 2]}"
+        );
+    }
+
+    @Test
+    public void testValidateTest() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            "{\"a1\": \"value1\"}"
+        );
+    }
+
+    @Test
+    public void testValidateTestDifferent() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            "{\"a1\": \"different\"}",
+            0,
+            "Value test failed: \"different\""
+        );
+    }
+
+    @Test
+    public void testValidateTestMissing() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .test(this.path1(), this.value1()),
+            "{}",
+            0,
+            "Patch failed"
+        );
+    }
+
+    @Test
+    public void testValidateTestAfterReplace() {
+        this.validateAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1())
+                .test(this.path1(), this.value1()),
+            "{\"a1\": \"before\"}"
+        );
+    }
+
+    @Test
+    public void testValidateTestAfterReplaceFails() {
+        this.validateFailsAndCheck(
+            NodePatch.empty(JsonNode.class)
+                .replace(this.path1(), this.value1())
+                .test(this.path1(), this.value2()),
+            "{\"a1\": \"value2\"}",
+            1,
+            "Value test failed: \"value1\""
+        );
+    }
+
+    @Test
+    public void testValidateNotRoot() {
+        final JsonNode child = JsonNode.parse("{\"a1\": {\"b2\": 1}}")
+            .children()
+            .get(0);
+
+        this.checkEquals(
+            Optional.empty(),
+            NodePatch.empty(JsonNode.class)
+                .remove(this.path2())
+                .validate(child)
+        );
+    }
+
+    @Test
+    public void testTryApplyNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .tryApply(null)
+        );
+    }
+
+    @Test
+    public void testTryApply() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1())
+            .test(this.path1(), this.value1())
+            .add(this.pointer("/b2/-"), this.value2())
+            .move(this.pointer("/b2/0"), this.pointer("/b2/1"));
+        final JsonNode node = JsonNode.parse("{\"a1\": 1, \"b2\": [true]}");
+
+        this.checkEquals(
+            NodePatchResult.success(patch.apply(node)),
+            patch.tryApply(node)
+        );
+    }
+
+    @Test
+    public void testTryApplyTestFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1())
+            .test(this.path1(), this.value2());
+
+        this.checkEquals(
+            NodePatchResult.failure(
+                NodePatchFailure.with(
+                    1,
+                    patch.get(1),
+                    "Value test failed: \"value1\""
+                )
+            ),
+            patch.tryApply(JsonNode.parse("{\"a1\": 1}"))
+        );
+    }
+
+    @Test
+    public void testTryApplyRemoveMissingFails() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .remove(this.path1());
+
+        this.checkEquals(
+            NodePatchResult.failure(
+                NodePatchFailure.with(
+                    0,
+                    patch.get(0),
+                    "Unable to navigate to /a1"
+                )
+            ),
+            patch.tryApply(JsonNode.object())
+        );
+    }
+
+    @Test
+    public void testApplyAllNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> NodePatch.empty(JsonNode.class)
+                .applyAll(null)
+        );
+    }
+
+    @Test
+    public void testApplyAll() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .replace(this.path1(), this.value1())
+            .test(this.path2(), this.value2());
+
+        final JsonNode node1 = JsonNode.parse("{\"a1\": 1, \"b2\": \"value2\"}");
+        final JsonNode node2 = JsonNode.parse("{\"a1\": 2, \"b2\": \"different\"}");
+        final JsonNode node3 = JsonNode.parse("{\"b2\": \"value2\"}");
+        final JsonNode node4 = JsonNode.parse("{\"a1\": 4, \"b2\": \"value2\", \"c3\": true}");
+
+        this.checkEquals(
+            Lists.of(
+                patch.tryApply(node1),
+                patch.tryApply(node2),
+                patch.tryApply(node3),
+                patch.tryApply(node4)
+            ),
+            patch.applyAll(
+                Stream.of(node1, node2, node3, node4)
+            ).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    public void testApplyAllParallel() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = NodePatch.empty(JsonNode.class)
+            .add(this.pointer("/a1/-"), this.value1())
+            .test(this.pointer("/a1/0"), this.value2());
+
+        final List<JsonNode> nodes = IntStream.range(0, 100)
+            .mapToObj(i -> JsonNode.parse(0 == i % 3 ? "{\"a1\": []}" : "{\"a1\": [\"value2\"]}"))
+            .collect(Collectors.toList());
+
+        this.checkEquals(
+            nodes.stream()
+                .map(patch::tryApply)
+                .collect(Collectors.toList()),
+            patch.applyAll(
+                nodes.parallelStream()
+            ).collect(Collectors.toList())
+        );
+    }
+
+    private void validateAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                  final String json) {
+        final JsonNode node = JsonNode.parse(json);
+
+        this.checkEquals(
+            Optional.empty(),
+            patch.validate(node),
+            () -> "validate " + patch + " " + json
+        );
+        patch.apply(node);
+    }
+
+    /**
+     * Checks the single operation patch fails validation with the same message as apply.
+     */
+    private void validateFailsLikeApplyAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                                final String json) {
+        final JsonNode node = JsonNode.parse(json);
+        final ApplyNodePatchException thrown = this.applyFails(patch, node);
+
+        this.checkEquals(
+            Optional.of(
+                NodePatchFailure.with(
+                    0,
+                    patch,
+                    thrown.getMessage()
+                )
+            ),
+            patch.validate(node),
+            () -> "validate " + patch + " " + json
+        );
+    }
+
+    private void validateFailsAndCheck(final NodePatch<JsonNode, JsonPropertyName> patch,
+                                       final String json,
+                                       final int index,
+                                       final String message) {
+        final JsonNode node = JsonNode.parse(json);
+
+        this.checkEquals(
+            Optional.of(
+                NodePatchFailure.with(
+                    index,
+                    patch.get(index),
+                    message
+                )
+            ),
+            patch.validate(node),
+            () -> "validate " + patch + " " + json
+        );
+
+        this.checkEquals(
+            patch.get(index),
+            this.applyFails(patch, node).patch(),
+            "apply"
+        );
+    }
+
+    // ClassTesting2....................................................................................................
+
+    @Override
+    public Class<NodePatchValidator<JsonNode, JsonPropertyName>> type() {
+        return Cast.to(NodePatchValidator.class);
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.tree.patch;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.reflect.StandardThrowableTesting;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class RebaseNodePatchExceptionTest implements StandardThrowableTesting<RebaseNodePatchException> {
+
+    private final static String MESSAGE = "message123";
+
+    @Test
+    public void testWithNullPatchFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> new RebaseNodePatchException(
+                MESSAGE,
+                null,
+                this.empty()
+            )
+        );
+    }
+
+    @Test
+    public void testWithNullConcurrentFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> new RebaseNodePatchException(
+                MESSAGE,
+                this.empty(),
+                null
+            )
+        );
+    }
+
+    @Override
+    public void testWithMessageAndCause() {
+    }
+
+    @Override
+    public void testWithMessageAndNullCauseFails() {
+    }
+
+    @Override
+    public void testWithNullMessageAndCauseExceptionFails() {
+    }
+
+    @Test
+    public void testWith() {
+        final NodePatch<JsonNode, JsonPropertyName> patch = this.empty();
+        final NodePatch<JsonNode, JsonPropertyName> concurrent = this.empty();
+
+        final RebaseNodePatchException exception = new RebaseNodePatchException(MESSAGE, patch, concurrent);
+        this.getMessageAndCheck(exception, MESSAGE);
+        this.getCauseAndCheck(exception, null);
+
+        assertSame(
+            patch,
+            exception.patch(),
+            "patch"
+        );
+        assertSame(
+            concurrent,
+            exception.concurrent(),
+            "concurrent"
+        );
+    }
+
+    private NodePatch<JsonNode, JsonPropertyName> empty() {
+        return NodePatch.empty(JsonNode.class);
+    }
+
+    @Override
+    public RebaseNodePatchException createThrowable(final String message) {
+        return new RebaseNodePatchException(
+            message,
+            this.empty(),
+            this.empty()
+        );
+    }
+
+    @Override
+    public RebaseNodePatchException createThrowable(final String message,
+                                                    final Throwable cause) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Class<RebaseNodePatchException> type() {
+        return RebaseNodePatchException.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}